@@ -0,0 +1,125 @@
+package payrollmanagementsystem;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming CSV reader following RFC 4180: fields may be enclosed in double
+ * quotes, in which case they can contain commas, line breaks and escaped
+ * ("") quotes. Rows are read one at a time through a fixed-size buffer, so
+ * files of any size can be processed in constant memory.
+ */
+public final class CsvReader implements Closeable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final Reader in;
+    private final char[] buffer;
+    private int position;
+    private int limit;
+
+    private final StringBuilder field = new StringBuilder();
+    private final List<String> row = new ArrayList<>();
+    private long rowNumber;
+
+    public CsvReader(Reader in) {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    public CsvReader(Reader in, int bufferSize) {
+        this.in = in;
+        this.buffer = new char[bufferSize];
+    }
+
+    /**
+     * Opens a UTF-8 encoded CSV file.
+     */
+    public static CsvReader open(File file) throws IOException {
+        return new CsvReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads the next row.
+     *
+     * @return The fields of the row, or null at the end of the input.
+     */
+    public String[] readRow() throws IOException {
+        if (position == limit && !fill()) {
+            return null;
+        }
+
+        row.clear();
+        field.setLength(0);
+        boolean inQuotes = false;
+
+        while (position < limit || fill()) {
+            char c = buffer[position++];
+            if (inQuotes) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (peek() == '"') {
+                    position++; // Escaped quote
+                    field.append('"');
+                } else {
+                    inQuotes = false;
+                }
+            } else if (c == ',') {
+                row.add(field.toString());
+                field.setLength(0);
+            } else if (c == '"' && field.length() == 0) {
+                inQuotes = true;
+            } else if (c == '\n') {
+                break;
+            } else if (c == '\r') {
+                if (peek() == '\n') {
+                    position++;
+                }
+                break;
+            } else {
+                field.append(c);
+            }
+        }
+
+        row.add(field.toString());
+        rowNumber++;
+        return row.toArray(new String[0]);
+    }
+
+    /**
+     * Returns the number of rows read so far, i.e. the 1-based number of the
+     * row last returned by {@link #readRow()}.
+     */
+    public long getRowNumber() {
+        return rowNumber;
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        int read = in.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            position = limit = 0;
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
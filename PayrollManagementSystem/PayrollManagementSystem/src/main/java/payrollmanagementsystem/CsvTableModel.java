@@ -0,0 +1,217 @@
+package payrollmanagementsystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Table model holding rows of text cells, e.g. the rows of a CSV file. Unlike
+ * DefaultTableModel, rows can be loaded, added, removed and replaced in bulk
+ * with a single event, so a table is laid out once per change instead of once
+ * per row. Rows are kept as the arrays they were given in, not as Vectors.
+ *
+ * A row may have fewer cells than the model has columns; the missing cells
+ * read as null.
+ */
+public class CsvTableModel extends AbstractTableModel {
+
+    private String[] columnNames;
+    private final boolean editable;
+    private List<String[]> rows = new ArrayList<>();
+
+    public CsvTableModel() {
+        this(new String[0], true);
+    }
+
+    public CsvTableModel(String[] columnNames, boolean editable) {
+        this.columnNames = columnNames.clone();
+        this.editable = editable;
+    }
+
+    /**
+     * Replaces the contents of the model with a CSV file, whose first line
+     * holds the column names.
+     */
+    public void load(File file) throws IOException {
+        List<String[]> loaded = new ArrayList<>();
+        String[] header;
+        try (CsvReader reader = CsvReader.open(file)) {
+            header = reader.readRow();
+            String[] cells;
+            while ((cells = reader.readRow()) != null) {
+                loaded.add(cells);
+            }
+        }
+        setRows(header != null ? header : new String[0], loaded);
+    }
+
+    /**
+     * Replaces the columns and rows of the model. The model keeps the list
+     * and the rows in it.
+     */
+    public void setRows(String[] columnNames, List<String[]> rows) {
+        this.columnNames = columnNames.clone();
+        this.rows = rows instanceof ArrayList ? rows : new ArrayList<>(rows);
+        fireTableStructureChanged();
+    }
+
+    /**
+     * Replaces the rows of the model, keeping its columns.
+     */
+    public void setRows(List<String[]> rows) {
+        this.rows = rows instanceof ArrayList ? rows : new ArrayList<>(rows);
+        fireTableDataChanged();
+    }
+
+    /**
+     * Removes all rows, keeping the columns.
+     */
+    public void clear() {
+        setRows(new ArrayList<>());
+    }
+
+    /**
+     * Appends a row of cells.
+     */
+    public void addRow(String[] cells) {
+        rows.add(cells);
+        fireTableRowsInserted(rows.size() - 1, rows.size() - 1);
+    }
+
+    /**
+     * Appends rows of cells with a single event.
+     */
+    public void addRows(List<String[]> added) {
+        if (added.isEmpty()) {
+            return;
+        }
+        int firstRow = rows.size();
+        rows.addAll(added);
+        fireTableRowsInserted(firstRow, rows.size() - 1);
+    }
+
+    public void removeRow(int row) {
+        rows.remove(row);
+        fireTableRowsDeleted(row, row);
+    }
+
+    /**
+     * Removes rows, e.g. the selected rows of a table, moving the remaining
+     * rows once and firing a single event.
+     */
+    public void removeRows(int[] removed) {
+        int[] sorted = sortedRows(removed);
+        if (sorted.length == 0) {
+            return;
+        }
+        int kept = sorted[0];
+        int next = 0;
+        for (int row = sorted[0]; row < rows.size(); row++) {
+            if (next < sorted.length && sorted[next] == row) {
+                next++;
+            } else {
+                rows.set(kept++, rows.get(row));
+            }
+        }
+        rows.subList(kept, rows.size()).clear();
+        fireRowsDeleted(this, sorted);
+    }
+
+    /**
+     * Replaces rows, keyed by row index, with a single event spanning the
+     * first to the last replaced row.
+     */
+    public void replaceRows(Map<Integer, String[]> replaced) {
+        if (replaced.isEmpty()) {
+            return;
+        }
+        int firstRow = Integer.MAX_VALUE;
+        int lastRow = -1;
+        for (Map.Entry<Integer, String[]> entry : replaced.entrySet()) {
+            rows.set(entry.getKey(), entry.getValue());
+            firstRow = Math.min(firstRow, entry.getKey());
+            lastRow = Math.max(lastRow, entry.getKey());
+        }
+        fireTableRowsUpdated(firstRow, lastRow);
+    }
+
+    /**
+     * Returns the cells of a row. Changes to the array are not announced to
+     * listeners.
+     */
+    public String[] getRow(int row) {
+        return rows.get(row);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        String[] cells = rows.get(rowIndex);
+        return columnIndex < cells.length ? cells[columnIndex] : null;
+    }
+
+    @Override
+    public boolean isCellEditable(int rowIndex, int columnIndex) {
+        return editable;
+    }
+
+    @Override
+    public void setValueAt(Object value, int rowIndex, int columnIndex) {
+        String[] cells = rows.get(rowIndex);
+        if (columnIndex >= cells.length) {
+            cells = Arrays.copyOf(cells, columnNames.length);
+            rows.set(rowIndex, cells);
+        }
+        cells[columnIndex] = value != null ? value.toString() : null;
+        fireTableCellUpdated(rowIndex, columnIndex);
+    }
+
+    /**
+     * Returns rows, e.g. the selected rows of a table, in ascending order and
+     * without repeats.
+     */
+    static int[] sortedRows(int[] rows) {
+        int[] sorted = rows.clone();
+        Arrays.sort(sorted);
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (count == 0 || sorted[i] != sorted[count - 1]) {
+                sorted[count++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, count);
+    }
+
+    /**
+     * Announces the removal of sorted rows with a single event: a deletion
+     * of the rows if they are consecutive, otherwise a change of all rows,
+     * as a deletion event can only span one run of rows.
+     */
+    static void fireRowsDeleted(AbstractTableModel model, int[] sorted) {
+        int firstRow = sorted[0];
+        int lastRow = sorted[sorted.length - 1];
+        if (lastRow - firstRow + 1 == sorted.length) {
+            model.fireTableRowsDeleted(firstRow, lastRow);
+        } else {
+            model.fireTableDataChanged();
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package payrollmanagementsystem;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Buffered CSV writer that encodes fields straight into a large byte buffer
+ * and writes it through a {@link FileChannel}. Numbers and fixed-point values
+ * are formatted digit by digit, so writing a row does not allocate any strings.
+ *
+ * Output goes to a temporary file next to the target, which only replaces
+ * the target when {@link #commit()} is called. Closing the writer without
+ * committing discards the temporary file, so a failed run never leaves a
+ * half-written file behind. The target keeps its permissions; a new target
+ * gets the default permissions of a new file. A writer opened with
+ * {@link #appendTo} instead adds its rows to the end of the target in place.
+ */
+public final class CsvWriter implements Closeable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+
+    private final Path target;
+    private final Path temporary;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final byte[] digits = new byte[FixedPoint.MAX_LENGTH];
+
+    private boolean firstField = true;
+    private long bytesWritten;
+    private boolean committed;
+
+    public CsvWriter(File file) throws IOException {
+        this(file, DEFAULT_BUFFER_SIZE);
+    }
+
+    public CsvWriter(File file, int bufferSize) throws IOException {
+        this(file.getAbsoluteFile().toPath(), bufferSize, false);
+    }
+
+    private CsvWriter(Path target, int bufferSize, boolean append) throws IOException {
+        this.target = target;
+        if (append) {
+            temporary = null;
+            channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        } else {
+            temporary = createTemporaryFile(target);
+            channel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        buffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    /**
+     * Opens a writer that adds rows to the end of a file, creating the file if
+     * it does not exist, instead of replacing it. The rows are written on
+     * {@link #commit()}, which then costs the size of the rows, not of the
+     * file; closing without committing discards them, as long as they fit in
+     * the buffer. Meant for small additions such as a line of a log.
+     */
+    public static CsvWriter appendTo(File file) throws IOException {
+        return new CsvWriter(file.getAbsoluteFile().toPath(), DEFAULT_BUFFER_SIZE, true);
+    }
+
+    /**
+     * Creates an empty temporary file next to a target, to be moved over it.
+     * Unlike {@link Files#createTempFile}, which makes the file readable by
+     * its owner only, the file gets the permissions of the target if it
+     * exists, and the default permissions of a new file otherwise.
+     */
+    static Path createTemporaryFile(Path target) throws IOException {
+        Path directory = target.getParent();
+        String name = target.getFileName().toString();
+        Path temporary;
+        while (true) {
+            temporary = directory.resolve(name + Long.toUnsignedString(ThreadLocalRandom.current().nextLong())
+                    + ".tmp");
+            try {
+                Files.createFile(temporary);
+                break;
+            } catch (FileAlreadyExistsException e) {
+                // Name taken by another writer; try another
+            }
+        }
+        if (Files.exists(target) && directory.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            try {
+                Files.setPosixFilePermissions(temporary, Files.getPosixFilePermissions(target));
+            } catch (IOException e) {
+                Files.deleteIfExists(temporary);
+                throw e;
+            }
+        }
+        return temporary;
+    }
+
+    /**
+     * Writes a complete row of text fields.
+     */
+    public void writeRow(String... fields) throws IOException {
+        for (String field : fields) {
+            field(field);
+        }
+        endRow();
+    }
+
+    /**
+     * Writes a text field, enclosing it in double quotes if it contains a comma,
+     * a quote or a line break. A null field is written as an empty field.
+     */
+    public CsvWriter field(String value) throws IOException {
+        separator();
+        if (value == null) {
+            return this;
+        }
+        if (!needsQuotes(value)) {
+            text(value);
+            return this;
+        }
+        put((byte) '"');
+        for (int i = 0; i < value.length();) {
+            if (value.charAt(i) == '"') {
+                put((byte) '"');
+            }
+            i += character(value, i);
+        }
+        put((byte) '"');
+        return this;
+    }
+
+    /**
+     * Writes a text field given as the UTF-8 bytes between the position and
+     * limit of the buffer, e.g. a field copied from the bytes of an input file. The
+     * bytes must not contain a comma, a quote or a line break.
+     */
+    void plainField(ByteBuffer bytes) throws IOException {
+        separator();
+        while (bytes.hasRemaining()) {
+            ensure(1);
+            int limit = bytes.limit();
+            bytes.limit(bytes.position() + Math.min(buffer.remaining(), bytes.remaining()));
+            buffer.put(bytes);
+            bytes.limit(limit);
+        }
+    }
+
+    /**
+     * Writes an integer field.
+     */
+    public CsvWriter field(long value) throws IOException {
+        separator();
+        number(value);
+        return this;
+    }
+
+    /**
+     * Writes a fixed-point decimal field, e.g. hours or a rate. Whole numbers
+     * are written without a fraction, the way hours are entered in the payroll
+     * file.
+     */
+    public CsvWriter decimal(long value) throws IOException {
+        separator();
+        int start = FixedPoint.formatDecimal(value, digits);
+        put(digits, start, digits.length - start);
+        return this;
+    }
+
+    /**
+     * Writes an amount of money in cents with exactly two decimals, e.g. "2200.00".
+     */
+    public CsvWriter money(long cents) throws IOException {
+        separator();
+        int start = FixedPoint.formatMoney(cents, digits);
+        put(digits, start, digits.length - start);
+        return this;
+    }
+
+    /**
+     * Ends the current row.
+     */
+    public void endRow() throws IOException {
+        put((byte) '\n');
+        firstField = true;
+    }
+
+    /**
+     * Appends the contents of a file of complete rows, e.g. a part of the
+     * output written by another thread. The file is copied by the operating
+     * system without passing through the buffer.
+     */
+    public void append(File file) throws IOException {
+        flush();
+        try (FileChannel source = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = source.size();
+            for (long position = 0; position < size;) {
+                position += source.transferTo(position, size - position, channel);
+            }
+            bytesWritten += size;
+        }
+    }
+
+    /**
+     * Returns the file that is replaced on {@link #commit()}.
+     */
+    public File getFile() {
+        return target.toFile();
+    }
+
+    /**
+     * Flushes the buffer, forces the data to disk and atomically replaces the
+     * target file with the written file, or for a writer opened with
+     * {@link #appendTo}, adds the data to the end of the target.
+     */
+    public void commit() throws IOException {
+        flush();
+        channel.force(false);
+        channel.close();
+        committed = true;
+        if (temporary == null) {
+            return;
+        }
+        try {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Returns the number of bytes written so far, including buffered bytes.
+     */
+    public long getBytesWritten() {
+        return bytesWritten + buffer.position();
+    }
+
+    /**
+     * Closes the writer. If {@link #commit()} has not been called, the written
+     * data is discarded and the target file is left untouched.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!committed) {
+            channel.close();
+            if (temporary != null) {
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+
+    private void separator() throws IOException {
+        if (!firstField) {
+            put((byte) ',');
+        }
+        firstField = false;
+    }
+
+    private void number(long value) throws IOException {
+        if (value < 0) {
+            put((byte) '-');
+            if (value == Long.MIN_VALUE) {
+                text("9223372036854775808");
+                return;
+            }
+            value = -value;
+        }
+        int length = 0;
+        do {
+            digits[length++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        ensure(length);
+        while (length > 0) {
+            buffer.put(digits[--length]);
+        }
+    }
+
+    private void text(String value) throws IOException {
+        for (int i = 0; i < value.length();) {
+            i += character(value, i);
+        }
+    }
+
+    // Encodes the character at index i as UTF-8 and returns the number of chars
+    // it took: 2 for a surrogate pair, otherwise 1
+    private int character(String value, int i) throws IOException {
+        char c = value.charAt(i);
+        ensure(4);
+        if (c < 0x80) {
+            buffer.put((byte) c);
+        } else if (c < 0x800) {
+            buffer.put((byte) (0xC0 | (c >> 6)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                && Character.isLowSurrogate(value.charAt(i + 1))) {
+            int codePoint = Character.toCodePoint(c, value.charAt(i + 1));
+            buffer.put((byte) (0xF0 | (codePoint >> 18)));
+            buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+            buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+            buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            return 2;
+        } else if (Character.isSurrogate(c)) {
+            buffer.put((byte) '?'); // Unpaired, replaced as String.getBytes does
+        } else {
+            buffer.put((byte) (0xE0 | (c >> 12)));
+            buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        }
+        return 1;
+    }
+
+    private void put(byte b) throws IOException {
+        ensure(1);
+        buffer.put(b);
+    }
+
+    private void put(byte[] bytes, int offset, int length) throws IOException {
+        ensure(length);
+        buffer.put(bytes, offset, length);
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            bytesWritten += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
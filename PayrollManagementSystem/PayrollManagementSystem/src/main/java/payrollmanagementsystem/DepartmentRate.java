@@ -0,0 +1,37 @@
+package payrollmanagementsystem;
+
+/**
+ * A single row of the department rates file: the department code, its name and
+ * the hourly rates applied to employees of that department, in cents (see
+ * {@link FixedPoint}).
+ */
+public final class DepartmentRate {
+
+    private final int code;
+    private final String name;
+    private final long regularRate;
+    private final long overtimeRate;
+
+    public DepartmentRate(int code, String name, long regularRate, long overtimeRate) {
+        this.code = code;
+        this.name = name;
+        this.regularRate = regularRate;
+        this.overtimeRate = overtimeRate;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getRegularRate() {
+        return regularRate;
+    }
+
+    public long getOvertimeRate() {
+        return overtimeRate;
+    }
+}
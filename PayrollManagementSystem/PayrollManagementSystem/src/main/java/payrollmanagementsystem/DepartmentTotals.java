@@ -0,0 +1,233 @@
+package payrollmanagementsystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Totals of a payroll run per department: headcount, hours, overtime hours and
+ * regular, overtime and gross pay. They are added up while the processed rows
+ * are written, so no second pass over the rows is needed.
+ *
+ * The totals are held in primitive arrays, found through an open-addressing
+ * hash of the department code like {@link RateIndex}, so adding a row neither
+ * boxes nor allocates. Departments are read back in ascending code order.
+ */
+public final class DepartmentTotals {
+
+    public static final String[] HEADERS = { "Dept. Code", "Headcount", "Hours Worked", "Overtime Hours",
+            "Regular Pay", "Overtime Pay", "Gross Pay" };
+
+    private int[] keys = new int[16];
+    // Position + 1 of the department in the total arrays; 0 marks an empty slot
+    private int[] positions = new int[16];
+
+    private int[] codes = new int[8];
+    private int[] headcounts = new int[8];
+    // Hours in hundredths of an hour, pay in cents
+    private long[] hoursWorked = new long[8];
+    private long[] overtimeHours = new long[8];
+    private long[] regularPay = new long[8];
+    private long[] overtimePay = new long[8];
+    private int size;
+
+    // Positions in ascending code order, or null until the totals are read
+    private int[] order;
+
+    /**
+     * Returns the department summary file of a processed payroll file.
+     */
+    public static File fileFor(File processedFile) {
+        String path = processedFile.getPath();
+        if (path.toLowerCase().endsWith(".csv")) {
+            path = path.substring(0, path.length() - ".csv".length());
+        }
+        return new File(path + "_Departments.csv");
+    }
+
+    /**
+     * Adds the pay of one employee.
+     */
+    void add(int departmentCode, long hours, long regular, long overtime) {
+        int position = position(departmentCode);
+        headcounts[position]++;
+        hoursWorked[position] += hours;
+        overtimeHours[position] += Math.max(hours - PayrollEngine.OVERTIME_THRESHOLD, 0);
+        regularPay[position] += regular;
+        overtimePay[position] += overtime;
+    }
+
+    /**
+     * Adds the totals of another run, e.g. of one segment of a parallel run.
+     */
+    void add(DepartmentTotals other) {
+        for (int i = 0; i < other.size; i++) {
+            int position = position(other.codes[i]);
+            headcounts[position] += other.headcounts[i];
+            hoursWorked[position] += other.hoursWorked[i];
+            overtimeHours[position] += other.overtimeHours[i];
+            regularPay[position] += other.regularPay[i];
+            overtimePay[position] += other.overtimePay[i];
+        }
+    }
+
+    /**
+     * Returns the number of departments with at least one paid employee.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the code of the department at the given index, in ascending code
+     * order. The other getters take the same index.
+     */
+    public int getCode(int index) {
+        return codes[order()[index]];
+    }
+
+    public int getHeadcount(int index) {
+        return headcounts[order()[index]];
+    }
+
+    /**
+     * Returns the hours worked, in hundredths of an hour.
+     */
+    public long getHoursWorked(int index) {
+        return hoursWorked[order()[index]];
+    }
+
+    /**
+     * Returns the hours worked over the overtime threshold, in hundredths of an
+     * hour.
+     */
+    public long getOvertimeHours(int index) {
+        return overtimeHours[order()[index]];
+    }
+
+    /**
+     * Returns the regular pay, in cents.
+     */
+    public long getRegularPay(int index) {
+        return regularPay[order()[index]];
+    }
+
+    /**
+     * Returns the overtime pay, in cents.
+     */
+    public long getOvertimePay(int index) {
+        return overtimePay[order()[index]];
+    }
+
+    /**
+     * Returns the gross pay, in cents.
+     */
+    public long getGrossPay(int index) {
+        int position = order()[index];
+        return regularPay[position] + overtimePay[position];
+    }
+
+    /**
+     * Returns the cells of the department at the given index, formatted as in
+     * the summary file.
+     */
+    public String[] cells(int index) {
+        return new String[] { Integer.toString(getCode(index)), Integer.toString(getHeadcount(index)),
+                FixedPoint.toDecimalString(getHoursWorked(index)),
+                FixedPoint.toDecimalString(getOvertimeHours(index)),
+                FixedPoint.toMoneyString(getRegularPay(index)), FixedPoint.toMoneyString(getOvertimePay(index)),
+                FixedPoint.toMoneyString(getGrossPay(index)) };
+    }
+
+    /**
+     * Writes the totals to a CSV file, one line per department. The file is
+     * written through a temporary file, so a crash never leaves it half written.
+     */
+    public void write(File file) throws IOException {
+        try (CsvWriter writer = new CsvWriter(file)) {
+            writer.writeRow(HEADERS);
+            for (int i = 0; i < size; i++) {
+                writer.field(getCode(i))
+                        .field(getHeadcount(i))
+                        .decimal(getHoursWorked(i))
+                        .decimal(getOvertimeHours(i))
+                        .money(getRegularPay(i))
+                        .money(getOvertimePay(i))
+                        .money(getGrossPay(i))
+                        .endRow();
+            }
+            writer.commit();
+        }
+    }
+
+    private int[] order() {
+        if (order == null) {
+            // Sort the codes with their positions packed into the low bits
+            long[] sorted = new long[size];
+            for (int i = 0; i < size; i++) {
+                sorted[i] = ((long) codes[i] << 32) | i;
+            }
+            Arrays.sort(sorted);
+            order = new int[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = (int) sorted[i];
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Returns the position of a department in the total arrays, adding it if
+     * it has no totals yet.
+     */
+    private int position(int departmentCode) {
+        int slot = slot(departmentCode);
+        if (positions[slot] != 0) {
+            return positions[slot] - 1;
+        }
+        if (size == codes.length) {
+            int capacity = size * 2;
+            codes = Arrays.copyOf(codes, capacity);
+            headcounts = Arrays.copyOf(headcounts, capacity);
+            hoursWorked = Arrays.copyOf(hoursWorked, capacity);
+            overtimeHours = Arrays.copyOf(overtimeHours, capacity);
+            regularPay = Arrays.copyOf(regularPay, capacity);
+            overtimePay = Arrays.copyOf(overtimePay, capacity);
+        }
+        codes[size] = departmentCode;
+        keys[slot] = departmentCode;
+        positions[slot] = ++size;
+        order = null;
+        if (size * 2 > keys.length) {
+            rehash();
+        }
+        return size - 1;
+    }
+
+    private void rehash() {
+        keys = new int[keys.length * 2];
+        positions = new int[positions.length * 2];
+        for (int i = 0; i < size; i++) {
+            int slot = slot(codes[i]);
+            keys[slot] = codes[i];
+            positions[slot] = i + 1;
+        }
+    }
+
+    /**
+     * Returns the slot holding the code, or the empty slot where it would go.
+     */
+    private int slot(int departmentCode) {
+        int mask = keys.length - 1;
+        int slot = mix(departmentCode) & mask;
+        while (positions[slot] != 0 && keys[slot] != departmentCode) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,49 @@
+package payrollmanagementsystem;
+
+/**
+ * A single row of the employee payroll file. Hours worked are in hundredths
+ * of an hour (see {@link FixedPoint}).
+ */
+public final class Employee {
+
+    private final int id;
+    private final String firstName;
+    private final String lastName;
+    private final int departmentCode;
+    private final String position;
+    private final long hoursWorked;
+
+    public Employee(int id, String firstName, String lastName, int departmentCode, String position,
+            long hoursWorked) {
+        this.id = id;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.departmentCode = departmentCode;
+        this.position = position;
+        this.hoursWorked = hoursWorked;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public int getDepartmentCode() {
+        return departmentCode;
+    }
+
+    public String getPosition() {
+        return position;
+    }
+
+    public long getHoursWorked() {
+        return hoursWorked;
+    }
+}
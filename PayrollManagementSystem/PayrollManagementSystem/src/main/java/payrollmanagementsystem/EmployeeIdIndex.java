@@ -0,0 +1,203 @@
+package payrollmanagementsystem;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+
+/**
+ * Index of the rows of an {@link EmployeeTableModel} by employee ID, so an
+ * employee is found without scanning the table and IDs shared by several rows
+ * are found as soon as the file is loaded.
+ *
+ * The index listens to the model. Appended rows and edited IDs are indexed as
+ * they change; loads and deletions renumber the rows, so they have the index
+ * rebuilt on its next use, in one pass over the IDs. The rows of an ID are
+ * linked in ascending order. Rows whose ID is missing or not a number are not
+ * indexed.
+ *
+ * All methods must be called on the Event Dispatch Thread.
+ */
+public final class EmployeeIdIndex implements TableModelListener {
+
+    private final EmployeeTableModel model;
+
+    // First row of every ID
+    private IntRowIndex firstRows = new IntRowIndex(16);
+    // Next row with the same ID, or -1
+    private int[] nextRows = new int[16];
+    // ID each indexed row is filed under
+    private int[] rowIds = new int[16];
+    private final BitSet indexed = new BitSet();
+    private int rowCount;
+    // Rows whose ID is also used by an earlier row
+    private int duplicateRows;
+    private boolean stale = true;
+
+    public EmployeeIdIndex(EmployeeTableModel model) {
+        this.model = model;
+        model.addTableModelListener(this);
+    }
+
+    @Override
+    public void tableChanged(TableModelEvent e) {
+        if (stale) {
+            return;
+        }
+        boolean allRows = e.getFirstRow() == TableModelEvent.HEADER_ROW || e.getLastRow() == Integer.MAX_VALUE;
+        if (allRows || e.getType() == TableModelEvent.DELETE
+                || (e.getType() == TableModelEvent.INSERT && e.getFirstRow() != rowCount)) {
+            stale = true;
+        } else if (e.getType() == TableModelEvent.INSERT) {
+            EmployeeStore store = model.getStore();
+            for (int row = e.getFirstRow(); row <= e.getLastRow(); row++) {
+                grow(row + 1);
+                rowCount = row + 1;
+                add(store, row);
+            }
+        } else if (e.getColumn() == TableModelEvent.ALL_COLUMNS || e.getColumn() == EmployeeStore.ID) {
+            EmployeeStore store = model.getStore();
+            for (int row = e.getFirstRow(); row <= e.getLastRow(); row++) {
+                remove(row);
+                add(store, row);
+            }
+        }
+    }
+
+    /**
+     * Returns the first row with an ID, or -1 if no row has it.
+     */
+    public int find(int id) {
+        update();
+        return firstRows.get(id);
+    }
+
+    /**
+     * Returns all rows with an ID, in ascending order.
+     */
+    public int[] findAll(int id) {
+        update();
+        int count = 0;
+        for (int row = firstRows.get(id); row != -1; row = nextRows[row]) {
+            count++;
+        }
+        int[] rows = new int[count];
+        int i = 0;
+        for (int row = firstRows.get(id); row != -1; row = nextRows[row]) {
+            rows[i++] = row;
+        }
+        return rows;
+    }
+
+    /**
+     * Returns the number of rows whose ID is also used by an earlier row.
+     */
+    public int getDuplicateCount() {
+        update();
+        return duplicateRows;
+    }
+
+    /**
+     * Returns the IDs used by more than one row, in the order of their first
+     * row.
+     */
+    public int[] getDuplicateIds() {
+        update();
+        int[] ids = new int[0];
+        int count = 0;
+        if (duplicateRows == 0) {
+            return ids;
+        }
+        for (int row = indexed.nextSetBit(0); row >= 0; row = indexed.nextSetBit(row + 1)) {
+            if (nextRows[row] != -1 && firstRows.get(rowIds[row]) == row) {
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, Math.max(8, count * 2));
+                }
+                ids[count++] = rowIds[row];
+            }
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    /**
+     * Rebuilds the index if rows were loaded or deleted since it was built.
+     */
+    private void update() {
+        if (!stale) {
+            return;
+        }
+        EmployeeStore store = model.getStore();
+        rowCount = store.size();
+        firstRows = new IntRowIndex(rowCount);
+        nextRows = new int[Math.max(16, rowCount)];
+        rowIds = new int[nextRows.length];
+        indexed.clear();
+        duplicateRows = 0;
+        // From the last row to the first, so every row goes to the head of its list
+        for (int row = rowCount - 1; row >= 0; row--) {
+            add(store, row);
+        }
+        stale = false;
+    }
+
+    private void grow(int rows) {
+        if (rows > nextRows.length) {
+            int capacity = Math.max(rows, nextRows.length * 2);
+            nextRows = Arrays.copyOf(nextRows, capacity);
+            rowIds = Arrays.copyOf(rowIds, capacity);
+        }
+    }
+
+    /**
+     * Files a row under its ID, keeping the rows of the ID in ascending order.
+     */
+    private void add(EmployeeStore store, int row) {
+        if (!store.isParsed(row, EmployeeStore.ID)) {
+            return;
+        }
+        int id = store.getId(row);
+        rowIds[row] = id;
+        indexed.set(row);
+        int first = firstRows.get(id);
+        if (first == -1 || row < first) {
+            nextRows[row] = first;
+            firstRows.put(id, row);
+        } else {
+            int previous = first;
+            while (nextRows[previous] != -1 && nextRows[previous] < row) {
+                previous = nextRows[previous];
+            }
+            nextRows[row] = nextRows[previous];
+            nextRows[previous] = row;
+        }
+        if (first != -1) {
+            duplicateRows++;
+        }
+    }
+
+    /**
+     * Takes a row out of the list of the ID it is filed under.
+     */
+    private void remove(int row) {
+        if (!indexed.get(row)) {
+            return;
+        }
+        indexed.clear(row);
+        int id = rowIds[row];
+        int first = firstRows.get(id);
+        if (first == row) {
+            if (nextRows[row] == -1) {
+                firstRows.remove(id);
+                return;
+            }
+            firstRows.put(id, nextRows[row]);
+        } else {
+            int previous = first;
+            while (nextRows[previous] != row) {
+                previous = nextRows[previous];
+            }
+            nextRows[previous] = nextRows[row];
+        }
+        duplicateRows--;
+    }
+}
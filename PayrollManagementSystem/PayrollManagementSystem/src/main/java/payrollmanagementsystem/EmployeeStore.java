@@ -0,0 +1,510 @@
+package payrollmanagementsystem;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Column-oriented store of employee payroll rows. IDs, department codes and
+ * hours are held in primitive arrays and the text columns as dictionary codes,
+ * so a row costs a few dozen bytes instead of a Vector of Strings, and the
+ * payroll engine can loop over hours and department codes without parsing.
+ *
+ * Cells that are missing or cannot be parsed (e.g. while a user is editing a
+ * new row) are kept as text in a per-row overflow array, so the table still
+ * shows what was entered and validation can report it.
+ */
+public final class EmployeeStore {
+
+    public static final int ID = 0;
+    public static final int FIRST_NAME = 1;
+    public static final int LAST_NAME = 2;
+    public static final int DEPARTMENT_CODE = 3;
+    public static final int POSITION = 4;
+    public static final int HOURS_WORKED = 5;
+    public static final int COLUMN_COUNT = 6;
+
+    // Dictionary code of a missing text cell
+    private static final int MISSING = -1;
+
+    private final StringDictionary names;
+    private final StringDictionary positionNames;
+
+    private int size;
+    private int[] ids;
+    private int[] firstNames;
+    private int[] lastNames;
+    private int[] departmentCodes;
+    private int[] positions;
+    // Hundredths of an hour
+    private long[] hoursWorked;
+    // Text of cells that could not be parsed; null for rows without such cells
+    private String[][] unparsed;
+
+    public EmployeeStore() {
+        this(16);
+    }
+
+    public EmployeeStore(int capacity) {
+        names = new StringDictionary();
+        positionNames = new StringDictionary();
+        allocate(Math.max(capacity, 1));
+    }
+
+    private EmployeeStore(EmployeeStore other) {
+        names = other.names.copy();
+        positionNames = other.positionNames.copy();
+        size = other.size;
+        ids = Arrays.copyOf(other.ids, size);
+        firstNames = Arrays.copyOf(other.firstNames, size);
+        lastNames = Arrays.copyOf(other.lastNames, size);
+        departmentCodes = Arrays.copyOf(other.departmentCodes, size);
+        positions = Arrays.copyOf(other.positions, size);
+        hoursWorked = Arrays.copyOf(other.hoursWorked, size);
+        unparsed = new String[size][];
+        for (int row = 0; row < size; row++) {
+            if (other.unparsed[row] != null) {
+                unparsed[row] = other.unparsed[row].clone();
+            }
+        }
+    }
+
+    /**
+     * Returns an independent copy of the store, e.g. for a worker thread.
+     */
+    public EmployeeStore copy() {
+        return new EmployeeStore(this);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+        Arrays.fill(unparsed, null);
+    }
+
+    /**
+     * Appends a row given as text cells; missing trailing cells are left empty.
+     *
+     * @return The index of the new row.
+     */
+    public int addRow(String[] cells) {
+        ensureCapacity(size + 1);
+        int row = size++;
+        unparsed[row] = null;
+        for (int col = 0; col < COLUMN_COUNT; col++) {
+            setText(row, col, cells != null && col < cells.length ? cells[col] : null);
+        }
+        return row;
+    }
+
+    /**
+     * Appends a row parsed from a CSV file. Numeric cells are parsed straight
+     * from the bytes of the file, with the same result as
+     * {@link #addRow(String[])}.
+     *
+     * @return The index of the new row.
+     */
+    public int addRow(MappedCsvParser.Row cells) {
+        ensureCapacity(size + 1);
+        int row = size++;
+        unparsed[row] = null;
+        for (int col = 0; col < COLUMN_COUNT; col++) {
+            if (col >= cells.getFieldCount()) {
+                setText(row, col, null);
+                continue;
+            }
+            switch (col) {
+                case FIRST_NAME:
+                    firstNames[row] = encode(names, cells.getString(col));
+                    break;
+                case LAST_NAME:
+                    lastNames[row] = encode(names, cells.getString(col));
+                    break;
+                case POSITION:
+                    positions[row] = encode(positionNames, cells.getString(col));
+                    break;
+                default:
+                    try {
+                        if (col == HOURS_WORKED) {
+                            hoursWorked[row] = cells.getFixedPoint(col);
+                        } else if (col == ID) {
+                            ids[row] = cells.getInt(col);
+                        } else {
+                            departmentCodes[row] = cells.getInt(col);
+                        }
+                    } catch (NumberFormatException e) {
+                        markUnparsed(row, col, cells.getString(col));
+                    }
+                    break;
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Appends all rows of another store, e.g. one filled from another segment
+     * of the same file.
+     */
+    public void addAll(EmployeeStore other) {
+        ensureCapacity(size + other.size);
+        int[] nameCodes = recode(other.names, names);
+        int[] positionCodes = recode(other.positionNames, positionNames);
+        System.arraycopy(other.ids, 0, ids, size, other.size);
+        System.arraycopy(other.departmentCodes, 0, departmentCodes, size, other.size);
+        System.arraycopy(other.hoursWorked, 0, hoursWorked, size, other.size);
+        for (int row = 0; row < other.size; row++) {
+            firstNames[size + row] = recode(nameCodes, other.firstNames[row]);
+            lastNames[size + row] = recode(nameCodes, other.lastNames[row]);
+            positions[size + row] = recode(positionCodes, other.positions[row]);
+            unparsed[size + row] = other.unparsed[row] != null ? other.unparsed[row].clone() : null;
+        }
+        size += other.size;
+    }
+
+    // Returns the code in the target dictionary of each code of the source dictionary
+    private static int[] recode(StringDictionary source, StringDictionary target) {
+        int[] codes = new int[source.size()];
+        for (int code = 0; code < codes.length; code++) {
+            codes[code] = target.encode(source.decode(code));
+        }
+        return codes;
+    }
+
+    private static int recode(int[] codes, int code) {
+        return code != MISSING ? codes[code] : MISSING;
+    }
+
+    /**
+     * Appends a typed employee.
+     *
+     * @return The index of the new row.
+     */
+    public int add(Employee employee) {
+        ensureCapacity(size + 1);
+        int row = size++;
+        ids[row] = employee.getId();
+        firstNames[row] = encode(names, employee.getFirstName());
+        lastNames[row] = encode(names, employee.getLastName());
+        departmentCodes[row] = employee.getDepartmentCode();
+        positions[row] = encode(positionNames, employee.getPosition());
+        hoursWorked[row] = employee.getHoursWorked();
+        unparsed[row] = null;
+        return row;
+    }
+
+    /**
+     * Appends a copy of an existing row.
+     *
+     * @return The index of the new row.
+     */
+    public int duplicateRow(int row) {
+        ensureCapacity(size + 1);
+        int copy = size++;
+        ids[copy] = ids[row];
+        firstNames[copy] = firstNames[row];
+        lastNames[copy] = lastNames[row];
+        departmentCodes[copy] = departmentCodes[row];
+        positions[copy] = positions[row];
+        hoursWorked[copy] = hoursWorked[row];
+        unparsed[copy] = unparsed[row] != null ? unparsed[row].clone() : null;
+        return copy;
+    }
+
+    public void removeRow(int row) {
+        removeRows(row, row);
+    }
+
+    /**
+     * Removes the rows from firstRow to lastRow, inclusive, moving the rows
+     * after them only once.
+     */
+    public void removeRows(int firstRow, int lastRow) {
+        int count = lastRow - firstRow + 1;
+        moveRows(lastRow + 1, firstRow, size - lastRow - 1);
+        size -= count;
+        Arrays.fill(unparsed, size, size + count, null);
+    }
+
+    /**
+     * Removes rows given in ascending order without repeats, moving every
+     * remaining row at most once.
+     */
+    public void removeRows(int[] sortedRows) {
+        int kept = sortedRows[0];
+        for (int i = 0; i < sortedRows.length; i++) {
+            int from = sortedRows[i] + 1;
+            int to = i + 1 < sortedRows.length ? sortedRows[i + 1] : size;
+            moveRows(from, kept, to - from);
+            kept += to - from;
+        }
+        Arrays.fill(unparsed, kept, size, null);
+        size = kept;
+    }
+
+    private void moveRows(int from, int to, int count) {
+        System.arraycopy(ids, from, ids, to, count);
+        System.arraycopy(firstNames, from, firstNames, to, count);
+        System.arraycopy(lastNames, from, lastNames, to, count);
+        System.arraycopy(departmentCodes, from, departmentCodes, to, count);
+        System.arraycopy(positions, from, positions, to, count);
+        System.arraycopy(hoursWorked, from, hoursWorked, to, count);
+        System.arraycopy(unparsed, from, unparsed, to, count);
+    }
+
+    /**
+     * Sets a cell from text. Numeric cells that cannot be parsed keep the text
+     * so it can be shown and reported.
+     */
+    public void setText(int row, int col, String value) {
+        if (unparsed[row] != null) {
+            unparsed[row][col] = null;
+        }
+        switch (col) {
+            case FIRST_NAME:
+                firstNames[row] = encode(names, value);
+                break;
+            case LAST_NAME:
+                lastNames[row] = encode(names, value);
+                break;
+            case POSITION:
+                positions[row] = encode(positionNames, value);
+                break;
+            default:
+                try {
+                    String trimmed = value.trim();
+                    if (col == HOURS_WORKED) {
+                        hoursWorked[row] = FixedPoint.parse(trimmed);
+                    } else if (col == ID) {
+                        ids[row] = Integer.parseInt(trimmed);
+                    } else {
+                        departmentCodes[row] = Integer.parseInt(trimmed);
+                    }
+                } catch (NullPointerException | NumberFormatException e) {
+                    markUnparsed(row, col, value);
+                }
+                break;
+        }
+        if (unparsed[row] != null && isEmpty(unparsed[row])) {
+            unparsed[row] = null;
+        }
+    }
+
+    /**
+     * Returns the cells of a row as text, e.g. to report the row.
+     */
+    public String[] getCells(int row) {
+        String[] cells = new String[COLUMN_COUNT];
+        for (int col = 0; col < cells.length; col++) {
+            cells[col] = getText(row, col);
+        }
+        return cells;
+    }
+
+    /**
+     * Returns a cell as text. Missing text cells are null and missing numeric
+     * cells are empty.
+     */
+    public String getText(int row, int col) {
+        switch (col) {
+            case FIRST_NAME:
+                return decode(names, firstNames[row]);
+            case LAST_NAME:
+                return decode(names, lastNames[row]);
+            case POSITION:
+                return decode(positionNames, positions[row]);
+            default:
+                if (!isParsed(row, col)) {
+                    return unparsed[row][col];
+                }
+                if (col == HOURS_WORKED) {
+                    return formatHours(hoursWorked[row]);
+                }
+                return String.valueOf(col == ID ? ids[row] : departmentCodes[row]);
+        }
+    }
+
+    /**
+     * Returns whether a numeric cell holds a parsed value. Text cells are always
+     * considered parsed.
+     */
+    public boolean isParsed(int row, int col) {
+        return unparsed[row] == null || unparsed[row][col] == null;
+    }
+
+    /**
+     * Returns whether every cell of the row is present and parsed, i.e. whether
+     * the row can be paid.
+     */
+    public boolean isComplete(int row) {
+        return unparsed[row] == null && !isBlank(names, firstNames[row]) && !isBlank(names, lastNames[row])
+                && !isBlank(positionNames, positions[row]);
+    }
+
+    public int getId(int row) {
+        return ids[row];
+    }
+
+    public String getFirstName(int row) {
+        return decode(names, firstNames[row]);
+    }
+
+    public String getLastName(int row) {
+        return decode(names, lastNames[row]);
+    }
+
+    public int getDepartmentCode(int row) {
+        return departmentCodes[row];
+    }
+
+    public String getPosition(int row) {
+        return decode(positionNames, positions[row]);
+    }
+
+    public long getHoursWorked(int row) {
+        return hoursWorked[row];
+    }
+
+    /**
+     * Returns the row as a typed employee. Only meaningful for complete rows.
+     */
+    public Employee toEmployee(int row) {
+        return new Employee(ids[row], getFirstName(row), getLastName(row), departmentCodes[row], getPosition(row),
+                hoursWorked[row]);
+    }
+
+    /**
+     * Writes the columns of the store to a snapshot: both dictionaries, the
+     * typed columns and the text of cells that could not be parsed.
+     */
+    void writeSnapshot(PayrollSnapshot.Output out) throws IOException {
+        writeDictionary(out, names);
+        writeDictionary(out, positionNames);
+        out.putInts(ids, size);
+        out.putInts(firstNames, size);
+        out.putInts(lastNames, size);
+        out.putInts(departmentCodes, size);
+        out.putInts(positions, size);
+        out.putLongs(hoursWorked, size);
+
+        int unparsedCells = 0;
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; unparsed[row] != null && col < COLUMN_COUNT; col++) {
+                if (unparsed[row][col] != null) {
+                    unparsedCells++;
+                }
+            }
+        }
+        out.putInt(unparsedCells);
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; unparsed[row] != null && col < COLUMN_COUNT; col++) {
+                if (unparsed[row][col] != null) {
+                    out.putInt(row);
+                    out.putInt(col);
+                    out.putString(unparsed[row][col]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a store written by {@link #writeSnapshot}.
+     */
+    static EmployeeStore readSnapshot(PayrollSnapshot.Input in, int rows) throws IOException {
+        EmployeeStore store = new EmployeeStore(rows);
+        readDictionary(in, store.names);
+        readDictionary(in, store.positionNames);
+        in.getInts(store.ids, rows);
+        in.getInts(store.firstNames, rows);
+        in.getInts(store.lastNames, rows);
+        in.getInts(store.departmentCodes, rows);
+        in.getInts(store.positions, rows);
+        in.getLongs(store.hoursWorked, rows);
+        store.size = rows;
+
+        int unparsedCells = in.getInt();
+        for (int i = 0; i < unparsedCells; i++) {
+            int row = in.getInt();
+            int col = in.getInt();
+            store.markUnparsed(row, col, in.getString());
+        }
+        return store;
+    }
+
+    private static void writeDictionary(PayrollSnapshot.Output out, StringDictionary dictionary) throws IOException {
+        out.putInt(dictionary.size());
+        for (int code = 0; code < dictionary.size(); code++) {
+            out.putString(dictionary.decode(code));
+        }
+    }
+
+    private static void readDictionary(PayrollSnapshot.Input in, StringDictionary dictionary) throws IOException {
+        int size = in.getInt();
+        for (int code = 0; code < size; code++) {
+            dictionary.encode(in.getString());
+        }
+    }
+
+    private void markUnparsed(int row, int col, String value) {
+        if (unparsed[row] == null) {
+            unparsed[row] = new String[COLUMN_COUNT];
+        }
+        unparsed[row][col] = value != null ? value : "";
+    }
+
+    /**
+     * Formats hours the way they are entered in the payroll file, i.e. whole
+     * hours without a trailing ".0".
+     */
+    static String formatHours(long hours) {
+        return FixedPoint.toDecimalString(hours);
+    }
+
+    private static boolean isEmpty(String[] cells) {
+        for (String cell : cells) {
+            if (cell != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int encode(StringDictionary dictionary, String value) {
+        return value != null ? dictionary.encode(value) : MISSING;
+    }
+
+    private static String decode(StringDictionary dictionary, int code) {
+        return code != MISSING ? dictionary.decode(code) : null;
+    }
+
+    private static boolean isBlank(StringDictionary dictionary, int code) {
+        return code == MISSING || dictionary.decode(code).trim().isEmpty();
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > ids.length) {
+            grow(Math.max(capacity, ids.length * 2));
+        }
+    }
+
+    private void allocate(int capacity) {
+        ids = new int[capacity];
+        firstNames = new int[capacity];
+        lastNames = new int[capacity];
+        departmentCodes = new int[capacity];
+        positions = new int[capacity];
+        hoursWorked = new long[capacity];
+        unparsed = new String[capacity][];
+    }
+
+    private void grow(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        firstNames = Arrays.copyOf(firstNames, capacity);
+        lastNames = Arrays.copyOf(lastNames, capacity);
+        departmentCodes = Arrays.copyOf(departmentCodes, capacity);
+        positions = Arrays.copyOf(positions, capacity);
+        hoursWorked = Arrays.copyOf(hoursWorked, capacity);
+        unparsed = Arrays.copyOf(unparsed, capacity);
+    }
+}
@@ -0,0 +1,191 @@
+package payrollmanagementsystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Table model showing an {@link EmployeeStore}. The store is the single copy
+ * of the employee data: the table reads and edits it in place, and the
+ * payroll engine works on a copy of it.
+ *
+ * The numeric columns are sorted on the parsed values held by the store, see
+ * {@link TypedRowSorter}.
+ */
+public class EmployeeTableModel extends AbstractTableModel implements TypedRowSorter.TypedColumns {
+
+    private EmployeeStore store = new EmployeeStore();
+    private String[] columnNames = PayrollCsv.PAYROLL_HEADERS.clone();
+
+    /**
+     * Replaces the contents of the model with the rows of a payroll CSV file.
+     * Columns after Hours Worked are ignored. The file is cut into segments
+     * by a {@link MappedCsvParser}, which are parsed on all cores.
+     */
+    public void load(File file) throws IOException {
+        store.clear();
+        try (CsvReader reader = CsvReader.open(file)) {
+            String[] header = reader.readRow();
+            if (header != null && header.length >= EmployeeStore.COLUMN_COUNT) {
+                columnNames = Arrays.copyOf(header, EmployeeStore.COLUMN_COUNT);
+            }
+            if (!loadMapped(file)) {
+                String[] cells;
+                while ((cells = reader.readRow()) != null) {
+                    if (!PayrollCsv.isBlank(cells)) {
+                        store.addRow(cells);
+                    }
+                }
+            }
+        } finally {
+            fireTableStructureChanged();
+        }
+    }
+
+    /**
+     * Parses the segments of the file into separate stores, then appends them
+     * to the store in order.
+     *
+     * @return False if the file cannot be split into segments, in which case
+     *         the store is left empty.
+     */
+    private boolean loadMapped(File file) throws IOException {
+        MappedCsvParser parser = new MappedCsvParser(file, Runtime.getRuntime().availableProcessors());
+        List<EmployeeStore> parts = new ArrayList<>();
+        List<MappedCsvParser.RowHandler> handlers = new ArrayList<>();
+        for (int i = 0; i < parser.getSegmentCount(); i++) {
+            // A single segment is parsed straight into the store
+            EmployeeStore part = parser.getSegmentCount() > 1 ? new EmployeeStore() : store;
+            parts.add(part);
+            handlers.add(row -> {
+                if (!row.isBlank()) {
+                    part.addRow(row);
+                }
+            });
+        }
+        if (!parser.parse(handlers)) {
+            return false;
+        }
+        for (EmployeeStore part : parts) {
+            if (part != store) {
+                store.addAll(part);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Replaces the contents of the model with a store, e.g. one read from a
+     * {@link PayrollSnapshot}, using the standard column names.
+     */
+    public void load(EmployeeStore employees) {
+        store = employees;
+        columnNames = PayrollCsv.PAYROLL_HEADERS.clone();
+        fireTableStructureChanged();
+    }
+
+    /**
+     * Returns whether the columns have the standard names, i.e. whether the
+     * contents can be saved as a snapshot without losing the header.
+     */
+    public boolean hasStandardColumns() {
+        return Arrays.equals(columnNames, PayrollCsv.PAYROLL_HEADERS);
+    }
+
+    /**
+     * Returns the underlying store. Changes made directly to the store are not
+     * announced to listeners.
+     */
+    public EmployeeStore getStore() {
+        return store;
+    }
+
+    /**
+     * Appends a row of text cells.
+     */
+    public void addRow(String[] cells) {
+        int row = store.addRow(cells);
+        fireTableRowsInserted(row, row);
+    }
+
+    /**
+     * Appends a copy of an existing row.
+     */
+    public void duplicateRow(int row) {
+        int copy = store.duplicateRow(row);
+        fireTableRowsInserted(copy, copy);
+    }
+
+    public void removeRow(int row) {
+        store.removeRow(row);
+        fireTableRowsDeleted(row, row);
+    }
+
+    /**
+     * Removes rows, e.g. the selected rows of a table, moving the remaining
+     * rows once and firing a single event.
+     */
+    public void removeRows(int[] rows) {
+        int[] sorted = CsvTableModel.sortedRows(rows);
+        if (sorted.length == 0) {
+            return;
+        }
+        store.removeRows(sorted);
+        CsvTableModel.fireRowsDeleted(this, sorted);
+    }
+
+    @Override
+    public int getRowCount() {
+        return store.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return EmployeeStore.COLUMN_COUNT;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        return store.getText(rowIndex, columnIndex);
+    }
+
+    @Override
+    public boolean isCellEditable(int rowIndex, int columnIndex) {
+        return true;
+    }
+
+    @Override
+    public boolean isNumeric(int column) {
+        return column == EmployeeStore.ID || column == EmployeeStore.DEPARTMENT_CODE
+                || column == EmployeeStore.HOURS_WORKED;
+    }
+
+    @Override
+    public long getNumericValue(int row, int column) {
+        if (!store.isParsed(row, column)) {
+            return TypedRowSorter.MISSING;
+        }
+        switch (column) {
+            case EmployeeStore.ID:
+                return FixedPoint.of(store.getId(row));
+            case EmployeeStore.DEPARTMENT_CODE:
+                return FixedPoint.of(store.getDepartmentCode(row));
+            default:
+                return store.getHoursWorked(row);
+        }
+    }
+
+    @Override
+    public void setValueAt(Object value, int rowIndex, int columnIndex) {
+        store.setText(rowIndex, columnIndex, value != null ? value.toString() : null);
+        fireTableCellUpdated(rowIndex, columnIndex);
+    }
+}
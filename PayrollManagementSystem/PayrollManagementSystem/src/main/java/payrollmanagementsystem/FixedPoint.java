@@ -0,0 +1,196 @@
+package payrollmanagementsystem;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fixed-point arithmetic with two decimal places, used for all rates, hours
+ * and pay. A value is held in a {@code long} scaled by {@link #SCALE}: money
+ * in cents and hours in hundredths of an hour. Sums are exact; products are
+ * rounded half away from zero to the nearest hundredth, i.e. to the cent.
+ *
+ * Parsing and formatting work on characters and bytes directly, so neither
+ * allocates on the hot path.
+ */
+public final class FixedPoint {
+
+    public static final long SCALE = 100;
+
+    // Longest formatted value: sign, 17 integer digits, point and 2 decimals
+    public static final int MAX_LENGTH = 21;
+
+    // Smallest integer part that can be scaled without overflow
+    private static final long MIN_WHOLE = Long.MIN_VALUE / SCALE;
+
+    private FixedPoint() {
+    }
+
+    /**
+     * Converts a whole number, e.g. a number of hours, to fixed point.
+     */
+    public static long of(long whole) {
+        return Math.multiplyExact(whole, SCALE);
+    }
+
+    /**
+     * Parses a decimal number such as "110", "-3.5" or " 42.25 ". Digits after
+     * the second decimal are rounded half away from zero. Exponents are not
+     * accepted. Any CharSequence can be parsed, e.g. a field in the bytes of a file.
+     *
+     * @throws NumberFormatException If the text is not a decimal number or is
+     *                               out of range.
+     */
+    public static long parse(CharSequence text) {
+        int start = 0;
+        int end = text.length();
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        boolean negative = false;
+        int i = start;
+        if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+
+        // Accumulate as a negative number, which has the larger range
+        long value = 0;
+        int digits = 0;
+        for (; i < end && text.charAt(i) != '.'; i++) {
+            int digit = digit(text, i);
+            if (value < (MIN_WHOLE + digit) / 10) {
+                throw outOfRange(text);
+            }
+            value = value * 10 - digit;
+            digits++;
+        }
+        value *= SCALE;
+
+        if (i < end) {
+            i++; // Decimal point
+            long unit = SCALE / 10;
+            for (; i < end; i++) {
+                int digit = digit(text, i);
+                if (unit > 0) {
+                    value = subtract(value, digit * unit, text);
+                    unit /= 10;
+                } else if (unit == 0) {
+                    if (digit >= 5) {
+                        value = subtract(value, 1, text); // Round half away from zero
+                    }
+                    unit = -1; // Only the first dropped digit decides
+                }
+                digits++;
+            }
+        }
+
+        if (digits == 0) {
+            throw new NumberFormatException("Not a number: \"" + text + "\"");
+        }
+        if (!negative && value == Long.MIN_VALUE) {
+            throw outOfRange(text);
+        }
+        return negative ? value : -value;
+    }
+
+    private static long subtract(long value, long amount, CharSequence text) {
+        if (value < Long.MIN_VALUE + amount) {
+            throw outOfRange(text);
+        }
+        return value - amount;
+    }
+
+    private static NumberFormatException outOfRange(CharSequence text) {
+        return new NumberFormatException("Out of range: \"" + text + "\"");
+    }
+
+    private static int digit(CharSequence text, int i) {
+        char c = text.charAt(i);
+        if (c < '0' || c > '9') {
+            throw new NumberFormatException("Not a number: \"" + text + "\"");
+        }
+        return c - '0';
+    }
+
+    /**
+     * Multiplies two fixed-point values, e.g. hours by an hourly rate, rounding
+     * the product half away from zero.
+     *
+     * @throws ArithmeticException If the product overflows.
+     */
+    public static long multiply(long a, long b) {
+        long product = Math.multiplyExact(a, b);
+        long quotient = product / SCALE;
+        long remainder = product % SCALE;
+        if (remainder >= SCALE / 2) {
+            quotient++;
+        } else if (remainder <= -SCALE / 2) {
+            quotient--;
+        }
+        return quotient;
+    }
+
+    /**
+     * Formats an amount of money with exactly two decimals (e.g. "2200.00",
+     * "-0.05") into the end of the buffer.
+     *
+     * @param buffer At least {@link #MAX_LENGTH} bytes.
+     * @return The offset of the first byte written.
+     */
+    public static int formatMoney(long value, byte[] buffer) {
+        return format(value, false, buffer);
+    }
+
+    /**
+     * Formats a value without trailing zeros in the fraction, and without a
+     * fraction for whole numbers (e.g. "42", "42.5", "42.25"), which is how
+     * hours and rates are entered, into the end of the buffer.
+     *
+     * @param buffer At least {@link #MAX_LENGTH} bytes.
+     * @return The offset of the first byte written.
+     */
+    public static int formatDecimal(long value, byte[] buffer) {
+        return format(value, true, buffer);
+    }
+
+    public static String toMoneyString(long value) {
+        byte[] buffer = new byte[MAX_LENGTH];
+        int start = formatMoney(value, buffer);
+        return new String(buffer, start, buffer.length - start, StandardCharsets.US_ASCII);
+    }
+
+    public static String toDecimalString(long value) {
+        byte[] buffer = new byte[MAX_LENGTH];
+        int start = formatDecimal(value, buffer);
+        return new String(buffer, start, buffer.length - start, StandardCharsets.US_ASCII);
+    }
+
+    private static int format(long value, boolean trim, byte[] buffer) {
+        // Work on the negative value, so Long.MIN_VALUE needs no special case
+        long remaining = value < 0 ? value : -value;
+        int position = buffer.length;
+
+        int fraction = (int) -(remaining % SCALE);
+        remaining /= SCALE;
+        if (!trim || fraction != 0) {
+            if (!trim || fraction % 10 != 0) {
+                buffer[--position] = (byte) ('0' + fraction % 10);
+            }
+            buffer[--position] = (byte) ('0' + fraction / 10);
+            buffer[--position] = '.';
+        }
+
+        do {
+            buffer[--position] = (byte) ('0' - remaining % 10);
+            remaining /= 10;
+        } while (remaining != 0);
+
+        if (value < 0) {
+            buffer[--position] = '-';
+        }
+        return position;
+    }
+}
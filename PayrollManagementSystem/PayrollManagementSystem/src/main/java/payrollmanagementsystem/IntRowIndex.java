@@ -0,0 +1,123 @@
+package payrollmanagementsystem;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash index from an int key, e.g. an employee ID, to a row,
+ * usually the first row holding it. Keys and rows are held in primitive
+ * arrays, so adding, finding or removing a key neither boxes nor allocates.
+ */
+final class IntRowIndex {
+
+    private int[] keys;
+    // Row + 1 of the key; 0 marks an empty slot
+    private int[] rows;
+    private int size;
+
+    IntRowIndex(int expectedKeys) {
+        int capacity = Integer.highestOneBit(Math.max(8, expectedKeys) * 2 - 1) << 1;
+        keys = new int[capacity];
+        rows = new int[capacity];
+    }
+
+    /**
+     * Adds a key for a row, unless the key is already in the index.
+     *
+     * @return The row already holding the key, or -1 if the key was added.
+     */
+    int putIfAbsent(int key, int row) {
+        int slot = slot(key);
+        if (rows[slot] != 0) {
+            return rows[slot] - 1;
+        }
+        keys[slot] = key;
+        rows[slot] = row + 1;
+        if (++size * 2 > keys.length) {
+            rehash();
+        }
+        return -1;
+    }
+
+    /**
+     * Sets the row of a key, adding the key if it is not in the index yet.
+     */
+    void put(int key, int row) {
+        int slot = slot(key);
+        boolean added = rows[slot] == 0;
+        keys[slot] = key;
+        rows[slot] = row + 1;
+        if (added && ++size * 2 > keys.length) {
+            rehash();
+        }
+    }
+
+    /**
+     * Removes a key. The keys after it in its probe run are shifted back, so
+     * no tombstones are left behind.
+     */
+    void remove(int key) {
+        int hole = slot(key);
+        if (rows[hole] == 0) {
+            return;
+        }
+        int mask = keys.length - 1;
+        for (int slot = (hole + 1) & mask; rows[slot] != 0; slot = (slot + 1) & mask) {
+            // A key may fill the hole if the hole lies between its home slot and its slot
+            int home = mix(keys[slot]) & mask;
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                keys[hole] = keys[slot];
+                rows[hole] = rows[slot];
+                hole = slot;
+            }
+        }
+        rows[hole] = 0;
+        size--;
+    }
+
+    /**
+     * Returns the row of the key, or -1 if the key is not in the index.
+     */
+    int get(int key) {
+        return rows[slot(key)] - 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(rows, 0);
+        size = 0;
+    }
+
+    private void rehash() {
+        int[] oldKeys = keys;
+        int[] oldRows = rows;
+        keys = new int[oldKeys.length * 2];
+        rows = new int[oldRows.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldRows[i] != 0) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                rows[slot] = oldRows[i];
+            }
+        }
+    }
+
+    /**
+     * Returns the slot holding the key, or the empty slot where it would go.
+     */
+    private int slot(int key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (rows[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
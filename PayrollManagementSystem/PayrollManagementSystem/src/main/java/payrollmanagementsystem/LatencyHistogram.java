@@ -0,0 +1,138 @@
+package payrollmanagementsystem;
+
+import java.beans.ConstructorProperties;
+import java.util.Arrays;
+
+/**
+ * Histogram of durations with logarithmic buckets: every power of two is split
+ * into four buckets, so a percentile is off by at most a quarter of its value
+ * while the histogram stays small enough to keep one per phase for the whole
+ * life of the application. Thread-safe.
+ */
+public final class LatencyHistogram {
+
+    // Buckets per power of two, a power of two itself
+    private static final int SUB_BUCKETS = 4;
+    private static final int SUB_BUCKET_BITS = 2;
+
+    private final long[] counts = new long[64 * SUB_BUCKETS];
+    private long count;
+    private long totalNanos;
+    private long maxNanos;
+
+    /**
+     * Adds a duration. Negative durations count as zero.
+     */
+    public synchronized void record(long nanos) {
+        nanos = Math.max(nanos, 0);
+        counts[bucket(nanos)]++;
+        count++;
+        totalNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    public synchronized void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+    }
+
+    /**
+     * Returns the count, mean, percentiles and maximum of the durations.
+     */
+    public synchronized Summary summary() {
+        return new Summary(count, count == 0 ? 0 : toMillis(totalNanos) / count, toMillis(percentile(0.5)),
+                toMillis(percentile(0.9)), toMillis(percentile(0.99)), toMillis(maxNanos));
+    }
+
+    // Returns the upper bound of the bucket holding the given share of the durations
+    private long percentile(double share) {
+        long rank = (long) Math.ceil(share * count);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0) {
+                return Math.min(upperBound(i), maxNanos);
+            }
+        }
+        return 0;
+    }
+
+    private static int bucket(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return exponent * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS;
+        int sub = bucket % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    /**
+     * Statistics of a histogram, in milliseconds. Shown as a composite value
+     * by JMX clients.
+     */
+    public static final class Summary {
+
+        private final long count;
+        private final double meanMillis;
+        private final double p50Millis;
+        private final double p90Millis;
+        private final double p99Millis;
+        private final double maxMillis;
+
+        @ConstructorProperties({ "count", "meanMillis", "p50Millis", "p90Millis", "p99Millis", "maxMillis" })
+        public Summary(long count, double meanMillis, double p50Millis, double p90Millis, double p99Millis,
+                double maxMillis) {
+            this.count = count;
+            this.meanMillis = meanMillis;
+            this.p50Millis = p50Millis;
+            this.p90Millis = p90Millis;
+            this.p99Millis = p99Millis;
+            this.maxMillis = maxMillis;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMeanMillis() {
+            return meanMillis;
+        }
+
+        public double getP50Millis() {
+            return p50Millis;
+        }
+
+        public double getP90Millis() {
+            return p90Millis;
+        }
+
+        public double getP99Millis() {
+            return p99Millis;
+        }
+
+        public double getMaxMillis() {
+            return maxMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d, mean %.1f ms, p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, max %.1f ms", count,
+                    meanMillis, p50Millis, p90Millis, p99Millis, maxMillis);
+        }
+    }
+}
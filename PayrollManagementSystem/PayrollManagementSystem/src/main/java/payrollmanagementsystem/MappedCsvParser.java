@@ -0,0 +1,502 @@
+package payrollmanagementsystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * CSV parser for large files that scans the bytes of the file directly. The
+ * file is cut into line-aligned segments, which are parsed concurrently;
+ * numeric fields can be parsed straight from the bytes, and only the text
+ * fields a caller asks for become Strings.
+ *
+ * Each segment is read through a buffer rather than memory-mapped, so no
+ * mapping outlives the parse. A mapped file cannot be replaced, renamed or
+ * deleted on Windows until the mapping is garbage collected, and the files
+ * parsed here are then saved over or moved, e.g. by the inbox watcher.
+ *
+ * Fields are split exactly as {@link CsvReader} splits them. Segments are cut
+ * after a line feed, which is only wrong if the line feed is inside a quoted
+ * field; {@link #parse} detects that case, and the caller then reads the file
+ * with a {@link CsvReader} instead.
+ */
+public final class MappedCsvParser {
+
+    // Files are not split into segments smaller than this
+    static final long MIN_SEGMENT_SIZE = 1 << 20;
+    // Segment positions are held as ints
+    static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+    // Bytes of a segment read at once; grown for a row that does not fit
+    private static final int BUFFER_SIZE = 1 << 20;
+    // Results of scanning a row, besides the position after it
+    private static final int MISALIGNED = -1;
+    private static final int INCOMPLETE = -2;
+
+    /**
+     * Receives the rows of one segment, in file order, on a worker thread.
+     */
+    public interface RowHandler {
+
+        /**
+         * Handles a row. The row is only valid during the call.
+         */
+        void row(Row row) throws IOException;
+    }
+
+    private final File file;
+    private final int parallelism;
+    // Start of each segment, followed by the end of the file
+    private final long[] bounds;
+
+    /**
+     * Splits a file into about {@code parallelism} segments, fewer for small
+     * files and more for files that do not fit into that many mappings.
+     */
+    public MappedCsvParser(File file, int parallelism) throws IOException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        this.file = file;
+        this.parallelism = parallelism;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            bounds = split(channel, parallelism);
+        }
+    }
+
+    public int getSegmentCount() {
+        return bounds.length - 1;
+    }
+
+    /**
+     * Parses the file, skipping the header line, and hands the rows of segment
+     * {@code i} to {@code handlers.get(i)}. The segments are parsed on up to
+     * {@code parallelism} threads.
+     *
+     * @return False if a quoted field spans two segments, in which case the
+     *         handlers have seen wrong rows and the file must be read with a
+     *         {@link CsvReader}. Never false for a single segment.
+     */
+    public boolean parse(List<? extends RowHandler> handlers) throws IOException {
+        if (handlers.size() != getSegmentCount()) {
+            throw new IllegalArgumentException("Expected one handler per segment");
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (getSegmentCount() == 1) {
+                return parse(channel, 0, handlers.get(0));
+            }
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                List<ForkJoinTask<Boolean>> tasks = new ArrayList<>();
+                for (int segment = 0; segment < getSegmentCount(); segment++) {
+                    int index = segment;
+                    tasks.add(pool.submit(() -> parse(channel, index, handlers.get(index))));
+                }
+                boolean aligned = true;
+                for (ForkJoinTask<Boolean> task : tasks) {
+                    aligned &= task.get();
+                }
+                return aligned;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Parsing interrupted", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException("Parsing failed", e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Parses a segment a buffer at a time. The rows that end in the buffer are
+     * handed over; the row that runs past it is moved to the front of the
+     * buffer and scanned again once more of the segment has been read.
+     */
+    private boolean parse(FileChannel channel, int segment, RowHandler handler) throws IOException {
+        long end = bounds[segment + 1];
+        long bufferStart = bounds[segment];
+        boolean last = segment == getSegmentCount() - 1;
+        boolean header = segment == 0;
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(Math.min(BUFFER_SIZE, end - bufferStart), 1));
+        Row row = new Row(buffer);
+        while (true) {
+            while (buffer.hasRemaining() && bufferStart + buffer.position() < end) {
+                buffer.limit((int) Math.min(buffer.capacity(), end - bufferStart));
+                if (channel.read(buffer, bufferStart + buffer.position()) < 0) {
+                    throw new IOException(file + " was truncated while it was parsed");
+                }
+            }
+            buffer.flip();
+            boolean segmentEnd = bufferStart + buffer.limit() >= end;
+            int position = 0;
+            while (position < buffer.limit()) {
+                int next = row.scan(position, segmentEnd, last);
+                if (next == MISALIGNED) {
+                    return false;
+                } else if (next == INCOMPLETE) {
+                    break;
+                }
+                if (header) {
+                    header = false; // Skip the header line
+                } else {
+                    handler.row(row);
+                }
+                position = next;
+            }
+            if (segmentEnd) {
+                return true;
+            }
+            if (position == 0 && buffer.limit() == buffer.capacity()) {
+                // The row does not fit into the buffer
+                ByteBuffer larger = ByteBuffer.allocate((int) Math.min((long) buffer.capacity() * 2,
+                        end - bufferStart));
+                larger.put(buffer);
+                buffer = larger;
+                row = new Row(buffer);
+            } else {
+                buffer.position(position);
+                buffer.compact();
+                bufferStart += position;
+            }
+        }
+    }
+
+    /**
+     * Cuts the file after the first line feed at or after each even split
+     * point. Segments that would be empty are dropped.
+     */
+    private static long[] split(FileChannel channel, int parallelism) throws IOException {
+        long size = channel.size();
+        long count = Math.max(Math.min(parallelism, size / MIN_SEGMENT_SIZE),
+                (size + MAX_SEGMENT_SIZE - 1) / MAX_SEGMENT_SIZE);
+        count = Math.max(count, 1);
+
+        long[] bounds = new long[(int) count + 1];
+        int segments = 0;
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        for (long i = 1; i < count; i++) {
+            long bound = nextLine(channel, Math.max(size / count * i, bounds[segments]), buffer);
+            if (bound > bounds[segments] && bound < size) {
+                bounds[++segments] = bound;
+            }
+        }
+        bounds[++segments] = size;
+        for (int i = 1; i <= segments; i++) {
+            if (bounds[i] - bounds[i - 1] > MAX_SEGMENT_SIZE) {
+                throw new IOException("Lines are too long to split " + size + " bytes into segments");
+            }
+        }
+        long[] result = new long[segments + 1];
+        System.arraycopy(bounds, 0, result, 0, result.length);
+        return result;
+    }
+
+    // Returns the position after the first line feed at or after the position
+    private static long nextLine(FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * The fields of the row being parsed, as positions in the buffer holding
+     * it.
+     */
+    public static final class Row {
+
+        // Field contains bytes outside ASCII
+        private static final byte NON_ASCII = 1;
+        // Field contains quotes, so its bytes are not its text
+        private static final byte QUOTED = 2;
+
+        private final ByteBuffer buffer;
+        // Second view of the buffer for bulk copies
+        private final ByteBuffer view;
+        private final AsciiField field;
+        private int[] starts = new int[8];
+        private int[] ends = new int[8];
+        private byte[] flags = new byte[8];
+        private int count;
+        private byte[] bytes = new byte[256];
+
+        private Row(ByteBuffer buffer) {
+            this.buffer = buffer;
+            view = buffer.duplicate();
+            field = new AsciiField(buffer);
+        }
+
+        /**
+         * Scans the row starting at the position, following the rules of
+         * {@link CsvReader#readRow()}.
+         *
+         * @param segmentEnd Whether the buffer ends where the segment ends.
+         * @param last       Whether the segment is the last of the file.
+         * @return The position after the row; {@link #INCOMPLETE} if the row
+         *         may go on after the end of the buffer; or {@link #MISALIGNED}
+         *         if a quoted field reaches the end of a segment that is not
+         *         the last one.
+         */
+        private int scan(int position, boolean segmentEnd, boolean last) {
+            int limit = buffer.limit();
+            count = 0;
+            int start = position;
+            byte flag = 0;
+            boolean empty = true;
+            boolean inQuotes = false;
+            while (position < limit) {
+                byte b = buffer.get(position++);
+                if (inQuotes) {
+                    if (b != '"') {
+                        empty = false;
+                    } else if (position == limit && !segmentEnd) {
+                        return INCOMPLETE; // The quote may be escaped
+                    } else if (position < limit && buffer.get(position) == '"') {
+                        position++; // Escaped quote
+                        empty = false;
+                    } else {
+                        inQuotes = false;
+                    }
+                } else if (b == ',') {
+                    add(start, position - 1, flag);
+                    start = position;
+                    flag = 0;
+                    empty = true;
+                } else if (b == '"' && empty) {
+                    inQuotes = true;
+                    flag |= QUOTED;
+                } else if (b == '\n' || b == '\r') {
+                    if (b == '\r' && position == limit && !segmentEnd) {
+                        return INCOMPLETE; // A line feed may follow
+                    }
+                    add(start, position - 1, flag);
+                    if (b == '\r' && position < limit && buffer.get(position) == '\n') {
+                        position++;
+                    }
+                    return position;
+                } else {
+                    if (b == '"') {
+                        flag |= QUOTED;
+                    } else if (b < 0) {
+                        flag |= NON_ASCII;
+                    }
+                    empty = false;
+                }
+            }
+            if (!segmentEnd) {
+                return INCOMPLETE;
+            }
+            if (inQuotes && !last) {
+                return MISALIGNED;
+            }
+            add(start, position, flag);
+            return position;
+        }
+
+        private void add(int start, int end, byte flag) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+                flags = Arrays.copyOf(flags, count * 2);
+            }
+            starts[count] = start;
+            ends[count] = end;
+            flags[count] = flag;
+            count++;
+        }
+
+        public int getFieldCount() {
+            return count;
+        }
+
+        /**
+         * Returns whether the row is a blank line, which {@link PayrollCsv}
+         * skips.
+         */
+        public boolean isBlank() {
+            return count == 1 && isBlank(0);
+        }
+
+        /**
+         * Returns whether a field holds nothing but white space, like
+         * {@code text.trim().isEmpty()}.
+         */
+        public boolean isBlank(int index) {
+            if (flags[index] != 0) {
+                return getString(index).trim().isEmpty();
+            }
+            for (int i = starts[index]; i < ends[index]; i++) {
+                if (buffer.get(i) > ' ') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Returns the text of a field.
+         */
+        public String getString(int index) {
+            int start = starts[index];
+            int end = ends[index];
+            if (end - start > bytes.length) {
+                bytes = new byte[Math.max(end - start, bytes.length * 2)];
+            }
+            int length;
+            if ((flags[index] & QUOTED) == 0) {
+                view.limit(end).position(start);
+                view.get(bytes, 0, end - start);
+                length = end - start;
+            } else {
+                length = unquote(start, end);
+            }
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+
+        // Copies the text of a quoted field into the byte array
+        private int unquote(int start, int end) {
+            int length = 0;
+            boolean inQuotes = false;
+            for (int i = start; i < end; i++) {
+                byte b = buffer.get(i);
+                if (inQuotes) {
+                    if (b != '"') {
+                        bytes[length++] = b;
+                    } else if (i + 1 < end && buffer.get(i + 1) == '"') {
+                        bytes[length++] = '"';
+                        i++;
+                    } else {
+                        inQuotes = false;
+                    }
+                } else if (b == '"' && length == 0) {
+                    inQuotes = true;
+                } else {
+                    bytes[length++] = b;
+                }
+            }
+            return length;
+        }
+
+        /**
+         * Parses an integer field like {@code Integer.parseInt(text.trim())}.
+         *
+         * @throws NumberFormatException If the field is not an integer.
+         */
+        public int getInt(int index) {
+            if (flags[index] != 0) {
+                return Integer.parseInt(getString(index).trim());
+            }
+            int start = starts[index];
+            int end = ends[index];
+            while (start < end && buffer.get(start) <= ' ') {
+                start++;
+            }
+            while (end > start && buffer.get(end - 1) <= ' ') {
+                end--;
+            }
+            return Integer.parseInt(field.of(start, end), 0, end - start, 10);
+        }
+
+        /**
+         * Parses a fixed-point field like {@link FixedPoint#parse}.
+         *
+         * @throws NumberFormatException If the field is not a decimal number.
+         */
+        public long getFixedPoint(int index) {
+            if (flags[index] != 0) {
+                return FixedPoint.parse(getString(index));
+            }
+            return FixedPoint.parse(field.of(starts[index], ends[index]));
+        }
+
+        /**
+         * Writes a text field to a CSV writer. Plain fields are copied byte for
+         * byte, which gives the same output as writing their text.
+         */
+        public void writeField(CsvWriter writer, int index) throws IOException {
+            if (flags[index] != 0) {
+                writer.field(getString(index));
+                return;
+            }
+            view.limit(ends[index]).position(starts[index]);
+            writer.plainField(view);
+        }
+
+        /**
+         * Returns the text of all fields, e.g. to report the row.
+         */
+        public String[] toCells() {
+            String[] cells = new String[count];
+            for (int i = 0; i < count; i++) {
+                cells[i] = getString(i);
+            }
+            return cells;
+        }
+    }
+
+    /**
+     * An ASCII field of the buffer seen as characters, so numbers can be
+     * parsed without creating a String.
+     */
+    private static final class AsciiField implements CharSequence {
+
+        private final ByteBuffer buffer;
+        private int start;
+        private int length;
+
+        AsciiField(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        AsciiField of(int start, int end) {
+            this.start = start;
+            this.length = end - start;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) buffer.get(start + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            byte[] text = new byte[length];
+            for (int i = 0; i < length; i++) {
+                text[i] = buffer.get(start + i);
+            }
+            return new String(text, StandardCharsets.US_ASCII);
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package payrollmanagementsystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs payroll for many employee files at once, e.g. the files sent by every
+ * branch, against one set of department rates. The files are paid on a fixed
+ * pool of threads, one file per thread at a time, all sharing the same
+ * {@link PayrollEngine} and its rate index, which are never changed once
+ * built. Every file is streamed like a single run of {@link PayrollBatch}, so
+ * only the rows being paid are held in memory.
+ *
+ * Every employee file is written to "&lt;name&gt;_Processed.csv" in the
+ * output directory, with its department totals, rejected rows and run report
+ * next to it. The runs are summed up in {@link #SUMMARY_FILE}, one line per
+ * file and a total, with the department totals of all files in its departments
+ * file. A file that fails does not stop the others; its error is reported in
+ * the summary.
+ */
+public final class MultiFilePayrollRunner {
+
+    public static final String SUMMARY_FILE = "Batch_Summary.csv";
+
+    public static final String[] SUMMARY_HEADERS = { "Employee File", "Processed File", "Rows Processed",
+            "Rows Rejected", "Department Misses", "Total ms", "Rows/s", "Bytes Read", "Bytes Written", "Error" };
+
+    // Names of the files written next to processed files, never read as employee files
+    private static final String[] OUTPUT_SUFFIXES = { "_Processed.csv", "_Departments.csv", "_Report.csv",
+            "_Rejects.csv" };
+
+    private final PayrollEngine engine;
+    private final int threads;
+
+    public MultiFilePayrollRunner(PayrollEngine engine, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        this.engine = engine;
+        this.threads = threads;
+    }
+
+    /**
+     * Returns the employee files named by a directory, meaning all its CSV
+     * files, or by a glob on file names such as "branches/Employee_*.csv", in
+     * name order. Files written by payroll runs are left out.
+     */
+    public static List<File> listPayrollFiles(String directoryOrGlob) throws IOException {
+        File directory = directoryOf(directoryOrGlob);
+        String glob = new File(directoryOrGlob).isDirectory() ? "*.csv" : new File(directoryOrGlob).getName();
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        List<File> files = new ArrayList<>();
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory.toPath())) {
+            for (Path path : paths) {
+                if (Files.isRegularFile(path) && matcher.matches(path.getFileName())
+                        && !isOutputFile(path.getFileName().toString())) {
+                    files.add(path.toFile());
+                }
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * Returns the directory named by a directory or a glob on file names.
+     */
+    public static File directoryOf(String directoryOrGlob) {
+        File file = new File(directoryOrGlob);
+        return file.isDirectory() ? file : file.getAbsoluteFile().getParentFile();
+    }
+
+    /**
+     * Returns whether a file name is one written by payroll runs.
+     */
+    static boolean isOutputFile(String name) {
+        for (String suffix : OUTPUT_SUFFIXES) {
+            if (name.endsWith(suffix)) {
+                return true;
+            }
+        }
+        return name.equals(SUMMARY_FILE) || name.equals(PayrollBatch.DEFAULT_PROCESSED_FILE);
+    }
+
+    /**
+     * Returns the processed file an employee file is written to.
+     */
+    public static File processedFileFor(File payrollFile, File outputDirectory) {
+        String name = payrollFile.getName();
+        if (name.toLowerCase().endsWith(".csv")) {
+            name = name.substring(0, name.length() - ".csv".length());
+        }
+        return new File(outputDirectory, name + "_Processed.csv");
+    }
+
+    /**
+     * Pays every employee file into the output directory and writes the
+     * summary of the runs. Returns once every file is done.
+     */
+    public Result run(List<File> payrollFiles, File outputDirectory) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            throw new IOException("Cannot create " + outputDirectory);
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, payrollFiles.size())),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "payroll-batch-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        List<FileRun> runs = new ArrayList<>(payrollFiles.size());
+        try {
+            List<Future<FileRun>> futures = new ArrayList<>(payrollFiles.size());
+            for (File payrollFile : payrollFiles) {
+                File processedFile = processedFileFor(payrollFile, outputDirectory);
+                futures.add(pool.submit(() -> pay(payrollFile, processedFile)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    runs.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    // Only an Error gets past pay(); it still only fails its own file
+                    File payrollFile = payrollFiles.get(i);
+                    runs.add(new FileRun(payrollFile, processedFileFor(payrollFile, outputDirectory), null, e));
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        PayrollRunSummary total = new PayrollRunSummary();
+        for (FileRun run : runs) {
+            if (run.summary != null) {
+                total.add(run.summary);
+            }
+        }
+        // Allocation is spread over the pool threads, so it is not measured
+        total.finish(System.nanoTime() - start, -1);
+        Result result = new Result(runs, total, new File(outputDirectory, SUMMARY_FILE));
+        result.write();
+        return result;
+    }
+
+    /**
+     * Pays one employee file on a pool thread. Any exception is kept in the
+     * result, so the other files go on.
+     */
+    private FileRun pay(File payrollFile, File processedFile) {
+        long allocatedBefore = PayrollMetrics.allocatedBytes();
+        long start = System.nanoTime();
+        PayrollRunSummary summary = new PayrollRunSummary();
+        try {
+            PayrollBatch.pay(engine, payrollFile, processedFile, 1, summary, start, allocatedBefore);
+            PayrollRunReport.append(processedFile, "batch", summary);
+            return new FileRun(payrollFile, processedFile, summary, null);
+        } catch (IOException | RuntimeException e) {
+            return new FileRun(payrollFile, processedFile, null, e);
+        }
+    }
+
+    /**
+     * The run of one employee file.
+     */
+    public static final class FileRun {
+
+        private final File payrollFile;
+        private final File processedFile;
+        private final PayrollRunSummary summary;
+        private final Exception error;
+
+        FileRun(File payrollFile, File processedFile, PayrollRunSummary summary, Exception error) {
+            this.payrollFile = payrollFile;
+            this.processedFile = processedFile;
+            this.summary = summary;
+            this.error = error;
+        }
+
+        public File getPayrollFile() {
+            return payrollFile;
+        }
+
+        public File getProcessedFile() {
+            return processedFile;
+        }
+
+        /**
+         * Returns the summary of the run, or null if it failed.
+         */
+        public PayrollRunSummary getSummary() {
+            return summary;
+        }
+
+        /**
+         * Returns why the run failed, or null if it succeeded.
+         */
+        public Exception getError() {
+            return error;
+        }
+
+        /**
+         * Returns the message of the error, with its type unless it is an I/O
+         * error, whose message names the file; or null if the run succeeded.
+         */
+        public String getErrorMessage() {
+            if (error == null) {
+                return null;
+            }
+            Throwable cause = error instanceof ExecutionException ? error.getCause() : error;
+            return cause instanceof IOException && cause.getMessage() != null ? cause.getMessage() : cause.toString();
+        }
+    }
+
+    /**
+     * The runs of all employee files, in the order the files were given.
+     */
+    public static final class Result {
+
+        private final List<FileRun> runs;
+        private final PayrollRunSummary total;
+        private final File summaryFile;
+
+        Result(List<FileRun> runs, PayrollRunSummary total, File summaryFile) {
+            this.runs = Collections.unmodifiableList(runs);
+            this.total = total;
+            this.summaryFile = summaryFile;
+        }
+
+        public List<FileRun> getRuns() {
+            return runs;
+        }
+
+        /**
+         * Returns the counters, department totals and bytes of all files
+         * together. Phase times are summed over the files; the elapsed time is
+         * the wall-clock time of the whole batch.
+         */
+        public PayrollRunSummary getTotal() {
+            return total;
+        }
+
+        public File getSummaryFile() {
+            return summaryFile;
+        }
+
+        public int getFailedCount() {
+            int failed = 0;
+            for (FileRun run : runs) {
+                if (run.error != null) {
+                    failed++;
+                }
+            }
+            return failed;
+        }
+
+        /**
+         * Returns the rows paid per second of wall-clock time over the whole
+         * batch.
+         */
+        public double getRowsPerSecond() {
+            return rowsPerSecond(total);
+        }
+
+        /**
+         * Returns the bytes read per second of wall-clock time over the whole
+         * batch.
+         */
+        public double getBytesPerSecond() {
+            return total.getElapsedNanos() > 0 ? total.getBytesRead() * 1e9 / total.getElapsedNanos() : 0;
+        }
+
+        private static double rowsPerSecond(PayrollRunSummary summary) {
+            return summary.getElapsedNanos() > 0 ? summary.getRowsProcessed() * 1e9 / summary.getElapsedNanos() : 0;
+        }
+
+        /**
+         * Writes the summary file and the department totals of all files.
+         */
+        void write() throws IOException {
+            try (CsvWriter writer = new CsvWriter(summaryFile)) {
+                writer.writeRow(SUMMARY_HEADERS);
+                for (FileRun run : runs) {
+                    writer.field(run.payrollFile.getPath()).field(run.processedFile.getPath());
+                    if (run.summary != null) {
+                        writeCounters(writer, run.summary);
+                        writer.field("");
+                    } else {
+                        writer.field("").field("").field("").field("").field("").field("").field("")
+                                .field(run.getErrorMessage());
+                    }
+                    writer.endRow();
+                }
+                writer.field("Total").field(runs.size() + " files");
+                writeCounters(writer, total);
+                writer.field(getFailedCount() > 0 ? getFailedCount() + " files failed" : "");
+                writer.endRow();
+                writer.commit();
+            }
+            total.getDepartmentTotals().write(DepartmentTotals.fileFor(summaryFile));
+        }
+
+        private static void writeCounters(CsvWriter writer, PayrollRunSummary summary) throws IOException {
+            writer.field(summary.getRowsProcessed())
+                    .field(summary.getRowsRejected())
+                    .field(summary.getDepartmentMisses())
+                    .money(summary.getElapsedNanos() / 10_000)
+                    .field(Math.round(rowsPerSecond(summary)))
+                    .field(summary.getBytesRead())
+                    .field(summary.getBytesWritten());
+        }
+    }
+}
@@ -0,0 +1,488 @@
+package payrollmanagementsystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Table model over a CSV file that is too large to load. When the model is
+ * created the file is scanned once to find where every page of
+ * {@value #PAGE_SIZE} rows starts; only those offsets are kept. The file is
+ * read through a buffer rather than memory-mapped, so it can be replaced
+ * right away by {@link #save(File)}, which a mapped file cannot on Windows.
+ * The rows a table actually shows are read and parsed a page at a time and
+ * kept in a small LRU cache.
+ *
+ * Edits do not touch the file. Changed rows, added rows and deleted rows are
+ * kept in an overlay on top of the file and written back by {@link #save(File)},
+ * which streams the file through the overlay into the target.
+ */
+public class PagedCsvTableModel extends AbstractTableModel {
+
+    public static final int PAGE_SIZE = 1024;
+
+    // Number of parsed pages kept in memory
+    private static final int CACHED_PAGES = 64;
+
+    // Bytes read at once while indexing
+    private static final int READ_SIZE = 1 << 20;
+
+    private File file;
+    private String[] columnNames;
+    private int fileRows;
+    private long[] pageOffsets;
+
+    private final Map<Integer, String[][]> pageCache = new LinkedHashMap<Integer, String[][]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, String[][]> eldest) {
+            return size() > CACHED_PAGES;
+        }
+    };
+
+    // Overlay: edited file rows by file row index, rows added after the file
+    // rows, and deleted file rows in ascending order
+    private final Map<Integer, String[]> dirtyRows = new HashMap<>();
+    private final List<String[]> addedRows = new ArrayList<>();
+    private int[] deletedRows = new int[0];
+    private int deletedCount;
+
+    public PagedCsvTableModel(File file) throws IOException {
+        open(file);
+    }
+
+    /**
+     * Indexes the file and discards the overlay.
+     */
+    private void open(File file) throws IOException {
+        this.file = file;
+        pageCache.clear();
+        dirtyRows.clear();
+        addedRows.clear();
+        deletedCount = 0;
+
+        try (CsvReader reader = CsvReader.open(file)) {
+            String[] header = reader.readRow();
+            columnNames = header != null ? header : new String[0];
+        }
+        index();
+    }
+
+    /**
+     * Scans the file for record boundaries, honouring quoted fields the
+     * way {@link CsvReader} does, and records the offset of the first row of
+     * every page. Blank rows are not counted, using the rule of
+     * {@link PayrollCsv#isBlank(String[])} that {@link #readPage} skips them
+     * by: a single field of white space, quoted or not, e.g. an empty line or
+     * a line of "".
+     */
+    private void index() throws IOException {
+        long[] offsets = new long[16];
+        int rows = 0;
+        boolean header = true;
+        boolean inQuotes = false;
+        boolean closingQuote = false;
+        boolean emptyField = true;
+        boolean content = false;
+        long recordStart = 0;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate(READ_SIZE);
+            for (long base = 0; base < size; base += buffer.limit()) {
+                buffer.clear();
+                if (channel.read(buffer, base) < 0) {
+                    break;
+                }
+                buffer.flip();
+                int limit = buffer.limit();
+                for (int i = 0; i < limit; i++) {
+                    byte b = buffer.get(i);
+                    if (closingQuote) {
+                        closingQuote = false;
+                        if (b == '"') {
+                            inQuotes = true; // Escaped quote in a quoted field
+                            emptyField = false;
+                            content = true;
+                            continue;
+                        }
+                    }
+                    if (inQuotes) {
+                        if (b == '"') {
+                            inQuotes = false;
+                            closingQuote = true;
+                        } else {
+                            emptyField = false;
+                            content |= (b & 0xFF) > ' ';
+                        }
+                    } else if (b == ',') {
+                        emptyField = true;
+                        content = true;
+                    } else if (b == '"' && emptyField) {
+                        inQuotes = true;
+                    } else if (b == '\n' || (b == '\r' && !nextIsNewline(buffer, i, base, size, channel))) {
+                        if (header) {
+                            header = false;
+                        } else if (content) {
+                            if (rows % PAGE_SIZE == 0) {
+                                offsets = append(offsets, rows / PAGE_SIZE, recordStart);
+                            }
+                            rows++;
+                        }
+                        content = false;
+                        emptyField = true;
+                        recordStart = base + i + 1;
+                    } else if (b != '\r') {
+                        emptyField = false;
+                        content |= (b & 0xFF) > ' ';
+                    }
+                }
+            }
+            if (!header && content) {
+                if (rows % PAGE_SIZE == 0) {
+                    offsets = append(offsets, rows / PAGE_SIZE, recordStart);
+                }
+                rows++;
+            }
+        }
+
+        fileRows = rows;
+        pageOffsets = Arrays.copyOf(offsets, (rows + PAGE_SIZE - 1) / PAGE_SIZE);
+    }
+
+    private static boolean nextIsNewline(ByteBuffer buffer, int i, long base, long size, FileChannel channel)
+            throws IOException {
+        if (i + 1 < buffer.limit()) {
+            return buffer.get(i + 1) == '\n';
+        }
+        if (base + i + 1 >= size) {
+            return false;
+        }
+        ByteBuffer next = ByteBuffer.allocate(1);
+        channel.read(next, base + i + 1);
+        return next.get(0) == '\n';
+    }
+
+    private static long[] append(long[] offsets, int index, long value) {
+        if (index == offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[index] = value;
+        return offsets;
+    }
+
+    /**
+     * Returns the parsed rows of a page, reading it from the file if it is not
+     * cached.
+     */
+    private String[][] page(int page) {
+        String[][] rows = pageCache.get(page);
+        if (rows == null) {
+            try {
+                rows = readPage(page);
+            } catch (IOException e) {
+                throw new IllegalStateException("Error reading " + file, e);
+            }
+            pageCache.put(page, rows);
+        }
+        return rows;
+    }
+
+    private String[][] readPage(int page) throws IOException {
+        int count = Math.min(PAGE_SIZE, fileRows - page * PAGE_SIZE);
+        String[][] rows = new String[count][];
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long start = pageOffsets[page];
+            long end = page + 1 < pageOffsets.length ? pageOffsets[page + 1] : channel.size();
+            ByteBuffer bytes = ByteBuffer.allocate((int) (end - start));
+            while (bytes.hasRemaining() && channel.read(bytes, start + bytes.position()) > 0) {
+                // Read the whole page
+            }
+            String text = new String(bytes.array(), 0, bytes.position(), StandardCharsets.UTF_8);
+            CsvReader reader = new CsvReader(new StringReader(text), 8192);
+            int row = 0;
+            String[] cells;
+            while (row < count && (cells = reader.readRow()) != null) {
+                if (!PayrollCsv.isBlank(cells)) {
+                    rows[row++] = cells;
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Maps a table row to a row of the file, or to -1 - i for the i-th added row.
+     */
+    private int sourceRow(int row) {
+        int liveFileRows = fileRows - deletedCount;
+        if (row >= liveFileRows) {
+            return -1 - (row - liveFileRows);
+        }
+        // Skip over deleted rows at or before the candidate position
+        int fileRow = row;
+        while (true) {
+            int deletedBefore = countDeletedUpTo(fileRow);
+            int candidate = row + deletedBefore;
+            if (candidate == fileRow && !isDeleted(fileRow)) {
+                return fileRow;
+            }
+            fileRow = candidate > fileRow ? candidate : fileRow + 1;
+        }
+    }
+
+    // Number of deleted file rows <= fileRow
+    private int countDeletedUpTo(int fileRow) {
+        int index = Arrays.binarySearch(deletedRows, 0, deletedCount, fileRow);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    private boolean isDeleted(int fileRow) {
+        return Arrays.binarySearch(deletedRows, 0, deletedCount, fileRow) >= 0;
+    }
+
+    private String[] rowCells(int row) {
+        int source = sourceRow(row);
+        if (source < 0) {
+            return addedRows.get(-1 - source);
+        }
+        String[] dirty = dirtyRows.get(source);
+        return dirty != null ? dirty : page(source / PAGE_SIZE)[source % PAGE_SIZE];
+    }
+
+    @Override
+    public int getRowCount() {
+        return fileRows - deletedCount + addedRows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        String[] cells = rowCells(rowIndex);
+        return columnIndex < cells.length ? cells[columnIndex] : null;
+    }
+
+    @Override
+    public boolean isCellEditable(int rowIndex, int columnIndex) {
+        return true;
+    }
+
+    @Override
+    public void setValueAt(Object value, int rowIndex, int columnIndex) {
+        String[] cells = Arrays.copyOf(rowCells(rowIndex), Math.max(columnNames.length, columnIndex + 1));
+        cells[columnIndex] = value != null ? value.toString() : null;
+        int source = sourceRow(rowIndex);
+        if (source < 0) {
+            addedRows.set(-1 - source, cells);
+        } else {
+            dirtyRows.put(source, cells);
+        }
+        fireTableCellUpdated(rowIndex, columnIndex);
+    }
+
+    /**
+     * Appends a row of cells.
+     */
+    public void addRow(String[] cells) {
+        addedRows.add(Arrays.copyOf(cells, columnNames.length));
+        int row = getRowCount() - 1;
+        fireTableRowsInserted(row, row);
+    }
+
+    /**
+     * Appends a copy of an existing row.
+     */
+    public void duplicateRow(int row) {
+        addRow(rowCells(row));
+    }
+
+    public void removeRow(int row) {
+        remove(row);
+        fireTableRowsDeleted(row, row);
+    }
+
+    /**
+     * Removes rows, e.g. the selected rows of a table, merging them into the
+     * deleted rows in one pass and firing a single event.
+     */
+    public void removeRows(int[] rows) {
+        int[] sorted = CsvTableModel.sortedRows(rows);
+        if (sorted.length == 0) {
+            return;
+        }
+        // Table rows keep the order of their sources: file rows, then added rows
+        int[] fileSources = new int[sorted.length];
+        int fileCount = 0;
+        int[] addedSources = new int[sorted.length];
+        int addedCount = 0;
+        for (int row : sorted) {
+            int source = sourceRow(row);
+            if (source < 0) {
+                addedSources[addedCount++] = -1 - source;
+            } else {
+                fileSources[fileCount++] = source;
+                dirtyRows.remove(source);
+            }
+        }
+
+        int[] merged = new int[Math.max(16, deletedCount + fileCount)];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < deletedCount || j < fileCount) {
+            if (j == fileCount || (i < deletedCount && deletedRows[i] < fileSources[j])) {
+                merged[k++] = deletedRows[i++];
+            } else {
+                merged[k++] = fileSources[j++];
+            }
+        }
+        deletedRows = merged;
+        deletedCount = k;
+
+        if (addedCount > 0) {
+            int kept = addedSources[0];
+            int next = 0;
+            for (int index = addedSources[0]; index < addedRows.size(); index++) {
+                if (next < addedCount && addedSources[next] == index) {
+                    next++;
+                } else {
+                    addedRows.set(kept++, addedRows.get(index));
+                }
+            }
+            addedRows.subList(kept, addedRows.size()).clear();
+        }
+        CsvTableModel.fireRowsDeleted(this, sorted);
+    }
+
+    private void remove(int row) {
+        int source = sourceRow(row);
+        if (source < 0) {
+            addedRows.remove(-1 - source);
+        } else {
+            dirtyRows.remove(source);
+            int index = -Arrays.binarySearch(deletedRows, 0, deletedCount, source) - 1;
+            if (deletedCount == deletedRows.length) {
+                deletedRows = Arrays.copyOf(deletedRows, Math.max(16, deletedCount * 2));
+            }
+            System.arraycopy(deletedRows, index, deletedRows, index + 1, deletedCount - index);
+            deletedRows[index] = source;
+            deletedCount++;
+        }
+    }
+
+    /**
+     * Returns whether there are edits that have not been saved.
+     */
+    public boolean isModified() {
+        return !dirtyRows.isEmpty() || !addedRows.isEmpty() || deletedCount > 0;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Writes the file with the overlay applied to the target. If the target is
+     * the file being shown, the model re-indexes the new file afterwards.
+     */
+    public void save(File target) throws IOException {
+        try (CsvWriter writer = new CsvWriter(target)) {
+            writer.writeRow(columnNames);
+            snapshot().forEachRow(writer::writeRow);
+            writer.commit();
+        }
+        if (target.getAbsoluteFile().equals(file.getAbsoluteFile())) {
+            open(file);
+            fireTableDataChanged();
+        }
+    }
+
+    /**
+     * Returns a copy of the overlay that can stream all rows on another thread.
+     * Must be called on the Event Dispatch Thread.
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    /**
+     * Immutable view of the model's rows at the time it was taken.
+     */
+    public static final class Snapshot {
+
+        private final File file;
+        private final int rowCount;
+        private final Map<Integer, String[]> dirtyRows;
+        private final List<String[]> addedRows;
+        private final int[] deletedRows;
+
+        private Snapshot(PagedCsvTableModel model) {
+            file = model.file;
+            rowCount = model.getRowCount();
+            dirtyRows = new HashMap<>(model.dirtyRows);
+            addedRows = new ArrayList<>(model.addedRows);
+            deletedRows = Arrays.copyOf(model.deletedRows, model.deletedCount);
+        }
+
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * Streams every row in table order, reading the file sequentially.
+         */
+        public void forEachRow(RowConsumer consumer) throws IOException {
+            try (CsvReader reader = CsvReader.open(file)) {
+                reader.readRow(); // Skip the header line
+                int fileRow = 0;
+                int nextDeleted = 0;
+                String[] cells;
+                while ((cells = reader.readRow()) != null) {
+                    if (PayrollCsv.isBlank(cells)) {
+                        continue;
+                    }
+                    if (nextDeleted < deletedRows.length && deletedRows[nextDeleted] == fileRow) {
+                        nextDeleted++;
+                    } else {
+                        String[] dirty = dirtyRows.get(fileRow);
+                        consumer.accept(dirty != null ? dirty : cells);
+                    }
+                    fileRow++;
+                }
+            }
+            for (String[] cells : addedRows) {
+                consumer.accept(cells);
+            }
+        }
+    }
+
+    /**
+     * Receives the rows of a {@link Snapshot}.
+     */
+    public interface RowConsumer {
+        void accept(String[] cells) throws IOException;
+    }
+}
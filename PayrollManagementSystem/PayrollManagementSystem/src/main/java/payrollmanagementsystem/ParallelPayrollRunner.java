@@ -0,0 +1,399 @@
+package payrollmanagementsystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Runs payroll for an employee file on several cores. The file is cut
+ * into segments by a {@link MappedCsvParser}; each
+ * segment is parsed and paid by one task, which writes its rows to a part
+ * file, and the parts are appended to the output in order. Only the rows being
+ * parsed are held in memory, no matter how large the file is.
+ *
+ * Files that cannot be cut into segments, because a quoted field contains a
+ * line break at a cut, are read sequentially and cut into chunks of rows
+ * instead; each chunk is parsed and paid on a fork/join pool, with at most a
+ * few chunks per worker in flight.
+ *
+ * Rows are checked like the dashboard checks them, see {@link PayrollValidator}.
+ * A row's own problems are found by the task that pays it; whether its ID was
+ * taken by an earlier row is only known once the earlier segments or chunks
+ * are merged, so IDs are claimed in row order while merging. A segment holding
+ * an ID taken by an earlier segment, which is rare, has its part file filtered
+ * when it is appended. Rejected rows are written to the reject writer in row
+ * order.
+ */
+public final class ParallelPayrollRunner {
+
+    public static final int DEFAULT_CHUNK_SIZE = 8192;
+
+    private final PayrollEngine engine;
+    private final int parallelism;
+    private final int chunkSize;
+
+    public ParallelPayrollRunner(PayrollEngine engine, int parallelism) {
+        this(engine, parallelism, DEFAULT_CHUNK_SIZE);
+    }
+
+    public ParallelPayrollRunner(PayrollEngine engine, int parallelism, int chunkSize) {
+        if (parallelism < 1 || chunkSize < 1) {
+            throw new IllegalArgumentException("parallelism and chunk size must be positive");
+        }
+        this.engine = engine;
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Reads the employee file, computes the pay of every valid employee and
+     * writes the processed rows to the writer in input order. Rows with a
+     * problem are recorded in the validator and written to the reject writer.
+     */
+    public PayrollRunSummary run(File payrollFile, PayrollValidator validator, CsvWriter writer, CsvWriter rejects)
+            throws IOException {
+        MappedCsvParser parser = new MappedCsvParser(payrollFile, parallelism);
+        PayrollRunSummary summary = new PayrollRunSummary();
+        if (parser.getSegmentCount() == 1) {
+            // Nothing to merge, so check IDs and write straight to the output
+            Segment segment = new Segment(writer, null, validator);
+            parser.parse(Collections.singletonList(segment));
+            summary.add(segment.summary);
+            segment.writeRejects(validator, rejects, 0, summary);
+            return summary;
+        }
+
+        List<Segment> segments = new ArrayList<>();
+        try {
+            File directory = writer.getFile().getParentFile();
+            for (int i = 0; i < parser.getSegmentCount(); i++) {
+                File part = File.createTempFile("payroll", ".part", directory);
+                try {
+                    segments.add(new Segment(new CsvWriter(part), part, null));
+                } catch (IOException e) {
+                    part.delete();
+                    throw e;
+                }
+            }
+            if (!parser.parse(segments)) {
+                return runChunks(payrollFile, validator, writer, rejects);
+            }
+            int rowsBefore = 0;
+            for (Segment segment : segments) {
+                segment.writer.commit();
+                segment.merge(validator, writer, rejects, rowsBefore, summary);
+                rowsBefore += segment.rows;
+            }
+            return summary;
+        } finally {
+            for (Segment segment : segments) {
+                segment.delete();
+            }
+        }
+    }
+
+    /**
+     * Runs payroll by reading the file sequentially and paying chunks of rows
+     * concurrently.
+     */
+    private PayrollRunSummary runChunks(File payrollFile, PayrollValidator validator, CsvWriter writer,
+            CsvWriter rejects) throws IOException {
+        PayrollRunSummary summary = new PayrollRunSummary();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        ArrayDeque<ForkJoinTask<Chunk>> inFlight = new ArrayDeque<>();
+        int maxInFlight = parallelism * 2;
+
+        try (CsvReader reader = CsvReader.open(payrollFile)) {
+            reader.readRow(); // Skip the header line
+            int row = 0;
+            Chunk chunk = new Chunk(chunkSize, row);
+            String[] cells;
+            while ((cells = reader.readRow()) != null) {
+                if (PayrollCsv.isBlank(cells)) {
+                    continue;
+                }
+                chunk.add(cells);
+                row++;
+                if (chunk.size == chunkSize) {
+                    inFlight.add(pool.submit(chunk));
+                    chunk = new Chunk(chunkSize, row);
+                    if (inFlight.size() >= maxInFlight) {
+                        write(inFlight.poll(), validator, writer, rejects, summary);
+                    }
+                }
+            }
+            if (chunk.size > 0) {
+                inFlight.add(pool.submit(chunk));
+            }
+            while (!inFlight.isEmpty()) {
+                write(inFlight.poll(), validator, writer, rejects, summary);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return summary;
+    }
+
+    /**
+     * Writes the rows of a paid chunk in order, claiming the IDs of its valid
+     * rows.
+     */
+    private static void write(ForkJoinTask<Chunk> task, PayrollValidator validator, CsvWriter writer,
+            CsvWriter rejects, PayrollRunSummary summary) throws IOException {
+        Chunk chunk;
+        try {
+            chunk = task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Payroll run interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Payroll computation failed", e.getCause());
+        }
+        for (int i = 0; i < chunk.size; i++) {
+            int row = chunk.firstRow + i;
+            ValidationIssue issue = chunk.issues[i];
+            ProcessedEmployee processed = chunk.processed[i];
+            if (issue == null) {
+                issue = validator.checkId(row, processed.getEmployee().getId());
+            }
+            if (issue != null) {
+                validator.invalid(row, issue);
+                PayrollValidator.writeReject(rejects, chunk.rows[i], issue, summary);
+                continue;
+            }
+            Employee employee = processed.getEmployee();
+            PayrollCsv.writeProcessedRow(writer, processed);
+            summary.processed(employee.getDepartmentCode(), employee.getHoursWorked(), processed.getRegularPay(),
+                    processed.getOvertimePay());
+        }
+    }
+
+    /**
+     * A segment of an employee file, checked, parsed and paid by one
+     * task. Rows are numbered within the segment until the number of rows in
+     * the earlier segments is known.
+     */
+    private final class Segment implements MappedCsvParser.RowHandler {
+
+        private final CsvWriter writer;
+        // File the segment is written to, or null if it writes to the output
+        private final File part;
+        // Validator claiming IDs as the rows are paid, or null if IDs are
+        // claimed when the segment is merged
+        private final PayrollValidator validator;
+        // Paid rows only; rejected rows are counted when they are written
+        private final PayrollRunSummary summary = new PayrollRunSummary();
+        private int rows;
+        // Rejected rows, in order
+        private final List<ValidationIssue> issues = new ArrayList<>();
+        private final List<String[]> rejectedCells = new ArrayList<>();
+        // Row and ID of every paid row, in order, to claim the IDs on merge
+        private int[] paidRows = new int[1024];
+        private int[] paidIds = new int[1024];
+        private int paidCount;
+
+        Segment(CsvWriter writer, File part, PayrollValidator validator) {
+            this.writer = writer;
+            this.part = part;
+            this.validator = validator;
+        }
+
+        @Override
+        public void row(MappedCsvParser.Row row) throws IOException {
+            if (row.isBlank()) {
+                return;
+            }
+            int index = rows++;
+            int id = 0;
+            int departmentCode = 0;
+            long hoursWorked = 0;
+            int department = -1;
+            // Parse the numbers once for a row that is fine, which most are
+            if (row.getFieldCount() >= EmployeeStore.COLUMN_COUNT && !row.isBlank(EmployeeStore.FIRST_NAME)
+                    && !row.isBlank(EmployeeStore.LAST_NAME) && !row.isBlank(EmployeeStore.POSITION)) {
+                try {
+                    id = row.getInt(EmployeeStore.ID);
+                    departmentCode = row.getInt(EmployeeStore.DEPARTMENT_CODE);
+                    hoursWorked = row.getFixedPoint(EmployeeStore.HOURS_WORKED);
+                    if (PayrollValidator.inRange(hoursWorked, PayrollEngine.MAX_HOURS)) {
+                        department = engine.departmentIndex(departmentCode);
+                    }
+                } catch (NumberFormatException e) {
+                    // Reported below
+                }
+            }
+            ValidationIssue issue;
+            if (department == -1) {
+                issue = PayrollValidator.checkEmployee(row, index, engine.getRateIndex());
+            } else if (validator != null) {
+                issue = validator.checkId(index, id);
+            } else {
+                issue = null;
+                paid(index, id);
+            }
+            if (issue != null) {
+                issues.add(issue);
+                rejectedCells.add(row.toCells());
+                if (validator != null) {
+                    validator.invalid(index, issue);
+                }
+                return;
+            }
+
+            long regularPay = engine.regularPay(department, hoursWorked);
+            long overtimePay = engine.overtimePay(department, hoursWorked);
+            PayrollCsv.writeProcessedRow(writer, row, id, departmentCode, hoursWorked, regularPay, overtimePay);
+            summary.processed(departmentCode, hoursWorked, regularPay, overtimePay);
+        }
+
+        private void paid(int index, int id) {
+            if (paidCount == paidRows.length) {
+                paidRows = Arrays.copyOf(paidRows, paidCount * 2);
+                paidIds = Arrays.copyOf(paidIds, paidCount * 2);
+            }
+            paidRows[paidCount] = index;
+            paidIds[paidCount] = id;
+            paidCount++;
+        }
+
+        /**
+         * Writes the rejected rows of a segment that claimed its own IDs.
+         */
+        void writeRejects(PayrollValidator validator, CsvWriter rejects, int rowsBefore, PayrollRunSummary total)
+                throws IOException {
+            for (int i = 0; i < issues.size(); i++) {
+                PayrollValidator.writeReject(rejects, rejectedCells.get(i), issues.get(i).shift(rowsBefore), total);
+            }
+        }
+
+        /**
+         * Claims the IDs of the paid rows, appends the part file to the output,
+         * leaving out rows whose ID an earlier segment took, and writes the
+         * rejected rows.
+         *
+         * @param rowsBefore Number of rows in the file before the segment.
+         */
+        void merge(PayrollValidator validator, CsvWriter output, CsvWriter rejects, int rowsBefore,
+                PayrollRunSummary total) throws IOException {
+            // Problems of the segment's rows, and the paid rows found to be
+            // duplicates, each in row order
+            List<ValidationIssue> duplicates = new ArrayList<>();
+            BitSet duplicated = new BitSet();
+            for (int i = 0; i < paidCount; i++) {
+                int row = rowsBefore + paidRows[i];
+                ValidationIssue issue = validator.checkId(row, paidIds[i]);
+                if (issue != null) {
+                    duplicates.add(issue);
+                    duplicated.set(i);
+                }
+            }
+
+            List<String[]> duplicateCells = new ArrayList<>(duplicates.size());
+            if (duplicates.isEmpty()) {
+                output.append(part);
+                total.add(summary);
+            } else {
+                total.add(filterPart(output, duplicated, duplicateCells));
+            }
+
+            // Write both kinds of rejected rows in row order
+            int i = 0;
+            int j = 0;
+            while (i < issues.size() || j < duplicates.size()) {
+                ValidationIssue issue;
+                String[] cells;
+                if (j == duplicates.size()
+                        || (i < issues.size() && issues.get(i).getRow() + rowsBefore < duplicates.get(j).getRow())) {
+                    issue = issues.get(i).shift(rowsBefore);
+                    cells = rejectedCells.get(i++);
+                } else {
+                    issue = duplicates.get(j);
+                    cells = duplicateCells.get(j++);
+                }
+                validator.invalid(issue.getRow() - 1, issue);
+                PayrollValidator.writeReject(rejects, cells, issue, total);
+            }
+        }
+
+        /**
+         * Copies the part file to the output without the duplicated rows, and
+         * returns the counters of the rows copied. The cells of the duplicated
+         * rows are taken from the part file, as the input is no longer read;
+         * only their numbers may be formatted differently from the input.
+         */
+        private PayrollRunSummary filterPart(CsvWriter output, BitSet duplicated, List<String[]> duplicateCells)
+                throws IOException {
+            PayrollRunSummary kept = new PayrollRunSummary();
+            try (CsvReader reader = CsvReader.open(part)) {
+                String[] cells;
+                for (int i = 0; (cells = reader.readRow()) != null; i++) {
+                    if (duplicated.get(i)) {
+                        duplicateCells.add(Arrays.copyOf(cells, EmployeeStore.COLUMN_COUNT));
+                        continue;
+                    }
+                    output.writeRow(cells);
+                    kept.processed(Integer.parseInt(cells[EmployeeStore.DEPARTMENT_CODE]),
+                            FixedPoint.parse(cells[EmployeeStore.HOURS_WORKED]),
+                            FixedPoint.parse(cells[EmployeeStore.COLUMN_COUNT]),
+                            FixedPoint.parse(cells[EmployeeStore.COLUMN_COUNT + 1]));
+                }
+            }
+            return kept;
+        }
+
+        /**
+         * Discards the part file.
+         */
+        void delete() throws IOException {
+            writer.close();
+            Files.deleteIfExists(part.toPath());
+        }
+    }
+
+    /**
+     * A run of consecutive rows, checked, parsed and paid by one task. IDs are
+     * claimed when the chunk is written.
+     */
+    private final class Chunk implements Callable<Chunk> {
+
+        private final int firstRow;
+        private final String[][] rows;
+        private int size;
+
+        // For each row, its problem, or its pay if it has none
+        private final ValidationIssue[] issues;
+        private final ProcessedEmployee[] processed;
+
+        Chunk(int capacity, int firstRow) {
+            this.firstRow = firstRow;
+            rows = new String[capacity][];
+            issues = new ValidationIssue[capacity];
+            processed = new ProcessedEmployee[capacity];
+        }
+
+        void add(String[] cells) {
+            rows[size++] = cells;
+        }
+
+        @Override
+        public Chunk call() {
+            for (int i = 0; i < size; i++) {
+                issues[i] = PayrollValidator.checkEmployee(rows[i], firstRow + i, engine.getRateIndex());
+                if (issues[i] == null) {
+                    processed[i] = engine.calculate(PayrollCsv.parseEmployee(rows[i]));
+                }
+            }
+            return this;
+        }
+    }
+}
@@ -0,0 +1,409 @@
+package payrollmanagementsystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command-line entry point that runs payroll without the dashboard.
+ *
+ * Usage: PayrollBatch [--parallel[=N]] [--period[=YYYY-MM-DD]] [rates.csv] [employees.csv] [processed.csv]
+ * or: PayrollBatch --files=DIRECTORY|GLOB [--parallel[=N]] [rates.csv] [output-directory]
+ * or: PayrollBatch --watch=INBOX [--parallel[=N]] [rates.csv] [output-directory]
+ * Missing arguments fall back to the default file names used by the dashboard.
+ * N must be a positive number; the command exits with status 2 otherwise.
+ * The employees are paid by the {@link ParallelPayrollRunner}, on N cores with
+ * --parallel (all cores if N is omitted) and on one core otherwise.
+ * With --files every employee file of a directory, or matching a glob such as
+ * "branches/Employee_*.csv", is paid by the {@link MultiFilePayrollRunner},
+ * N files at a time (as many as there are cores if N is omitted), into the
+ * output directory, "Processed" in the directory of the files by default.
+ * With --watch the {@link PayrollInboxWatcher} pays every employee file dropped
+ * into the inbox directory, N files at a time (one if N is omitted), into the
+ * output directory, "Processed" in the inbox by default, until the process is
+ * stopped.
+ * With --period the run is recorded as a pay period of the {@link PayrollHistory}
+ * of the processed file, paid on the given date (today if omitted), and the
+ * year-to-date totals of every department are printed.
+ *
+ * Every run checks the rates and employees with a {@link PayrollValidator},
+ * like the dashboard does, so both pay the same rows: rejected employee rows
+ * are written to the reject file of the processed file, see
+ * {@link PayrollValidator#rejectFileFor}, and rejected rates rows are reported
+ * on standard error.
+ *
+ * Files with a current {@link PayrollSnapshot} are read from the snapshot
+ * instead of being parsed, and edits saved to a {@link RecordLog} by the
+ * dashboard are applied on top.
+ *
+ * The totals of every department are written next to the processed file (see
+ * {@link DepartmentTotals#fileFor}). Runs are recorded in {@link PayrollMetrics};
+ * the command line also adds each run to the {@link PayrollRunReport} of the
+ * processed file.
+ */
+public final class PayrollBatch {
+
+    static final String DEFAULT_RATES_FILE = "Department_Rates_File.csv";
+    static final String DEFAULT_PAYROLL_FILE = "Employee_Payroll_File.csv";
+    static final String DEFAULT_PROCESSED_FILE = "Processed_Payroll_File.csv";
+
+    private PayrollBatch() {
+    }
+
+    /**
+     * Reads the rates file, then streams the employee file through the engine
+     * into the processed payroll file. Only the rates are held in memory.
+     */
+    public static PayrollRunSummary run(File ratesFile, File payrollFile, File processedFile) throws IOException {
+        return run(ratesFile, payrollFile, processedFile, 1);
+    }
+
+    /**
+     * Runs payroll like {@link #run(File, File, File)}, using the given number
+     * of worker threads when it is greater than one. An employee snapshot is
+     * always paid on one thread, as there is no parsing left to spread.
+     */
+    public static PayrollRunSummary run(File ratesFile, File payrollFile, File processedFile, int parallelism)
+            throws IOException {
+        long allocatedBefore = PayrollMetrics.allocatedBytes();
+        long start = System.nanoTime();
+        PayrollRunSummary summary = new PayrollRunSummary();
+        PayrollEngine engine = new PayrollEngine(readRates(ratesFile, summary));
+        pay(engine, payrollFile, processedFile, parallelism, summary, start, allocatedBefore);
+        return summary;
+    }
+
+    /**
+     * Pays the employees of one file with an engine that may be shared with
+     * other runs, and completes the summary of the run.
+     *
+     * @param start           When the run started, see {@link System#nanoTime}.
+     * @param allocatedBefore The bytes allocated by the current thread when the
+     *                        run started.
+     */
+    static void pay(PayrollEngine engine, File payrollFile, File processedFile, int parallelism,
+            PayrollRunSummary summary, long start, long allocatedBefore) throws IOException {
+        EmployeeStore employees = readEmployees(payrollFile, summary);
+        long validateStart = System.nanoTime();
+        summary.time(PayrollRunSummary.Phase.LOAD, validateStart - start);
+        PayrollValidator validator = new PayrollValidator();
+        if (employees != null) {
+            validator.validateEmployees(employees, engine.getRateIndex());
+        }
+        long computeStart = System.nanoTime();
+        summary.time(PayrollRunSummary.Phase.VALIDATE, computeStart - validateStart);
+
+        File rejectFile = PayrollValidator.rejectFileFor(processedFile);
+        try (CsvWriter writer = new CsvWriter(processedFile); CsvWriter rejects = new CsvWriter(rejectFile)) {
+            PayrollCsv.writeProcessedHeader(writer);
+            rejects.writeRow(PayrollValidator.REJECT_HEADERS);
+            if (employees != null) {
+                summary.add(runStore(engine, employees, validator, writer, rejects));
+            } else {
+                summary.add(new ParallelPayrollRunner(engine, parallelism).run(payrollFile, validator, writer,
+                        rejects));
+                summary.read(payrollFile.length());
+            }
+            long writeStart = System.nanoTime();
+            summary.time(PayrollRunSummary.Phase.COMPUTE, writeStart - computeStart);
+            summary.written(writer.getBytesWritten());
+            writer.commit();
+            if (validator.getRejectedRows() > 0) {
+                rejects.commit();
+            } else {
+                Files.deleteIfExists(rejectFile.toPath()); // Left by an earlier run
+            }
+            summary.getDepartmentTotals().write(DepartmentTotals.fileFor(processedFile));
+            summary.time(PayrollRunSummary.Phase.WRITE, System.nanoTime() - writeStart);
+        }
+        long allocated = PayrollMetrics.allocatedBytes();
+        summary.finish(System.nanoTime() - start,
+                allocated >= 0 && allocatedBefore >= 0 ? allocated - allocatedBefore : -1);
+        PayrollMetrics.get().recordRun(summary);
+    }
+
+    /**
+     * Reads the rates file once, then pays every employee file into the output
+     * directory on a pool of threads sharing the rates, see
+     * {@link MultiFilePayrollRunner}.
+     */
+    public static MultiFilePayrollRunner.Result runAll(File ratesFile, List<File> payrollFiles,
+            File outputDirectory, int threads) throws IOException, InterruptedException {
+        PayrollEngine engine = new PayrollEngine(readRates(ratesFile, new PayrollRunSummary()));
+        return new MultiFilePayrollRunner(engine, threads).run(payrollFiles, outputDirectory);
+    }
+
+    /**
+     * Reads the department rates, including the edits saved to the journal of
+     * the rates file. The rates are checked by a {@link PayrollValidator} like
+     * those of the dashboard; rows with a problem are reported on standard
+     * error and left out.
+     */
+    static List<DepartmentRate> readRates(File ratesFile, PayrollRunSummary summary) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        List<DepartmentRate> snapshot = RecordLog.hasEdits(ratesFile) ? null : PayrollSnapshot.readRates(ratesFile);
+        if (snapshot != null) {
+            summary.read(PayrollSnapshot.fileFor(ratesFile).length());
+            for (DepartmentRate rate : snapshot) {
+                rows.add(new String[] { String.valueOf(rate.getCode()), rate.getName(),
+                        FixedPoint.toDecimalString(rate.getRegularRate()),
+                        FixedPoint.toDecimalString(rate.getOvertimeRate()) });
+            }
+        } else if (!RecordLog.hasEdits(ratesFile)) {
+            summary.read(ratesFile.length());
+            PayrollCsv.forEachRow(ratesFile, 0, rows::add);
+        } else {
+            summary.read(ratesFile.length() + RecordLog.fileFor(ratesFile).length());
+            CsvTableModel model = new CsvTableModel();
+            model.load(ratesFile);
+            if (model.getColumnCount() == 0) {
+                model.setRows(PayrollCsv.RATES_HEADERS, new ArrayList<>());
+            }
+            RecordLog.applySavedEdits(ratesFile, model, model::addRow, model::removeRow);
+            for (int row = 0; row < model.getRowCount(); row++) {
+                String[] cells = new String[model.getColumnCount()];
+                for (int col = 0; col < cells.length; col++) {
+                    Object value = model.getValueAt(row, col);
+                    cells[col] = value != null ? value.toString() : "";
+                }
+                rows.add(cells);
+            }
+        }
+        PayrollValidator validator = new PayrollValidator();
+        List<DepartmentRate> rates = validator.validateRates(rows.toArray(new String[0][]));
+        for (ValidationIssue issue : validator.getIssues()) {
+            System.err.println(ratesFile.getName() + ": " + issue);
+        }
+        return rates;
+    }
+
+    /**
+     * Reads the employees into memory if the employee file has a snapshot or
+     * edits saved to its journal.
+     *
+     * @return The employees, or null if the file can be streamed.
+     */
+    private static EmployeeStore readEmployees(File payrollFile, PayrollRunSummary summary) throws IOException {
+        EmployeeStore snapshot = PayrollSnapshot.readEmployees(payrollFile);
+        if (snapshot != null) {
+            summary.read(PayrollSnapshot.fileFor(payrollFile).length());
+        }
+        if (!RecordLog.hasEdits(payrollFile)) {
+            return snapshot;
+        }
+        EmployeeTableModel model = new EmployeeTableModel();
+        if (snapshot != null) {
+            model.load(snapshot);
+        } else {
+            model.load(payrollFile);
+            summary.read(payrollFile.length());
+        }
+        summary.read(RecordLog.fileFor(payrollFile).length());
+        RecordLog.applySavedEdits(payrollFile, model, model::addRow, model::removeRow);
+        return model.getStore();
+    }
+
+    private static PayrollRunSummary runStore(PayrollEngine engine, EmployeeStore employees,
+            PayrollValidator validator, CsvWriter writer, CsvWriter rejects) throws IOException {
+        PayrollRunSummary summary = new PayrollRunSummary();
+        for (int row = 0; row < employees.size(); row++) {
+            if (!validator.isValid(row)) {
+                PayrollValidator.writeReject(rejects, employees.getCells(row), validator.getIssue(row), summary);
+                continue;
+            }
+            int department = engine.departmentIndex(employees.getDepartmentCode(row));
+            long hoursWorked = employees.getHoursWorked(row);
+            long regularPay = engine.regularPay(department, hoursWorked);
+            long overtimePay = engine.overtimePay(department, hoursWorked);
+            PayrollCsv.writeProcessedRow(writer, employees, row, regularPay, overtimePay);
+            summary.processed(employees.getDepartmentCode(row), hoursWorked, regularPay, overtimePay);
+        }
+        return summary;
+    }
+
+    /**
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        int parallelism = 0; // Not given
+        LocalDate payDate = null;
+        String filesGlob = null;
+        String inbox = null;
+        List<String> files = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("--parallel")) {
+                parallelism = Runtime.getRuntime().availableProcessors();
+            } else if (arg.startsWith("--watch=")) {
+                inbox = arg.substring("--watch=".length());
+            } else if (arg.startsWith("--files=")) {
+                filesGlob = arg.substring("--files=".length());
+            } else if (arg.startsWith("--parallel=")) {
+                parallelism = parseParallelism(arg.substring("--parallel=".length()));
+            } else if (arg.equals("--period")) {
+                payDate = LocalDate.now();
+            } else if (arg.startsWith("--period=")) {
+                try {
+                    payDate = LocalDate.parse(arg.substring("--period=".length()));
+                } catch (DateTimeParseException e) {
+                    System.err.println("Invalid pay date: " + arg.substring("--period=".length()));
+                    System.exit(1);
+                }
+            } else {
+                files.add(arg);
+            }
+        }
+        if ((filesGlob != null || inbox != null) && payDate != null) {
+            System.err.println("--period cannot be used with --files or --watch");
+            System.exit(1);
+        }
+        if (inbox != null) {
+            watch(inbox, files, Math.max(1, parallelism));
+            return;
+        }
+        if (filesGlob != null) {
+            runFiles(filesGlob, files, parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+            return;
+        }
+        File ratesFile = new File(files.size() > 0 ? files.get(0) : DEFAULT_RATES_FILE);
+        File payrollFile = new File(files.size() > 1 ? files.get(1) : DEFAULT_PAYROLL_FILE);
+        File processedFile = new File(files.size() > 2 ? files.get(2) : DEFAULT_PROCESSED_FILE);
+
+        try {
+            long start = System.nanoTime();
+            PayrollRunSummary summary = run(ratesFile, payrollFile, processedFile, Math.max(1, parallelism));
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            System.out.println(processedFile.getAbsolutePath() + ": " + summary + " in " + millis + " ms");
+            if (summary.getRowsRejected() > 0) {
+                System.out.println("Rejected rows: " + PayrollValidator.rejectFileFor(processedFile).getAbsolutePath());
+            }
+            writeReport(processedFile, summary);
+        } catch (IOException e) {
+            System.err.println("Error running payroll: " + e.getMessage());
+            System.exit(1);
+        }
+        if (payDate != null) {
+            recordPeriod(processedFile, payDate);
+        }
+    }
+
+    /**
+     * Returns the number of threads given with --parallel=N, or prints a usage
+     * error and exits if it is not a positive number.
+     */
+    private static int parseParallelism(String value) {
+        try {
+            int parallelism = Integer.parseInt(value);
+            if (parallelism > 0) {
+                return parallelism;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        System.err.println("Invalid number of threads: " + value);
+        System.err.println("Usage: PayrollBatch [--parallel[=N]] [--period[=YYYY-MM-DD]] [--files=DIRECTORY|GLOB]"
+                + " [--watch=INBOX] [files...], where N is a positive number");
+        System.exit(2);
+        return 0;
+    }
+
+    private static void runFiles(String directoryOrGlob, List<String> files, int threads) {
+        File ratesFile = new File(files.size() > 0 ? files.get(0) : DEFAULT_RATES_FILE);
+        File outputDirectory = files.size() > 1 ? new File(files.get(1))
+                : new File(MultiFilePayrollRunner.directoryOf(directoryOrGlob), "Processed");
+        try {
+            List<File> payrollFiles = new ArrayList<>();
+            for (File file : MultiFilePayrollRunner.listPayrollFiles(directoryOrGlob)) {
+                if (!file.getCanonicalFile().equals(ratesFile.getCanonicalFile())) {
+                    payrollFiles.add(file);
+                }
+            }
+            if (payrollFiles.isEmpty()) {
+                System.err.println("No employee files found in " + directoryOrGlob);
+                System.exit(1);
+            }
+            MultiFilePayrollRunner.Result result = runAll(ratesFile, payrollFiles, outputDirectory, threads);
+            for (MultiFilePayrollRunner.FileRun run : result.getRuns()) {
+                if (run.getError() != null) {
+                    System.err.println(run.getPayrollFile().getPath() + ": " + run.getErrorMessage());
+                } else {
+                    System.out.println(run.getProcessedFile().getPath() + ": " + run.getSummary() + " in "
+                            + run.getSummary().getElapsedNanos() / 1_000_000 + " ms");
+                }
+            }
+            PayrollRunSummary total = result.getTotal();
+            System.out.println(String.format("%d files on %d threads: %s in %d ms (%,.0f rows/s, %.1f MB/s)",
+                    result.getRuns().size(), Math.min(threads, payrollFiles.size()), total,
+                    total.getElapsedNanos() / 1_000_000, result.getRowsPerSecond(),
+                    result.getBytesPerSecond() / (1 << 20)));
+            System.out.println("Summary: " + result.getSummaryFile().getAbsolutePath());
+            if (result.getFailedCount() > 0) {
+                System.exit(1);
+            }
+        } catch (IOException e) {
+            System.err.println("Error running payroll: " + e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            System.err.println("Payroll run interrupted");
+            System.exit(1);
+        }
+    }
+
+    private static void watch(String inbox, List<String> files, int threads) {
+        File ratesFile = new File(files.size() > 0 ? files.get(0) : DEFAULT_RATES_FILE);
+        File outputDirectory = files.size() > 1 ? new File(files.get(1)) : new File(inbox, "Processed");
+        try {
+            PayrollInboxWatcher watcher = new PayrollInboxWatcher(new File(inbox), ratesFile, outputDirectory,
+                    threads, PayrollInboxWatcher.DEFAULT_QUEUE_CAPACITY, PayrollInboxWatcher.DEFAULT_QUIET_MILLIS);
+            // Let the files being paid finish when the process is stopped
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    watcher.close();
+                } catch (IOException e) {
+                    System.err.println("Error stopping the inbox watcher: " + e.getMessage());
+                }
+            }));
+            System.out.println("Watching " + new File(inbox).getAbsolutePath() + " for employee files");
+            watcher.run();
+        } catch (IOException e) {
+            System.err.println("Error watching the inbox: " + e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            System.err.println("Inbox watcher interrupted");
+            System.exit(1);
+        }
+    }
+
+    private static void recordPeriod(File processedFile, LocalDate payDate) {
+        PayrollHistory history = new PayrollHistory(processedFile);
+        try {
+            int period = history.recordPeriod(payDate);
+            System.out.println("Recorded pay period " + period + " (" + payDate + ") in "
+                    + PayrollHistory.fileFor(processedFile).getAbsolutePath());
+            System.out.println("Year to date " + payDate.getYear()
+                    + ": Dept. Code, Payments, Hours, Overtime Hours, Regular Pay, Overtime Pay, Gross Pay");
+            for (PayrollHistory.Totals totals : history.departmentTotals(payDate.getYear())) {
+                System.out.println(totals.getId() + ", " + totals.getCount() + ", "
+                        + FixedPoint.toDecimalString(totals.getHoursWorked()) + ", "
+                        + FixedPoint.toDecimalString(totals.getOvertimeHours()) + ", "
+                        + FixedPoint.toMoneyString(totals.getRegularPay()) + ", "
+                        + FixedPoint.toMoneyString(totals.getOvertimePay()) + ", "
+                        + FixedPoint.toMoneyString(totals.getGrossPay()));
+            }
+        } catch (IOException e) {
+            System.err.println("Error recording the pay period: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void writeReport(File processedFile, PayrollRunSummary summary) {
+        try {
+            PayrollRunReport.append(processedFile, "batch", summary);
+        } catch (IOException e) {
+            System.err.println("Error writing the run report: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package payrollmanagementsystem;
+
+import java.util.BitSet;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import javax.swing.table.TableModel;
+
+/**
+ * Tracks edits to the rates and employee tables between payroll runs, so the
+ * next run only recomputes the employees that changed and the employees of
+ * departments whose rates changed. The tracker listens to both table models
+ * and keeps the results of the last run aligned with the employee rows.
+ *
+ * All methods must be called on the Event Dispatch Thread.
+ */
+public final class PayrollChangeTracker implements TableModelListener {
+
+    private final TableModel ratesModel;
+    private final TableModel payrollModel;
+
+    // Results and rates of the last run; null results mean the next run is a full run
+    private PayrollResults results;
+    private RateIndex rates;
+    private boolean ratesChanged;
+    // Whether rows were inserted or deleted since the last run, which shifts
+    // the rows of the processed table
+    private boolean rowsMoved;
+
+    // Edits made while a run is in progress, applied when it finishes
+    private boolean running;
+    private final BitSet updatedDuringRun = new BitSet();
+    private boolean invalidatedDuringRun;
+    private boolean ratesChangedDuringRun;
+
+    public PayrollChangeTracker(TableModel ratesModel, TableModel payrollModel) {
+        this.ratesModel = ratesModel;
+        this.payrollModel = payrollModel;
+        ratesModel.addTableModelListener(this);
+        payrollModel.addTableModelListener(this);
+    }
+
+    @Override
+    public void tableChanged(TableModelEvent e) {
+        if (e.getSource() == ratesModel) {
+            ratesChanged = true;
+            if (running) {
+                ratesChangedDuringRun = true;
+            }
+            return;
+        }
+        if (e.getSource() != payrollModel) {
+            return;
+        }
+
+        boolean allRows = e.getFirstRow() == TableModelEvent.HEADER_ROW || e.getLastRow() == Integer.MAX_VALUE;
+        if (running) {
+            if (allRows || e.getType() != TableModelEvent.UPDATE) {
+                invalidatedDuringRun = true;
+            } else {
+                updatedDuringRun.set(e.getFirstRow(), e.getLastRow() + 1);
+            }
+        }
+        if (results == null) {
+            return;
+        }
+        if (allRows) {
+            results = null;
+        } else if (e.getType() == TableModelEvent.INSERT) {
+            results.insert(e.getFirstRow(), e.getLastRow() - e.getFirstRow() + 1);
+            rowsMoved = true;
+        } else if (e.getType() == TableModelEvent.DELETE) {
+            results.remove(e.getFirstRow(), e.getLastRow());
+            rowsMoved = true;
+        } else {
+            results.markDirty(e.getFirstRow(), e.getLastRow());
+        }
+    }
+
+    /**
+     * Marks the start of a run and returns a copy of the previous results for
+     * it, or null if the run has to recompute every row.
+     */
+    PayrollResults startRun() {
+        running = true;
+        updatedDuringRun.clear();
+        invalidatedDuringRun = false;
+        ratesChangedDuringRun = false;
+        return results != null ? results.copy() : null;
+    }
+
+    /**
+     * Returns the rates used by the last run, or null if the rates have not
+     * been edited since, in which case no department needs recomputing.
+     */
+    RateIndex getPreviousRates() {
+        return ratesChanged ? rates : null;
+    }
+
+    /**
+     * Returns whether rows were inserted or deleted since the last run.
+     */
+    boolean haveRowsMoved() {
+        return rowsMoved;
+    }
+
+    /**
+     * Records the results of a successful run. Rows and rates edited during
+     * the run are marked changed again; if rows were inserted or deleted during the run, the
+     * results no longer line up and the next run is a full run.
+     */
+    void finishRun(PayrollResults newResults, RateIndex newRates) {
+        running = false;
+        if (invalidatedDuringRun) {
+            results = null;
+            return;
+        }
+        results = newResults;
+        rates = newRates;
+        ratesChanged = ratesChangedDuringRun;
+        rowsMoved = false;
+        for (int row = updatedDuringRun.nextSetBit(0); row >= 0; row = updatedDuringRun.nextSetBit(row + 1)) {
+            results.markDirty(row, row);
+        }
+    }
+
+    /**
+     * Records that a run was cancelled or failed; the previous results and
+     * any rate edits since them remain.
+     */
+    void abortRun() {
+        running = false;
+        if (invalidatedDuringRun) {
+            results = null;
+        } else if (results != null) {
+            for (int row = updatedDuringRun.nextSetBit(0); row >= 0; row = updatedDuringRun.nextSetBit(row + 1)) {
+                results.markDirty(row, row);
+            }
+        }
+    }
+
+    /**
+     * Forgets the previous results, so the next run is a full run.
+     */
+    public void invalidate() {
+        results = null;
+    }
+}
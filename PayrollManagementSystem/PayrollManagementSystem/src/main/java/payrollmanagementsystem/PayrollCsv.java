@@ -0,0 +1,180 @@
+package payrollmanagementsystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Conversion between the CSV files used by the Payroll Management System and
+ * the typed records used by the {@link PayrollEngine}.
+ */
+public final class PayrollCsv {
+
+    public static final String[] RATES_HEADERS = { "Dept. Code", "Dept. Name", "Regular Rate $",
+            "Overtime Rate $" };
+    public static final String[] PAYROLL_HEADERS = { "ID. No", "First Name", "Last Name", "Dept. Code",
+            "Position", "Hours Worked" };
+    public static final String[] PROCESSED_HEADERS = { "ID. No", "First Name", "Last Name", "Dept. Code",
+            "Position", "Hours Worked", "Regular Pay", "Overtime Pay", "Gross Pay" };
+
+    private PayrollCsv() {
+    }
+
+    /**
+     * Parses the cells of a department rates row. Rates are read as fixed
+     * point, in cents.
+     *
+     * @throws NumberFormatException If a numeric cell cannot be parsed.
+     */
+    public static DepartmentRate parseRate(String[] cells) {
+        return new DepartmentRate(Integer.parseInt(cells[0].trim()), cells[1],
+                FixedPoint.parse(cells[2]), FixedPoint.parse(cells[3]));
+    }
+
+    /**
+     * Parses the cells of an employee payroll row. Hours are read as fixed
+     * point, in hundredths of an hour.
+     *
+     * @throws NumberFormatException If a numeric cell cannot be parsed.
+     */
+    public static Employee parseEmployee(String[] cells) {
+        return new Employee(Integer.parseInt(cells[0].trim()), cells[1], cells[2],
+                Integer.parseInt(cells[3].trim()), cells[4], FixedPoint.parse(cells[5]));
+    }
+
+    /**
+     * Streams the employees of a CSV file to the consumer one at a time,
+     * skipping the header line. Malformed rows are reported on standard error
+     * and counted as rejected in the summary.
+     */
+    public static void forEachEmployee(File file, Consumer<Employee> consumer, PayrollRunSummary summary)
+            throws IOException {
+        try (CsvReader reader = CsvReader.open(file)) {
+            reader.readRow(); // Skip the header line
+            String[] cells;
+            while ((cells = reader.readRow()) != null) {
+                if (isBlank(cells)) {
+                    continue;
+                }
+                Employee employee = toEmployee(cells, reader.getRowNumber(), summary);
+                if (employee != null) {
+                    consumer.accept(employee);
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses an employee row read from a file.
+     *
+     * @return The employee, or null if the row is malformed, in which case it is
+     *         reported on standard error and counted as rejected in the summary.
+     */
+    static Employee toEmployee(String[] cells, long rowNumber, PayrollRunSummary summary) {
+        try {
+            return parseEmployee(cells);
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Skipping malformed payroll row " + rowNumber + ": " + String.join(",", cells));
+            summary.rejected();
+            return null;
+        }
+    }
+
+    /**
+     * Streams the rows of a CSV file to the consumer, skipping the header line,
+     * blank lines and rows with fewer than {@code columns} fields.
+     */
+    public static void forEachRow(File file, int columns, Consumer<String[]> consumer) throws IOException {
+        try (CsvReader reader = CsvReader.open(file)) {
+            reader.readRow(); // Skip the header line
+            String[] cells;
+            while ((cells = reader.readRow()) != null) {
+                if (isBlank(cells)) {
+                    continue;
+                }
+                if (cells.length < columns) {
+                    System.err.println("Skipping incomplete row " + reader.getRowNumber() + ": "
+                            + String.join(",", cells));
+                    continue;
+                }
+                consumer.accept(cells);
+            }
+        }
+    }
+
+    static boolean isBlank(String[] cells) {
+        return cells.length == 1 && cells[0].trim().isEmpty();
+    }
+
+    /**
+     * Writes the header line of the processed payroll file.
+     */
+    public static void writeProcessedHeader(CsvWriter writer) throws IOException {
+        writer.writeRow(PROCESSED_HEADERS);
+    }
+
+    /**
+     * Writes a single processed employee as a line of the processed payroll file.
+     */
+    public static void writeProcessedRow(CsvWriter writer, ProcessedEmployee processed) throws IOException {
+        Employee employee = processed.getEmployee();
+        writer.field(employee.getId())
+                .field(employee.getFirstName())
+                .field(employee.getLastName())
+                .field(employee.getDepartmentCode())
+                .field(employee.getPosition())
+                .decimal(employee.getHoursWorked())
+                .money(processed.getRegularPay())
+                .money(processed.getOvertimePay())
+                .money(processed.getGrossPay())
+                .endRow();
+    }
+
+    /**
+     * Writes a row of an employee store together with its pay as a line of the
+     * processed payroll file.
+     */
+    public static void writeProcessedRow(CsvWriter writer, EmployeeStore store, int row, long regularPay,
+            long overtimePay) throws IOException {
+        writer.field(store.getId(row))
+                .field(store.getFirstName(row))
+                .field(store.getLastName(row))
+                .field(store.getDepartmentCode(row))
+                .field(store.getPosition(row))
+                .decimal(store.getHoursWorked(row))
+                .money(regularPay)
+                .money(overtimePay)
+                .money(regularPay + overtimePay)
+                .endRow();
+    }
+
+    /**
+     * Writes a row parsed from an employee file together with its pay as a line
+     * of the processed payroll file. The text fields are copied from the row;
+     * the numbers are its parsed values.
+     */
+    public static void writeProcessedRow(CsvWriter writer, MappedCsvParser.Row row, int id, int departmentCode,
+            long hoursWorked, long regularPay, long overtimePay) throws IOException {
+        writer.field(id);
+        row.writeField(writer, EmployeeStore.FIRST_NAME);
+        row.writeField(writer, EmployeeStore.LAST_NAME);
+        writer.field(departmentCode);
+        row.writeField(writer, EmployeeStore.POSITION);
+        writer.decimal(hoursWorked)
+                .money(regularPay)
+                .money(overtimePay)
+                .money(regularPay + overtimePay)
+                .endRow();
+    }
+
+    /**
+     * Returns the cells of the processed payroll line for a row of an employee
+     * store, formatted exactly as {@link #writeProcessedRow} writes them.
+     */
+    public static String[] processedCells(EmployeeStore store, int row, long regularPay, long overtimePay) {
+        return new String[] { String.valueOf(store.getId(row)), store.getFirstName(row), store.getLastName(row),
+                String.valueOf(store.getDepartmentCode(row)), store.getPosition(row),
+                EmployeeStore.formatHours(store.getHoursWorked(row)), FixedPoint.toMoneyString(regularPay),
+                FixedPoint.toMoneyString(overtimePay), FixedPoint.toMoneyString(regularPay + overtimePay) };
+    }
+}
@@ -2,13 +2,17 @@ package payrollmanagementsystem;
 
 import java.awt.*;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.Scanner;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableModel;
 
 /*
  Payroll Dashboard class represents the main dashboard of the Payroll Management System.
@@ -20,10 +24,44 @@ public class PayrollDashboard extends javax.swing.JFrame { // class 1
     // Debug mode flag
     public boolean debug = false;
 
-    // Default table models for rates, payroll, and processed data
-    private final DefaultTableModel RatesModel;
-    private final DefaultTableModel PayrollModel;
-    private final DefaultTableModel ProcessedModel;
+    // Table models for rates, payroll, and processed data; the payroll data is
+    // held in a columnar EmployeeStore shared with the payroll engine
+    private final CsvTableModel RatesModel;
+    private final EmployeeTableModel PayrollModel;
+    private final CsvTableModel ProcessedModel;
+
+    // Department totals of the last generation run, read-only
+    private final CsvTableModel DepartmentModel;
+
+    // Employee and processed files larger than this are paged from disk
+    // instead of being loaded into PayrollModel and ProcessedModel
+    private static final long LARGE_FILE_BYTES = 64L << 20;
+
+    // Model of EmpDataTable while a large employee file is shown, otherwise null
+    private PagedCsvTableModel LargePayrollModel;
+
+    // Edits to RatesModel and PayrollModel since the last generation run
+    private final PayrollChangeTracker changeTracker;
+
+    // Rows of PayrollModel by employee ID, for the find box and duplicate IDs
+    private final EmployeeIdIndex employeeIds;
+
+    // Sorters of the tables of in-memory models; paged models are not sorted
+    private final TypedRowSorter ratesSorter;
+    private final TypedRowSorter payrollSorter;
+    private final TypedRowSorter processedSorter;
+    private final TypedRowSorter departmentSorter;
+
+    // Entry of the filter column box that filters on every column
+    private static final String ALL_COLUMNS = "All columns";
+
+    // Maximum number of duplicate IDs listed when an employee file is loaded
+    private static final int MAX_REPORTED_DUPLICATES = 20;
+
+    // Journals of the edits to RatesModel and PayrollModel not yet written
+    // to their CSV files; saving appends to them
+    private final RecordLog ratesLog;
+    private final RecordLog payrollLog;
 
     // Default CSV file paths
     final private String defaultCSVPathRate = "Department_Rates_File.csv";
@@ -34,26 +72,104 @@ public class PayrollDashboard extends javax.swing.JFrame { // class 1
     private String fileName;
     private String fileName2;
 
+    // Background worker of the current generation run, null between runs
+    private PayrollGenerateWorker generateWorker;
+
+    // Maximum number of row errors listed in the error report dialog
+    private static final int MAX_REPORTED_ERRORS = 200;
+
+    // Saved edits are folded from the journals into the CSV files this often
+    private static final int CHECKPOINT_INTERVAL_MS = 5 * 60 * 1000;
+
     /**
      * Creates a new instance of PayrollDashboard.
      * Initializes default table models, checks and creates necessary CSV files, and
      * loads default data.
      */
     public PayrollDashboard() {
-        RatesModel = new DefaultTableModel();
-        PayrollModel = new DefaultTableModel();
-        ProcessedModel = new DefaultTableModel();
+        RatesModel = new CsvTableModel();
+        PayrollModel = new EmployeeTableModel();
+        ProcessedModel = new CsvTableModel();
+        DepartmentModel = new CsvTableModel(DepartmentTotals.HEADERS, false);
+        ratesLog = new RecordLog(RatesModel);
+        payrollLog = new RecordLog(PayrollModel);
+        employeeIds = new EmployeeIdIndex(PayrollModel);
+        ratesSorter = new TypedRowSorter(RatesModel, "Dept. Code", "Regular Rate $", "Overtime Rate $");
+        payrollSorter = new TypedRowSorter(PayrollModel);
+        processedSorter = new TypedRowSorter(ProcessedModel, "ID. No", "Dept. Code", "Hours Worked", "Regular Pay",
+                "Overtime Pay", "Gross Pay");
+        departmentSorter = new TypedRowSorter(DepartmentModel, DepartmentTotals.HEADERS);
         checkAndCreateFiles(); // Check and create necessary CSV files
         loadDefaultTable(); // Load default data into tables
+        changeTracker = new PayrollChangeTracker(RatesModel, PayrollModel);
         initComponents(); // Initialize GUI components
+        RatesTable.setRowSorter(ratesSorter);
+        DepartmentTable.setRowSorter(departmentSorter);
+        showModel(EmpDataTable, getPayrollTableModel(), payrollSorter);
+        showModel(ProcessedTable, ProcessedModel, processedSorter);
+        updateFilterControls();
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosing(java.awt.event.WindowEvent e) {
+                closeJournals();
+            }
+        });
+        new Timer(CHECKPOINT_INTERVAL_MS, e -> checkpoint()).start();
     }
 
     /**
-     * Checks and creates necessary CSV files if they do not exist.
+     * Checks and creates necessary CSV files if they do not exist, and
+     * recovers their journals if the application did not close cleanly.
      */
     private void checkAndCreateFiles() {
         checkAndCreateFile(defaultCSVPathRate, "Dept. Code,Dept. Name,Regular Rate $,Overtime Rate $");
         checkAndCreateFile(defaultCSVPathPayroll, "ID. No,First Name,Last Name,Dept. Code,Position,Hours Worked");
+        recoverJournal(new File(defaultCSVPathRate), "department rates");
+        recoverJournal(new File(defaultCSVPathPayroll), "employee payroll");
+    }
+
+    /**
+     * Repairs the journal of a CSV file and asks whether the unsaved edits
+     * left in it by a crash are restored; they are dropped otherwise.
+     */
+    private void recoverJournal(File file, String description) {
+        int unsaved = RecordLog.recover(file);
+        if (unsaved > 0 && JOptionPane.showConfirmDialog(this,
+                unsaved + " unsaved edits to the " + description + " were found from the last session.\n"
+                        + "Do you want to restore them?",
+                "Recover Edits", JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) {
+            RecordLog.rollback(file);
+        }
+    }
+
+    /**
+     * Drops the unsaved edits from the journals when the application closes,
+     * as they would have been lost before.
+     */
+    private void closeJournals() {
+        ratesLog.detach();
+        payrollLog.detach();
+    }
+
+    /**
+     * Writes the tables whose journals hold saved edits and no unsaved ones to
+     * their CSV files, so the journals start over (checkpoint). Runs
+     * periodically; skipped during a generation run.
+     */
+    private void checkpoint() {
+        if (generateWorker != null) {
+            return;
+        }
+        try {
+            if (ratesLog.isCheckpointDue()) {
+                writeCSVFile(ratesLog.getFile(), RatesModel);
+            }
+            if (payrollLog.isCheckpointDue()) {
+                writeCSVFile(payrollLog.getFile(), PayrollModel);
+            }
+        } catch (IOException e) {
+            e.printStackTrace(); // The journal still holds the edits
+        }
     }
 
     /**
@@ -81,191 +197,527 @@ public class PayrollDashboard extends javax.swing.JFrame { // class 1
         File defaultCSVRates = new File(defaultCSVPathRate);
         File defaultCSVPayroll = new File(defaultCSVPathPayroll);
         File defaultCSVProcessed = new File(defaultCSVPathProcessed);
-        loadCSVFile(defaultCSVRates, RatesModel);
-        loadCSVFile(defaultCSVPayroll, PayrollModel);
+        loadRatesFile(defaultCSVRates);
+        loadPayrollFile(defaultCSVPayroll);
     }
 
     /**
-     * Loads data from a CSV file into the specified DefaultTableModel.
+     * Loads department rates into RatesModel, from the snapshot of the file if
+     * it is current and otherwise from the CSV file, after which the snapshot is
+     * written for the next start. Edits in the journal of the file are replayed
+     * on top. The load is recorded in {@link PayrollMetrics}.
      */
-    private void loadCSVFile(File file, DefaultTableModel DefRatesModel) {
-        DefRatesModel.setColumnCount(0); // Clear previous columns
-        DefRatesModel.setRowCount(0); // Clear previous data rows
-
-        try (Scanner scanner = new Scanner(file)) {
-            if (scanner.hasNextLine()) {
-                String[] tableNames = scanner.nextLine().split(",");
-                for (String tableName : tableNames) {
-                    DefRatesModel.addColumn(tableName);
-                    if (debug)
-                        System.out.println(tableName);
-                }
+    private void loadRatesFile(File file) {
+        long start = System.nanoTime();
+        List<DepartmentRate> rates = PayrollSnapshot.readRates(file);
+        if (rates == null) {
+            if (!loadCSVFile(file, RatesModel)) {
+                ratesLog.detach();
+                return;
+            }
+            writeRatesSnapshot(file);
+        } else {
+            List<String[]> rows = new ArrayList<>(rates.size());
+            for (DepartmentRate rate : rates) {
+                rows.add(new String[] { String.valueOf(rate.getCode()), rate.getName(),
+                        FixedPoint.toDecimalString(rate.getRegularRate()),
+                        FixedPoint.toDecimalString(rate.getOvertimeRate()) });
+            }
+            RatesModel.setRows(PayrollCsv.RATES_HEADERS, rows);
+        }
+        ratesLog.open(file, RatesModel::addRow, RatesModel::removeRow);
+        PayrollMetrics.get().recordLoad(System.nanoTime() - start, RatesModel.getRowCount(), file.length());
+    }
+
+    /**
+     * Writes the snapshot of a rates file from RatesModel, or deletes it if the
+     * table holds rows a snapshot cannot represent.
+     */
+    private void writeRatesSnapshot(File file) {
+        List<DepartmentRate> rates = new ArrayList<>();
+        boolean standard = Arrays.equals(getColumnNames(RatesModel), PayrollCsv.RATES_HEADERS);
+        for (int i = 0; standard && i < RatesModel.getRowCount(); i++) {
+            String[] cells = new String[RatesModel.getColumnCount()];
+            for (int j = 0; j < cells.length; j++) {
+                Object value = RatesModel.getValueAt(i, j);
+                cells[j] = value != null ? value.toString() : "";
+            }
+            try {
+                DepartmentRate rate = PayrollCsv.parseRate(cells);
+                // Only keep the snapshot if it shows the rates exactly as typed
+                standard = cells[0].equals(String.valueOf(rate.getCode()))
+                        && cells[2].equals(FixedPoint.toDecimalString(rate.getRegularRate()))
+                        && cells[3].equals(FixedPoint.toDecimalString(rate.getOvertimeRate()));
+                rates.add(rate);
+            } catch (NumberFormatException e) {
+                standard = false;
             }
+        }
+        try {
+            if (standard) {
+                PayrollSnapshot.writeRates(file, rates);
+            } else {
+                PayrollSnapshot.delete(file);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            PayrollSnapshot.delete(file);
+        }
+    }
 
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine();
-                String[] data = line.split(",");
-                DefRatesModel.addRow(data);
-                if (debug)
-                    System.out.println("->" + line);
+    /**
+     * Writes the snapshot of an employee file from PayrollModel, or deletes it
+     * if the columns have been renamed.
+     */
+    private void writePayrollSnapshot(File file) {
+        try {
+            if (PayrollModel.hasStandardColumns()) {
+                PayrollSnapshot.writeEmployees(file, PayrollModel.getStore());
+            } else {
+                PayrollSnapshot.delete(file);
             }
+        } catch (IOException e) {
+            e.printStackTrace();
+            PayrollSnapshot.delete(file);
+        }
+    }
+
+    private static String[] getColumnNames(TableModel tableModel) {
+        String[] names = new String[tableModel.getColumnCount()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = tableModel.getColumnName(i);
+        }
+        return names;
+    }
 
-        } catch (FileNotFoundException e) {
+    /**
+     * Loads data from a CSV file into the specified CsvTableModel, with a
+     * single event for the whole file. The model is left empty if the file
+     * could not be read.
+     *
+     * @return False if the file could not be read.
+     */
+    private boolean loadCSVFile(File file, CsvTableModel model) {
+        try {
+            model.load(file);
+            if (debug)
+                System.out.println("Loaded " + model.getRowCount() + " rows from " + file);
+        } catch (IOException e) {
+            model.setRows(new String[0], new ArrayList<>());
             e.printStackTrace();
             JOptionPane.showMessageDialog(this, "Error reading the CSV file.", "Error", JOptionPane.ERROR_MESSAGE);
+            return false;
         }
+        return true;
     }
 
     /**
-     * Saves data from the specified DefaultTableModel into a CSV file.
+     * Loads employee data from a CSV file into PayrollModel and replays the
+     * edits in its journal, or pages it from disk through
+     * LargePayrollModel if the file is large. The load is recorded in
+     * {@link PayrollMetrics}.
      */
-    private void saveCSVFile(File file, DefaultTableModel tableModel) {
-        try (PrintWriter writer = new PrintWriter(file)) {
-            for (int i = 0; i < tableModel.getColumnCount(); i++) {
-                writer.print(tableModel.getColumnName(i));
-                if (i < tableModel.getColumnCount() - 1) {
-                    writer.print(",");
+    private void loadPayrollFile(File file) {
+        long start = System.nanoTime();
+        try {
+            payrollLog.detach();
+            if (file.length() > LARGE_FILE_BYTES) {
+                LargePayrollModel = new PagedCsvTableModel(file);
+            } else {
+                LargePayrollModel = null;
+                EmployeeStore snapshot = PayrollSnapshot.readEmployees(file);
+                if (snapshot != null) {
+                    PayrollModel.load(snapshot);
+                } else {
+                    PayrollModel.load(file);
+                    writePayrollSnapshot(file);
                 }
+                payrollLog.open(file, PayrollModel::addRow, PayrollModel::removeRow);
             }
-            writer.println();
-            for (int i = 0; i < tableModel.getRowCount(); i++) {
-                for (int j = 0; j < tableModel.getColumnCount(); j++) {
-                    if (tableModel.getValueAt(i, j) != null) {
-                        writer.print(tableModel.getValueAt(i, j));
-                    } else {
-                        writer.print("");
-                    }
-                    if (j < tableModel.getColumnCount() - 1) {
-                        writer.print(",");
-                    }
-                }
-                writer.println();
+            if (EmpDataTable != null) {
+                showModel(EmpDataTable, getPayrollTableModel(), payrollSorter);
+                updateFilterControls();
+            }
+            PayrollMetrics.get().recordLoad(System.nanoTime() - start, getPayrollTableModel().getRowCount(),
+                    file.length());
+            if (LargePayrollModel == null && employeeIds.getDuplicateCount() > 0) {
+                displayDuplicateIds(file);
             }
-            JOptionPane.showMessageDialog(this, "Updated Sucessfully!");
         } catch (IOException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Error saving the CSV file.", "Error", JOptionPane.ERROR_MESSAGE);
+            JOptionPane.showMessageDialog(this, "Error reading the CSV file.", "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
 
     /**
-     * Generates a new CSV file containing processed payroll data.
+     * Shows a model in a table, sorted by its sorter if the sorter is for that
+     * model. A paged model is shown unsorted, as sorting it would read the
+     * whole file. The sorter misses the events of its model while it is not
+     * attached, so it is brought up to date when attached again.
+     */
+    private static void showModel(JTable table, TableModel model, TypedRowSorter sorter) {
+        table.setRowSorter(null);
+        table.setModel(model);
+        if (sorter.getModel() == model) {
+            sorter.allRowsChanged();
+            table.setRowSorter(sorter);
+        }
+    }
+
+    /**
+     * Enables the filter of EmpDataTable while PayrollModel is shown.
+     */
+    private void updateFilterControls() {
+        boolean sorted = LargePayrollModel == null;
+        FilterColumnComboBox.setEnabled(sorted);
+        FilterField.setEnabled(sorted);
+    }
+
+    /**
+     * Returns the entries of the filter column box: every column, then the
+     * columns of PayrollModel.
      */
-    public void generateCSV(DefaultTableModel tableModel1, DefaultTableModel tableModel2) {
+    private static String[] getFilterColumnNames() {
+        String[] names = new String[PayrollCsv.PAYROLL_HEADERS.length + 1];
+        names[0] = ALL_COLUMNS;
+        System.arraycopy(PayrollCsv.PAYROLL_HEADERS, 0, names, 1, PayrollCsv.PAYROLL_HEADERS.length);
+        return names;
+    }
+
+    /**
+     * Shows only the rows of EmpDataTable matching the filter box, on the
+     * column chosen in the filter column box.
+     */
+    private void applyFilter() {
+        if (LargePayrollModel != null) {
+            return;
+        }
+        int column = FilterColumnComboBox.getSelectedIndex() - 1;
         try {
-            // Define the headers for the new CSV file
-            String[] newHeaders = { "ID. No", "First Name", "Last Name", "Dept. Code", "Position", "Hours Worked",
-                    "Regular Pay", "Overtime Pay", "Gross Pay" };
+            payrollSorter.setFilter(column, FilterField.getText());
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this,
+                    "Filter " + PayrollCsv.PAYROLL_HEADERS[column] + " with a number, a comparison such as >40 "
+                            + "or <=10, or a range such as 10..20.",
+                    "Filter", JOptionPane.WARNING_MESSAGE);
+        }
+    }
 
-            // Create a new CSV file
-            File processedFile = new File("Processed_Payroll_File.csv");
-            try (FileWriter writer = new FileWriter(processedFile)) {
-                writeHeaders(writer, newHeaders);
+    /**
+     * Returns the model currently shown in EmpDataTable.
+     */
+    private TableModel getPayrollTableModel() {
+        return LargePayrollModel != null ? LargePayrollModel : PayrollModel;
+    }
 
-                // Iterate through the rows of tableModel2 to calculate and write the values
-                for (int row = 0; row < tableModel2.getRowCount(); row++) {
-                    writeRow(writer, tableModel2, row);
+    /**
+     * Lists the employee IDs used by more than one row of a loaded file, with
+     * their rows. The duplicate rule stated is the one of
+     * {@link PayrollValidator}, which every run applies.
+     */
+    private void displayDuplicateIds(File file) {
+        int[] ids = employeeIds.getDuplicateIds();
+        StringBuilder message = new StringBuilder();
+        message.append(employeeIds.getDuplicateCount()).append(" employees in ").append(file.getName())
+                .append(" share their ID. No with an earlier row:\n");
+        int shown = Math.min(ids.length, MAX_REPORTED_DUPLICATES);
+        for (int i = 0; i < shown; i++) {
+            int[] rows = employeeIds.findAll(ids[i]);
+            message.append("ID. No ").append(ids[i]).append(": rows");
+            for (int row : rows) {
+                message.append(' ').append(row + 1);
+            }
+            message.append('\n');
+        }
+        if (ids.length > shown) {
+            message.append("... and ").append(ids.length - shown).append(" more IDs\n");
+        }
+        message.append("Every payroll run, here or from the command line, pays only the first valid row of each ID\n"
+                + "and writes the others to the reject file; use Find to go to the rows.");
+        JOptionPane.showMessageDialog(this, message.toString(), "Duplicate IDs", JOptionPane.WARNING_MESSAGE);
+    }
 
-                    // Calculate Regular Pay, Overtime Pay, and Gross Pay
-                    calculateAndWritePay(writer, tableModel1, tableModel2, row);
-                }
+    /**
+     * Selects the rows of EmpDataTable with the ID typed in the find box and
+     * scrolls to the first one. Rows of a loaded file are found through the
+     * ID index; a large file paged from disk is scanned instead.
+     */
+    private void findEmployee() {
+        String text = FindEmployeeField.getText().trim();
+        int id;
+        try {
+            id = Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "Enter the ID. No of an employee.", "Find Employee",
+                    JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        int[] rows = LargePayrollModel != null ? scanForId(LargePayrollModel, text) : employeeIds.findAll(id);
+        if (rows.length == 0) {
+            JOptionPane.showMessageDialog(this, "No employee with ID. No " + id + ".", "Find Employee",
+                    JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        EmpDataTable.clearSelection();
+        for (int row : rows) {
+            int viewRow = EmpDataTable.convertRowIndexToView(row);
+            if (viewRow != -1) {
+                EmpDataTable.addRowSelectionInterval(viewRow, viewRow);
             }
+        }
+        int firstViewRow = EmpDataTable.getSelectedRow();
+        if (firstViewRow != -1) {
+            EmpDataTable.scrollRectToVisible(EmpDataTable.getCellRect(firstViewRow, 0, true));
+        } else {
+            JOptionPane.showMessageDialog(this, "The employees with ID. No " + id + " are hidden by the filter.",
+                    "Find Employee", JOptionPane.INFORMATION_MESSAGE);
+        }
+    }
 
-            displayConfirmationMessage(processedFile);
+    /**
+     * Returns the model rows of the rows selected in a table.
+     */
+    private static int[] toModelRows(JTable table) {
+        int[] rows = table.getSelectedRows();
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = table.convertRowIndexToModel(rows[i]);
+        }
+        return rows;
+    }
 
-            if (debug)
-                System.out.println("CSV file generated successfully.");
+    /**
+     * Returns the rows of a table whose first cell holds the given ID.
+     */
+    private static int[] scanForId(TableModel model, String id) {
+        int[] rows = new int[0];
+        int count = 0;
+        for (int row = 0; row < model.getRowCount(); row++) {
+            Object value = model.getValueAt(row, 0);
+            if (value != null && value.toString().trim().equals(id)) {
+                if (count == rows.length) {
+                    rows = Arrays.copyOf(rows, Math.max(4, count * 2));
+                }
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
 
+    /**
+     * Saves the edits made to a large employee file by writing the file through
+     * the overlay of LargePayrollModel.
+     */
+    private void saveLargePayrollFile(File file) {
+        try {
+            LargePayrollModel.save(file);
+            JOptionPane.showMessageDialog(this, "Updated Sucessfully!");
         } catch (IOException e) {
             e.printStackTrace();
+            JOptionPane.showMessageDialog(this, "Error saving the CSV file.", "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
 
     /**
-     * Writes headers to the CSV file.
+     * Saves a table by appending a commit record to the journal of its file,
+     * or by writing the whole CSV file if the journal cannot take the edits,
+     * e.g. because it is due for a checkpoint.
      */
-    private void writeHeaders(FileWriter writer, String[] headers) throws IOException {
-        for (int i = 0; i < headers.length; i++) {
-            writer.append(headers[i]);
-            if (i < headers.length - 1) {
-                writer.append(",");
+    private void saveTable(File file, TableModel tableModel, RecordLog log) {
+        if (log.canAppend(file)) {
+            try {
+                log.commit();
+                JOptionPane.showMessageDialog(this, "Updated Sucessfully!");
+                return;
+            } catch (IOException e) {
+                e.printStackTrace(); // Write the CSV file instead
             }
         }
-        writer.append("\n");
+        saveCSVFile(file, tableModel);
     }
 
     /**
-     * Writes a row of data to the CSV file.
+     * Saves data from the specified table model into a CSV file.
      */
-    private void writeRow(FileWriter writer, DefaultTableModel tableModel, int row) throws IOException {
-        for (int col = 0; col < tableModel.getColumnCount(); col++) {
-            Object cellValue = tableModel.getValueAt(row, col);
+    private void saveCSVFile(File file, TableModel tableModel) {
+        try {
+            writeCSVFile(file, tableModel);
+            JOptionPane.showMessageDialog(this, "Updated Sucessfully!");
+        } catch (IOException e) {
+            e.printStackTrace();
+            JOptionPane.showMessageDialog(this, "Error saving the CSV file.", "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
 
-            if (cellValue == null || cellValue.toString().trim().isEmpty()) {
-                JOptionPane.showMessageDialog(null, "Missing or empty value at:\n"
-                        + "Row: " + row + "\nColumn: " + col);
-                break;
+    /**
+     * Writes the rows of a table model to a CSV file. The file is replaced
+     * atomically once all rows are written, after which the journal of the
+     * file starts over.
+     */
+    private void writeCSVFile(File file, TableModel tableModel) throws IOException {
+        try (CsvWriter writer = new CsvWriter(file)) {
+            for (int i = 0; i < tableModel.getColumnCount(); i++) {
+                writer.field(tableModel.getColumnName(i));
             }
+            writer.endRow();
+            for (int i = 0; i < tableModel.getRowCount(); i++) {
+                for (int j = 0; j < tableModel.getColumnCount(); j++) {
+                    Object value = tableModel.getValueAt(i, j);
+                    writer.field(value != null ? value.toString() : "");
+                }
+                writer.endRow();
+            }
+            writer.commit();
+            if (tableModel == PayrollModel) {
+                payrollLog.reset(file);
+                writePayrollSnapshot(file);
+            } else if (tableModel == RatesModel) {
+                ratesLog.reset(file);
+                writeRatesSnapshot(file);
+            }
+        }
+    }
 
-            writer.append(cellValue.toString());
+    /**
+     * Generates a new CSV file containing processed payroll data.
+     * The file is generated in the background by a {@link PayrollGenerateWorker};
+     * when it is done, the processed data is shown in ProcessedModel. Only the
+     * employees changed since the last run are recomputed, and if no rows were
+     * added or removed, only their rows of ProcessedModel are updated.
+     */
+    public void generateCSV(TableModel tableModel1, TableModel tableModel2) {
+        if (generateWorker != null) {
+            return; // A run is already in progress
+        }
 
-            if (col < tableModel.getColumnCount() - 1) {
-                writer.append(",");
-            }
+        File processedFile = new File(defaultCSVPathProcessed);
+        if (ProcessedTable.getModel() != ProcessedModel) {
+            changeTracker.invalidate(); // ProcessedModel no longer holds the last run
         }
+        PayrollGenerateWorker worker = tableModel2 instanceof PagedCsvTableModel
+                ? new PayrollGenerateWorker(tableModel1, (PagedCsvTableModel) tableModel2, processedFile)
+                : new PayrollGenerateWorker(tableModel1, (EmployeeTableModel) tableModel2, changeTracker,
+                        processedFile);
+        worker.addPropertyChangeListener(evt -> {
+            if ("progress".equals(evt.getPropertyName())) {
+                GenerateProgressBar.setValue((Integer) evt.getNewValue());
+            } else if (PayrollGenerateWorker.ROWS_PROPERTY.equals(evt.getPropertyName())) {
+                GenerateStatusLabel.setText(String.format("%,d of %,d rows (%,.0f rows/s)",
+                        evt.getNewValue(), worker.getTotalRows(), worker.getRowsPerSecond()));
+            } else if ("state".equals(evt.getPropertyName())
+                    && evt.getNewValue() == SwingWorker.StateValue.DONE) {
+                generateFinished(worker);
+            }
+        });
+
+        generateWorker = worker;
+        GenerateProgressBar.setValue(0);
+        GenerateStatusLabel.setText("Generating...");
+        ButtonGenerate.setEnabled(false);
+        ButtonCancelGenerate.setEnabled(true);
+        ButtonRecordPeriod.setEnabled(false);
+        worker.execute();
     }
 
     /**
-     * Calculates and writes Regular Pay, Overtime Pay, and Gross Pay to the CSV
-     * file.
+     * Shows the outcome of a finished generation run.
      */
-    private void calculateAndWritePay(FileWriter writer, DefaultTableModel tableModel1, DefaultTableModel tableModel2,
-            int row) throws IOException {
+    private void generateFinished(PayrollGenerateWorker worker) {
+        generateWorker = null;
+        ButtonGenerate.setEnabled(true);
+        ButtonCancelGenerate.setEnabled(false);
+        ButtonRecordPeriod.setEnabled(true);
+
+        if (worker.isCancelled()) {
+            GenerateStatusLabel.setText("Generation cancelled. The processed file was not changed.");
+            return;
+        }
+
+        List<String[]> processedRows;
         try {
-            String departmentCode = tableModel2.getValueAt(row, 3).toString();
-            int departmentRowIndex = findDepartmentRowIndex(tableModel1, departmentCode);
-
-            if (departmentRowIndex != -1) {
-                // Calculate Regular Pay
-                double regularPay = Double.parseDouble(tableModel2.getValueAt(row, 5).toString())
-                        * Double.parseDouble(tableModel1.getValueAt(departmentRowIndex, 2).toString());
-                writer.append(",").append(String.valueOf(regularPay));
-
-                // Calculate Overtime Pay
-                double hoursWorked = Double.parseDouble(tableModel2.getValueAt(row, 5).toString());
-                double overtimeRate = Double.parseDouble(tableModel1.getValueAt(departmentRowIndex, 3).toString());
-                double overtimePay = (hoursWorked > 40) ? (hoursWorked - 40) * overtimeRate : 0;
-                writer.append(",").append(String.valueOf(overtimePay));
-
-                // Calculate Gross Pay
-                double grossPay = regularPay + overtimePay;
-
-                writer.append(",").append(String.valueOf(grossPay));
-                writer.append("\n");
-            } else {
-                System.err.println("Department code not found in tableModel1: " + departmentCode);
-            }
-        } catch (NullPointerException | NumberFormatException e) {
-            // Handle exceptions if needed
+            processedRows = worker.get();
+        } catch (InterruptedException | ExecutionException e) {
             e.printStackTrace();
+            GenerateStatusLabel.setText("Generation failed.");
+            JOptionPane.showMessageDialog(this, "Error generating the CSV file.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        // Update the recomputed rows of ProcessedModel, load the processed rows
+        // into it, or page a large processed file from disk
+        if (worker.isPatch()) {
+            ProcessedModel.replaceRows(worker.getPatchedRows());
+        } else {
+            ProcessedModel.setRows(new String[0], new ArrayList<>());
+            showModel(ProcessedTable, ProcessedModel, processedSorter);
+            if (processedRows == null) {
+                try {
+                    showModel(ProcessedTable, new PagedCsvTableModel(worker.getProcessedFile()), processedSorter);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            } else if (!processedRows.isEmpty()) {
+                ProcessedModel.setRows(processedRows.get(0), processedRows.subList(1, processedRows.size()));
+            }
         }
+        GenerateStatusLabel.setText(String.format("%s (%,.0f rows/s)", worker.getSummary(),
+                worker.getRowsPerSecond()));
+        showDepartmentTotals(worker.getSummary().getDepartmentTotals());
+
+        if (!worker.getIssues().isEmpty()) {
+            displayErrorReport(worker);
+        }
+        displayConfirmationMessage(worker.getProcessedFile());
+
+        if (debug)
+            System.out.println("CSV file generated successfully.");
     }
 
     /**
-     * Finds the row index of a department in the given DefaultTableModel based on
-     * the department code.
-     * 
-     * @param model          The DefaultTableModel to search.
-     * @param departmentCode The department code to find.
-     * @return The index of the row if found, otherwise -1.
+     * Shows the department totals of a run in DepartmentModel.
      */
-    private int findDepartmentRowIndex(DefaultTableModel model, String departmentCode) {
-        for (int row = 0; row < model.getRowCount(); row++) {
-            if (departmentCode.equals(model.getValueAt(row, 0).toString())) {
-                return row; // Found the row
+    private void showDepartmentTotals(DepartmentTotals totals) {
+        List<String[]> rows = new ArrayList<>(totals.size());
+        for (int i = 0; i < totals.size(); i++) {
+            rows.add(totals.cells(i));
+        }
+        DepartmentModel.setRows(rows);
+    }
+
+    /**
+     * Displays all problems found during a generation run in a single dialog:
+     * the number of problems of each kind, then the problems themselves.
+     *
+     * @param worker The finished generation run.
+     */
+    private void displayErrorReport(PayrollGenerateWorker worker) {
+        List<ValidationIssue> issues = worker.getIssues();
+        StringBuilder counts = new StringBuilder();
+        for (ValidationIssue.Kind kind : ValidationIssue.Kind.values()) {
+            int count = worker.getIssueCount(kind);
+            if (count > 0) {
+                counts.append(counts.length() > 0 ? ", " : "").append(count).append(' ')
+                        .append(kind.name().toLowerCase().replace('_', ' '));
             }
         }
-        return -1; // Not found
+        StringBuilder report = new StringBuilder();
+        int shown = Math.min(issues.size(), MAX_REPORTED_ERRORS);
+        for (int i = 0; i < shown; i++) {
+            report.append(issues.get(i)).append('\n');
+        }
+        if (issues.size() > shown) {
+            report.append("... and ").append(issues.size() - shown).append(" more\n");
+        }
+
+        List<Object> message = new ArrayList<>();
+        message.add(worker.getSummary().toString());
+        message.add("Problems found: " + counts);
+        if (worker.getRejectFile().exists()) {
+            message.add("Rejected rows were written to " + worker.getRejectFile().getAbsolutePath());
+        }
+        JTextArea textArea = new JTextArea(report.toString(), 15, 60);
+        textArea.setEditable(false);
+        message.add(new JScrollPane(textArea));
+        JOptionPane.showMessageDialog(this, message.toArray(), "Rows skipped", JOptionPane.WARNING_MESSAGE);
     }
 
     /**
@@ -299,12 +751,71 @@ public class PayrollDashboard extends javax.swing.JFrame { // class 1
     }
 
     /**
-     * Adds a new empty row to the specified DefaultTableModel.
+     * Records the processed file as a pay period of the payroll history, then
+     * shows the year-to-date totals of every department for its year.
+     */
+    private void recordPayPeriod() {
+        File processedFile = new File(defaultCSVPathProcessed);
+        if (!processedFile.exists()) {
+            JOptionPane.showMessageDialog(this, "Generate the processed file first.", "Record Pay Period",
+                    JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        Object answer = JOptionPane.showInputDialog(this, "Pay date of the period (YYYY-MM-DD):",
+                "Record Pay Period", JOptionPane.QUESTION_MESSAGE, null, null, LocalDate.now().toString());
+        if (answer == null) {
+            return;
+        }
+        LocalDate payDate;
+        try {
+            payDate = LocalDate.parse(answer.toString().trim());
+        } catch (DateTimeParseException e) {
+            JOptionPane.showMessageDialog(this, "Invalid pay date: " + answer, "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        PayrollHistory history = new PayrollHistory(processedFile);
+        try {
+            int period = history.recordPeriod(payDate);
+            GenerateStatusLabel.setText("Recorded pay period " + period + " (" + payDate + ").");
+            displayYearToDate(history.departmentTotals(payDate.getYear()), payDate.getYear());
+        } catch (IOException e) {
+            e.printStackTrace();
+            JOptionPane.showMessageDialog(this, "Error recording the pay period:\n" + e.getMessage(), "Error",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Displays the year-to-date totals of every department in a table.
+     */
+    private void displayYearToDate(List<PayrollHistory.Totals> departments, int year) {
+        List<String[]> rows = new ArrayList<>(departments.size());
+        for (PayrollHistory.Totals totals : departments) {
+            rows.add(new String[] { String.valueOf(totals.getId()), String.valueOf(totals.getCount()),
+                    FixedPoint.toDecimalString(totals.getHoursWorked()),
+                    FixedPoint.toDecimalString(totals.getOvertimeHours()),
+                    FixedPoint.toMoneyString(totals.getRegularPay()),
+                    FixedPoint.toMoneyString(totals.getOvertimePay()),
+                    FixedPoint.toMoneyString(totals.getGrossPay()) });
+        }
+        CsvTableModel model = new CsvTableModel(new String[] { "Dept. Code", "Payments", "Hours",
+                "Overtime Hours", "Regular Pay", "Overtime Pay", "Gross Pay" }, false);
+        model.setRows(rows);
+        JTable table = new JTable(model);
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setPreferredSize(new Dimension(640, 240));
+        JOptionPane.showMessageDialog(this, scrollPane, "Year to Date " + year + " by Department",
+                JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    /**
+     * Adds a new empty row to the specified CsvTableModel.
      * 
-     * @param Model The DefaultTableModel to which a new row will be added.
+     * @param Model The CsvTableModel to which a new row will be added.
      */
-    private void addNewRow(DefaultTableModel Model) {
-        Object[] emptyRow = new Object[Model.getColumnCount()];
+    private void addNewRow(CsvTableModel Model) {
+        String[] emptyRow = new String[Model.getColumnCount()];
         Model.addRow(emptyRow);
     }
 
@@ -371,11 +882,25 @@ public class PayrollDashboard extends javax.swing.JFrame { // class 1
         ButtonUpdateRecord2 = new javax.swing.JButton();
         selectedFileLabel2 = new javax.swing.JLabel();
         ButtonDuplicate = new javax.swing.JButton();
+        FindEmployeeLabel = new javax.swing.JLabel();
+        FindEmployeeField = new javax.swing.JTextField();
+        ButtonFindEmployee = new javax.swing.JButton();
+        FilterLabel = new javax.swing.JLabel();
+        FilterColumnComboBox = new javax.swing.JComboBox<>();
+        FilterField = new javax.swing.JTextField();
         ProcessedDataPanel = new javax.swing.JPanel();
         jLabel1 = new javax.swing.JLabel();
         ButtonGenerate = new javax.swing.JButton();
+        GenerateProgressBar = new javax.swing.JProgressBar();
+        ButtonCancelGenerate = new javax.swing.JButton();
+        GenerateStatusLabel = new javax.swing.JLabel();
+        ButtonRecordPeriod = new javax.swing.JButton();
         ProcessedScrollPane = new javax.swing.JScrollPane();
         ProcessedTable = new javax.swing.JTable();
+        DepartmentSummaryPanel = new javax.swing.JPanel();
+        DepartmentSummaryLabel = new javax.swing.JLabel();
+        DepartmentScrollPane = new javax.swing.JScrollPane();
+        DepartmentTable = new javax.swing.JTable();
         ExitButton = new javax.swing.JButton();
 
         setDefaultCloseOperation(javax.swing.WindowConstants.EXIT_ON_CLOSE);
@@ -519,7 +1044,7 @@ public class PayrollDashboard extends javax.swing.JFrame { // class 1
 
         SSNPanel.addTab("Department Rates", DeptRatesPanel);
 
-        EmpDataTable.setModel(PayrollModel);
+        EmpDataTable.setModel(getPayrollTableModel());
         ScrollPaneEmpData.setViewportView(EmpDataTable);
 
         javax.swing.GroupLayout EmpDataPanelTableLayout = new javax.swing.GroupLayout(EmpDataPanelTable);
@@ -576,6 +1101,37 @@ public class PayrollDashboard extends javax.swing.JFrame { // class 1
             }
         });
 
+        FindEmployeeLabel.setText("ID. No:");
+
+        FindEmployeeField.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                FindEmployeeFieldActionPerformed(evt);
+            }
+        });
+
+        ButtonFindEmployee.setFont(new java.awt.Font("Segoe UI", Font.PLAIN, 11)); // NOI18N
+        ButtonFindEmployee.setText("Find");
+        ButtonFindEmployee.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                ButtonFindEmployeeActionPerformed(evt);
+            }
+        });
+
+        FilterLabel.setText("Filter:");
+
+        FilterColumnComboBox.setModel(new javax.swing.DefaultComboBoxModel<>(getFilterColumnNames()));
+        FilterColumnComboBox.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                FilterColumnComboBoxActionPerformed(evt);
+            }
+        });
+
+        FilterField.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                FilterFieldActionPerformed(evt);
+            }
+        });
+
         javax.swing.GroupLayout EmpDataButtonPanelLayout = new javax.swing.GroupLayout(EmpDataButtonPanel);
         EmpDataButtonPanel.setLayout(EmpDataButtonPanelLayout);
         EmpDataButtonPanelLayout.setHorizontalGroup(
@@ -588,7 +1144,25 @@ public class PayrollDashboard extends javax.swing.JFrame { // class 1
                                                 .addComponent(selectedFileLabel2,
                                                         javax.swing.GroupLayout.PREFERRED_SIZE, 330,
                                                         javax.swing.GroupLayout.PREFERRED_SIZE)
-                                                .addContainerGap(javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE))
+                                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED,
+                                                        javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
+                                                .addComponent(FindEmployeeLabel)
+                                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                                .addComponent(FindEmployeeField, javax.swing.GroupLayout.PREFERRED_SIZE,
+                                                        100, javax.swing.GroupLayout.PREFERRED_SIZE)
+                                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                                .addComponent(ButtonFindEmployee,
+                                                        javax.swing.GroupLayout.PREFERRED_SIZE, 80,
+                                                        javax.swing.GroupLayout.PREFERRED_SIZE))
+                                        .addGroup(EmpDataButtonPanelLayout.createSequentialGroup()
+                                                .addComponent(FilterLabel)
+                                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                                .addComponent(FilterColumnComboBox,
+                                                        javax.swing.GroupLayout.PREFERRED_SIZE, 140,
+                                                        javax.swing.GroupLayout.PREFERRED_SIZE)
+                                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                                .addComponent(FilterField, javax.swing.GroupLayout.DEFAULT_SIZE, 200,
+                                                        Short.MAX_VALUE))
                                         .addGroup(EmpDataButtonPanelLayout.createSequentialGroup()
                                                 .addComponent(fileChooseButton2, javax.swing.GroupLayout.PREFERRED_SIZE,
                                                         154, javax.swing.GroupLayout.PREFERRED_SIZE)
@@ -611,7 +1185,24 @@ public class PayrollDashboard extends javax.swing.JFrame { // class 1
                 EmpDataButtonPanelLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
                         .addGroup(javax.swing.GroupLayout.Alignment.TRAILING, EmpDataButtonPanelLayout
                                 .createSequentialGroup()
-                                .addComponent(selectedFileLabel2)
+                                .addGroup(EmpDataButtonPanelLayout
+                                        .createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                                        .addComponent(selectedFileLabel2)
+                                        .addComponent(FindEmployeeLabel)
+                                        .addComponent(FindEmployeeField, javax.swing.GroupLayout.PREFERRED_SIZE,
+                                                javax.swing.GroupLayout.DEFAULT_SIZE,
+                                                javax.swing.GroupLayout.PREFERRED_SIZE)
+                                        .addComponent(ButtonFindEmployee))
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                .addGroup(EmpDataButtonPanelLayout
+                                        .createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                                        .addComponent(FilterLabel)
+                                        .addComponent(FilterColumnComboBox, javax.swing.GroupLayout.PREFERRED_SIZE,
+                                                javax.swing.GroupLayout.DEFAULT_SIZE,
+                                                javax.swing.GroupLayout.PREFERRED_SIZE)
+                                        .addComponent(FilterField, javax.swing.GroupLayout.PREFERRED_SIZE,
+                                                javax.swing.GroupLayout.DEFAULT_SIZE,
+                                                javax.swing.GroupLayout.PREFERRED_SIZE))
                                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED,
                                         javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
                                 .addGroup(EmpDataButtonPanelLayout
@@ -665,6 +1256,27 @@ public class PayrollDashboard extends javax.swing.JFrame { // class 1
             }
         });
 
+        GenerateProgressBar.setStringPainted(true);
+
+        ButtonCancelGenerate.setFont(new java.awt.Font("Segoe UI", Font.PLAIN, 11)); // NOI18N
+        ButtonCancelGenerate.setText("Cancel");
+        ButtonCancelGenerate.setEnabled(false);
+        ButtonCancelGenerate.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                ButtonCancelGenerateActionPerformed(evt);
+            }
+        });
+
+        GenerateStatusLabel.setText(" ");
+
+        ButtonRecordPeriod.setFont(new java.awt.Font("Segoe UI", Font.PLAIN, 11)); // NOI18N
+        ButtonRecordPeriod.setText("Record Pay Period");
+        ButtonRecordPeriod.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                ButtonRecordPeriodActionPerformed(evt);
+            }
+        });
+
         // Set the model for the ProcessedTable to the ProcessedModel
         ProcessedTable.setModel(ProcessedModel);
         // Make the ProcessedTable scrollable within the ProcessedScrollPane
@@ -691,7 +1303,27 @@ public class PayrollDashboard extends javax.swing.JFrame { // class 1
                                                 // Set the ButtonGenerate size and position
                                                 .addComponent(ButtonGenerate, javax.swing.GroupLayout.Alignment.LEADING,
                                                         javax.swing.GroupLayout.DEFAULT_SIZE,
-                                                        javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE))
+                                                        javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
+                                                // Place the progress bar next to the cancel button
+                                                .addGroup(javax.swing.GroupLayout.Alignment.LEADING,
+                                                        ProcessedDataPanelLayout.createSequentialGroup()
+                                                                .addComponent(GenerateProgressBar,
+                                                                        javax.swing.GroupLayout.DEFAULT_SIZE,
+                                                                        javax.swing.GroupLayout.DEFAULT_SIZE,
+                                                                        Short.MAX_VALUE)
+                                                                .addGap(18, 18, 18)
+                                                                .addComponent(ButtonCancelGenerate,
+                                                                        javax.swing.GroupLayout.PREFERRED_SIZE, 80,
+                                                                        javax.swing.GroupLayout.PREFERRED_SIZE))
+                                                // Place the status label next to the record button
+                                                .addGroup(javax.swing.GroupLayout.Alignment.LEADING,
+                                                        ProcessedDataPanelLayout.createSequentialGroup()
+                                                                .addComponent(GenerateStatusLabel,
+                                                                        javax.swing.GroupLayout.DEFAULT_SIZE,
+                                                                        javax.swing.GroupLayout.DEFAULT_SIZE,
+                                                                        Short.MAX_VALUE)
+                                                                .addGap(18, 18, 18)
+                                                                .addComponent(ButtonRecordPeriod)))
                                         .addContainerGap()));
         ProcessedDataPanelLayout.setVerticalGroup(
                 ProcessedDataPanelLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
@@ -703,6 +1335,19 @@ public class PayrollDashboard extends javax.swing.JFrame { // class 1
                                 // Set the ButtonGenerate position and size
                                 .addComponent(ButtonGenerate)
                                 .addGap(18, 18, 18)
+                                // Set the progress bar, cancel button and status label positions
+                                .addGroup(ProcessedDataPanelLayout
+                                        .createParallelGroup(javax.swing.GroupLayout.Alignment.CENTER)
+                                        .addComponent(GenerateProgressBar, javax.swing.GroupLayout.PREFERRED_SIZE,
+                                                javax.swing.GroupLayout.DEFAULT_SIZE,
+                                                javax.swing.GroupLayout.PREFERRED_SIZE)
+                                        .addComponent(ButtonCancelGenerate))
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                .addGroup(ProcessedDataPanelLayout
+                                        .createParallelGroup(javax.swing.GroupLayout.Alignment.CENTER)
+                                        .addComponent(GenerateStatusLabel)
+                                        .addComponent(ButtonRecordPeriod))
+                                .addGap(18, 18, 18)
                                 // Make the ProcessedScrollPane take the remaining vertical space
                                 .addComponent(ProcessedScrollPane, javax.swing.GroupLayout.DEFAULT_SIZE, 365,
                                         Short.MAX_VALUE)
@@ -711,6 +1356,38 @@ public class PayrollDashboard extends javax.swing.JFrame { // class 1
         // Add the ProcessedDataPanel as a tab in the SSNPanel
         SSNPanel.addTab("Processed Data", ProcessedDataPanel);
 
+        DepartmentSummaryLabel.setFont(new java.awt.Font("Segoe UI", Font.BOLD, 18)); // NOI18N
+        DepartmentSummaryLabel.setHorizontalAlignment(javax.swing.SwingConstants.CENTER);
+        DepartmentSummaryLabel.setText("Department Totals of the Last Run");
+
+        // The totals are filled in when a generation run completes
+        DepartmentTable.setModel(DepartmentModel);
+        DepartmentScrollPane.setViewportView(DepartmentTable);
+
+        javax.swing.GroupLayout DepartmentSummaryPanelLayout = new javax.swing.GroupLayout(DepartmentSummaryPanel);
+        DepartmentSummaryPanel.setLayout(DepartmentSummaryPanelLayout);
+        DepartmentSummaryPanelLayout.setHorizontalGroup(
+                DepartmentSummaryPanelLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
+                        .addGroup(DepartmentSummaryPanelLayout.createSequentialGroup()
+                                .addContainerGap()
+                                .addGroup(DepartmentSummaryPanelLayout
+                                        .createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
+                                        .addComponent(DepartmentSummaryLabel, javax.swing.GroupLayout.DEFAULT_SIZE,
+                                                610, Short.MAX_VALUE)
+                                        .addComponent(DepartmentScrollPane))
+                                .addContainerGap()));
+        DepartmentSummaryPanelLayout.setVerticalGroup(
+                DepartmentSummaryPanelLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
+                        .addGroup(DepartmentSummaryPanelLayout.createSequentialGroup()
+                                .addGap(17, 17, 17)
+                                .addComponent(DepartmentSummaryLabel)
+                                .addGap(18, 18, 18)
+                                .addComponent(DepartmentScrollPane, javax.swing.GroupLayout.DEFAULT_SIZE, 365,
+                                        Short.MAX_VALUE)
+                                .addContainerGap()));
+
+        SSNPanel.addTab("Department Summary", DepartmentSummaryPanel);
+
         // Create and configure the ExitButton
         ExitButton.setBackground(new java.awt.Color(196, 43, 28));
         ExitButton.setFont(new java.awt.Font("Segoe UI", Font.BOLD, 14)); // NOI18N
@@ -781,15 +1458,13 @@ public class PayrollDashboard extends javax.swing.JFrame { // class 1
         // Get the selected row in EmpDataTable
         int selectedRow = EmpDataTable.getSelectedRow();
         if (selectedRow != -1) { // Check if a row is selected
-            Object[] rowData = new Object[PayrollModel.getColumnCount()];
-
-            // Copy data from selected row to rowData
-            for (int i = 0; i < PayrollModel.getColumnCount(); i++) {
-                rowData[i] = PayrollModel.getValueAt(selectedRow, i);
-            }
-
+            selectedRow = EmpDataTable.convertRowIndexToModel(selectedRow);
             // Add a new row with duplicated data to PayrollModel
-            PayrollModel.addRow(rowData);
+            if (LargePayrollModel != null) {
+                LargePayrollModel.duplicateRow(selectedRow);
+            } else {
+                PayrollModel.duplicateRow(selectedRow);
+            }
         } else {
             // Show a warning if no row is selected
             JOptionPane.showMessageDialog(this, "Please select a row to duplicate.", "Warning",
@@ -797,6 +1472,26 @@ public class PayrollDashboard extends javax.swing.JFrame { // class 1
         }
     }
 
+    // Find button action performed when clicked in EmpDataTable
+    private void ButtonFindEmployeeActionPerformed(java.awt.event.ActionEvent evt) {
+        findEmployee();
+    }
+
+    // Enter pressed in the find box of EmpDataTable
+    private void FindEmployeeFieldActionPerformed(java.awt.event.ActionEvent evt) {
+        findEmployee();
+    }
+
+    // Filter column chosen in EmpDataTable
+    private void FilterColumnComboBoxActionPerformed(java.awt.event.ActionEvent evt) {
+        applyFilter();
+    }
+
+    // Enter pressed in the filter box of EmpDataTable
+    private void FilterFieldActionPerformed(java.awt.event.ActionEvent evt) {
+        applyFilter();
+    }
+
     // Update button action performed when clicked in EmpDataTable
     private void ButtonUpdateRecord2ActionPerformed(java.awt.event.ActionEvent evt) {
         // Check if a custom file name is provided; if not, use the default file path
@@ -811,7 +1506,11 @@ public class PayrollDashboard extends javax.swing.JFrame { // class 1
             try {
                 File selectedFile = new File(fileName2);
                 // Save the content of the table to the selected CSV file
-                saveCSVFile(selectedFile, PayrollModel);
+                if (LargePayrollModel != null) {
+                    saveLargePayrollFile(selectedFile);
+                } else {
+                    saveTable(selectedFile, PayrollModel, payrollLog);
+                }
             } catch (Exception e) {
                 // Display an error message if no file was selected
                 JOptionPane.showMessageDialog(this, "No file was selected!");
@@ -825,18 +1524,24 @@ public class PayrollDashboard extends javax.swing.JFrame { // class 1
     // Delete button action performed when clicked in EmpDataTable
     private void ButtonDeleteRecord2ActionPerformed(java.awt.event.ActionEvent evt) {
         // Get the selected rows in EmpDataTable
-        int[] selectedRows = EmpDataTable.getSelectedRows();
+        int[] selectedRows = toModelRows(EmpDataTable);
 
-        // Delete rows from PayrollModel
-        for (int i = selectedRows.length - 1; i >= 0; i--) {
-            PayrollModel.removeRow(selectedRows[i]);
+        // Delete rows from PayrollModel, with one event per run of consecutive rows
+        if (LargePayrollModel != null) {
+            LargePayrollModel.removeRows(selectedRows);
+        } else {
+            PayrollModel.removeRows(selectedRows);
         }
     }
 
     // Add Row button action performed when clicked in EmpDataTable
     private void ButtonAddRow2ActionPerformed(java.awt.event.ActionEvent evt) {
         // Add a new row to PayrollModel
-        addNewRow(PayrollModel);
+        if (LargePayrollModel != null) {
+            LargePayrollModel.addRow(new String[LargePayrollModel.getColumnCount()]);
+        } else {
+            PayrollModel.addRow(new String[PayrollModel.getColumnCount()]);
+        }
     }
 
     // Choose File button action performed when clicked in EmpDataTable
@@ -853,7 +1558,7 @@ public class PayrollDashboard extends javax.swing.JFrame { // class 1
                 System.out.println("PATH: " + fileName2);
             selectedFileLabel2.setText(selectedFile.getName());
             // Load the content of the selected CSV file into PayrollModel
-            loadCSVFile(selectedFile, PayrollModel);
+            loadPayrollFile(selectedFile);
         }
     }
 
@@ -891,7 +1596,7 @@ public class PayrollDashboard extends javax.swing.JFrame { // class 1
             try {
                 File selectedFile = new File(fileName);
                 // Save the content of the table to the selected CSV file
-                saveCSVFile(selectedFile, RatesModel);
+                saveTable(selectedFile, RatesModel, ratesLog);
             } catch (Exception e) {
                 // Display an error message if no file was selected
                 JOptionPane.showMessageDialog(this, "No file was selected!");
@@ -905,12 +1610,10 @@ public class PayrollDashboard extends javax.swing.JFrame { // class 1
     // Delete button action performed when clicked in RatesTable
     private void ButtonDeleteRecordActionPerformed(java.awt.event.ActionEvent evt) {
         // Get the selected rows in RatesTable
-        int[] selectedRows = RatesTable.getSelectedRows();
+        int[] selectedRows = toModelRows(RatesTable);
 
-        // Delete rows from RatesModel
-        for (int i = selectedRows.length - 1; i >= 0; i--) {
-            RatesModel.removeRow(selectedRows[i]);
-        }
+        // Delete rows from RatesModel, with one event per run of consecutive rows
+        RatesModel.removeRows(selectedRows);
     }
 
     // Add Row button action performed when clicked in RatesTable
@@ -933,29 +1636,49 @@ public class PayrollDashboard extends javax.swing.JFrame { // class 1
                 System.out.println("PATH: " + fileName);
             selectedFileLabel.setText(selectedFile.getName());
             // Load the content of the selected CSV file into RatesModel
-            loadCSVFile(selectedFile, RatesModel);
+            loadRatesFile(selectedFile);
         }
     }
 
     // Generate button action performed when clicked
     private void ButtonGenerateActionPerformed(java.awt.event.ActionEvent evt) {
-        // Generate a CSV file using data from RatesModel and PayrollModel
-        generateCSV(RatesModel, PayrollModel);
-        // Load the processed CSV file into ProcessedModel
-        File processedCSV = new File(defaultCSVPathProcessed);
-        loadCSVFile(processedCSV, ProcessedModel);
+        // Generate a CSV file using data from RatesModel and PayrollModel;
+        // the processed file is loaded into ProcessedModel when the run is done
+        generateCSV(RatesModel, getPayrollTableModel());
+    }
+
+    // Cancel button action performed when clicked during generation
+    private void ButtonCancelGenerateActionPerformed(java.awt.event.ActionEvent evt) {
+        if (generateWorker != null) {
+            generateWorker.cancel(false);
+        }
+    }
+
+    // Record Pay Period button action performed when clicked
+    private void ButtonRecordPeriodActionPerformed(java.awt.event.ActionEvent evt) {
+        recordPayPeriod();
     }
 
     // Exit button action performed when clicked
     private void ExitButtonActionPerformed(java.awt.event.ActionEvent evt) {
         // Exit the application
+        closeJournals();
         System.exit(0);
     }
 
     /**
+     * Starts the dashboard, or runs payroll headless when the first argument is
+     * {@code --batch} (see {@link PayrollBatch}).
+     *
      * @param args the command line arguments
      */
     public static void main(String[] args) {
+        // Run payroll from the command line without opening the dashboard
+        if (args.length > 0 && "--batch".equals(args[0])) {
+            PayrollBatch.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
         /* Set the Nimbus look and feel */
         // <editor-fold defaultstate="collapsed" desc=" Look and feel setting code
         // (optional) ">
@@ -990,14 +1713,21 @@ public class PayrollDashboard extends javax.swing.JFrame { // class 1
     // Variables declaration - do not modify//GEN-BEGIN:variables
     private javax.swing.JButton ButtonAddRow;
     private javax.swing.JButton ButtonAddRow2;
+    private javax.swing.JButton ButtonCancelGenerate;
     private javax.swing.JButton ButtonDeleteRecord;
     private javax.swing.JButton ButtonDeleteRecord2;
     private javax.swing.JButton ButtonDuplicate;
+    private javax.swing.JButton ButtonFindEmployee;
     private javax.swing.JButton ButtonGenerate;
+    private javax.swing.JButton ButtonRecordPeriod;
     private javax.swing.JButton ButtonSaveAs1;
     private javax.swing.JButton ButtonUpdateRecord;
     private javax.swing.JButton ButtonUpdateRecord2;
     private javax.swing.JLabel DashTitle;
+    private javax.swing.JScrollPane DepartmentScrollPane;
+    private javax.swing.JLabel DepartmentSummaryLabel;
+    private javax.swing.JPanel DepartmentSummaryPanel;
+    private javax.swing.JTable DepartmentTable;
     private javax.swing.JPanel DeptRatesButtonPanel;
     private javax.swing.JPanel DeptRatesPanel;
     private javax.swing.JPanel DeptRatesPanelTable;
@@ -1005,6 +1735,13 @@ public class PayrollDashboard extends javax.swing.JFrame { // class 1
     private javax.swing.JPanel EmpDataPanelTable;
     private javax.swing.JTable EmpDataTable;
     private javax.swing.JButton ExitButton;
+    private javax.swing.JComboBox<String> FilterColumnComboBox;
+    private javax.swing.JTextField FilterField;
+    private javax.swing.JLabel FilterLabel;
+    private javax.swing.JTextField FindEmployeeField;
+    private javax.swing.JLabel FindEmployeeLabel;
+    private javax.swing.JProgressBar GenerateProgressBar;
+    private javax.swing.JLabel GenerateStatusLabel;
     private javax.swing.JPanel PanelEmpData;
     private javax.swing.JPanel ProcessedDataPanel;
     private javax.swing.JScrollPane ProcessedScrollPane;
@@ -0,0 +1,108 @@
+package payrollmanagementsystem;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Computes regular, overtime and gross pay for employees from the department
+ * rates. The engine has no dependency on Swing, so it can be driven either by
+ * the dashboard or by {@link PayrollBatch} on a headless server.
+ *
+ * Hours are in hundredths of an hour and rates and pay in cents. Regular and
+ * overtime pay are each rounded to the cent, and gross pay is their exact sum.
+ * Hours and rates beyond {@link #MAX_HOURS} and {@link #MAX_RATE} are rejected
+ * by the {@link PayrollValidator} before they reach the engine.
+ */
+public final class PayrollEngine {
+
+    // Hours above this threshold are additionally paid at the overtime rate
+    public static final long OVERTIME_THRESHOLD = FixedPoint.of(40);
+
+    // Largest hours and rates paid: the pay of a row stays far below the range
+    // of a long, and so do the totals of a run of millions of rows
+    public static final long MAX_HOURS = FixedPoint.of(10_000);
+    public static final long MAX_RATE = FixedPoint.of(1_000_000);
+
+    private final RateIndex rates;
+
+    /**
+     * Creates an engine for the given department rates. If a department code
+     * appears more than once, the first entry wins, as it did in the table scan.
+     */
+    public PayrollEngine(Collection<DepartmentRate> departmentRates) {
+        this(new RateIndex(departmentRates));
+    }
+
+    /**
+     * Creates an engine sharing an already built rate index.
+     */
+    public PayrollEngine(RateIndex rates) {
+        this.rates = rates;
+    }
+
+    public RateIndex getRateIndex() {
+        return rates;
+    }
+
+    /**
+     * Calculates the pay of a single employee.
+     *
+     * @return The processed employee, or null if the department code is unknown.
+     */
+    public ProcessedEmployee calculate(Employee employee) {
+        int department = rates.indexOf(employee.getDepartmentCode());
+        if (department == -1) {
+            return null;
+        }
+
+        long regularPay = regularPay(department, employee.getHoursWorked());
+        long overtimePay = overtimePay(department, employee.getHoursWorked());
+        return new ProcessedEmployee(employee, regularPay, overtimePay, regularPay + overtimePay);
+    }
+
+    /**
+     * Returns the position of a department in the rate index, or -1 if the
+     * department code is unknown.
+     */
+    public int departmentIndex(int departmentCode) {
+        return rates.indexOf(departmentCode);
+    }
+
+    /**
+     * Calculates the regular pay for the hours worked in a department, given by
+     * its position in the rate index. All hours are paid at the regular rate.
+     */
+    public long regularPay(int department, long hoursWorked) {
+        return FixedPoint.multiply(hoursWorked, rates.regularRate(department));
+    }
+
+    /**
+     * Calculates the overtime pay for the hours worked in a department, given by
+     * its position in the rate index. Hours above the threshold are paid again
+     * at the overtime rate.
+     */
+    public long overtimePay(int department, long hoursWorked) {
+        return (hoursWorked > OVERTIME_THRESHOLD)
+                ? FixedPoint.multiply(hoursWorked - OVERTIME_THRESHOLD, rates.overtimeRate(department))
+                : 0;
+    }
+
+    /**
+     * Calculates the pay of every employee and hands each result to the sink in
+     * input order. Employees with an unknown department are skipped and counted.
+     */
+    public PayrollRunSummary run(Iterable<Employee> employees, Consumer<ProcessedEmployee> sink) {
+        PayrollRunSummary summary = new PayrollRunSummary();
+        for (Employee employee : employees) {
+            ProcessedEmployee processed = calculate(employee);
+            if (processed != null) {
+                sink.accept(processed);
+                summary.processed(employee.getDepartmentCode(), employee.getHoursWorked(),
+                        processed.getRegularPay(), processed.getOvertimePay());
+            } else {
+                summary.unknownDepartment(employee.getDepartmentCode());
+            }
+        }
+        return summary;
+    }
+}
@@ -0,0 +1,427 @@
+package payrollmanagementsystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import javax.swing.SwingWorker;
+import javax.swing.table.TableModel;
+
+/**
+ * Generates the processed payroll file in the background so the dashboard
+ * stays responsive. The rates table and the employee store are copied on the
+ * Event Dispatch Thread when the worker is created; pay calculation and
+ * writing happen on the worker thread.
+ *
+ * Progress is reported through the "progress" property (0-100) and the
+ * {@link #ROWS_PROPERTY} property (rows done). Both inputs are checked by a
+ * {@link PayrollValidator} before pay is computed; problems with individual
+ * rows do not interrupt the run. They are collected and can be read with
+ * {@link #getIssues()} once the worker is done, and the rejected employee rows
+ * are written to the reject file of the processed file (see
+ * {@link #getRejectFile()}). The result is the content of
+ * the processed file, ready to be shown in a table, except for paged input;
+ * the rows are collected as they are written, so the file is not read back.
+ *
+ * With a {@link PayrollChangeTracker}, only the employees that were edited
+ * since the last run and the employees of departments whose rates changed are
+ * recomputed; the pay of all other rows is taken from the last run. If no rows
+ * were added, deleted or changed between paid and rejected, the result is null
+ * and {@link #isPatch()} is true: the processed table only needs the rows
+ * returned by {@link #getPatchedRows()} replaced.
+ *
+ * The department totals of the run, see {@link #getSummary()}, are written
+ * next to the processed file. Completed runs are recorded in
+ * {@link PayrollMetrics} and in the {@link PayrollRunReport} of the processed
+ * file.
+ */
+public class PayrollGenerateWorker extends SwingWorker<List<String[]>, Void> {
+
+    public static final String ROWS_PROPERTY = "rows";
+
+    // Minimum time between two progress updates
+    private static final long PROGRESS_INTERVAL_NANOS = 100_000_000L;
+
+    private final String[][] rateRows;
+    // Exactly one of the two employee sources is set
+    private final EmployeeStore employees;
+    private final PagedCsvTableModel.Snapshot pagedEmployees;
+    private final int totalRows;
+    private final File processedFile;
+
+    // Incremental runs only: the tracker, the results of the last run and the
+    // rates it used, or null if the rates have not been edited since
+    private final PayrollChangeTracker tracker;
+    private final PayrollResults previousResults;
+    private final RateIndex previousRates;
+    private final boolean rowsMoved;
+
+    private PayrollResults results;
+    private RateIndex rates;
+    private boolean patch;
+    private final Map<Integer, String[]> patchedRows = new LinkedHashMap<>();
+    // Cells of the processed file, collected as its rows are written
+    private List<String[]> processedRows;
+    private volatile boolean completed;
+
+    private final PayrollValidator validator = new PayrollValidator();
+    private CsvWriter rejects;
+    private final PayrollRunSummary summary = new PayrollRunSummary();
+    private volatile double rowsPerSecond;
+    private long startNanos;
+    private long lastUpdateNanos;
+    // Time and bytes spent copying the tables on the Event Dispatch Thread
+    private long copyNanos;
+    private long copyAllocatedBytes;
+
+    /**
+     * Creates the worker. Must be called on the Event Dispatch Thread, since it
+     * copies the contents of both tables.
+     */
+    public PayrollGenerateWorker(TableModel ratesModel, EmployeeTableModel payrollModel, File processedFile) {
+        this(ratesModel, payrollModel, null, processedFile);
+    }
+
+    /**
+     * Creates a worker that only recomputes the rows the tracker has seen
+     * change since the last run, or every row if there was no last run. Must
+     * be called on the Event Dispatch Thread.
+     */
+    public PayrollGenerateWorker(TableModel ratesModel, EmployeeTableModel payrollModel,
+            PayrollChangeTracker tracker, File processedFile) {
+        long allocatedBefore = PayrollMetrics.allocatedBytes();
+        long copyStart = System.nanoTime();
+        this.rateRows = snapshot(ratesModel, PayrollCsv.RATES_HEADERS.length);
+        this.employees = payrollModel.getStore().copy();
+        this.pagedEmployees = null;
+        this.totalRows = employees.size();
+        this.processedFile = processedFile;
+        this.tracker = tracker;
+        if (tracker != null) {
+            this.rowsMoved = tracker.haveRowsMoved();
+            this.previousRates = tracker.getPreviousRates();
+            this.previousResults = tracker.startRun();
+        } else {
+            this.rowsMoved = false;
+            this.previousRates = null;
+            this.previousResults = null;
+        }
+        copied(copyStart, allocatedBefore);
+    }
+
+    /**
+     * Creates a worker for an employee file that is paged from disk. The rows
+     * are streamed from the file, and the result is null rather than the
+     * processed rows, which are expected to be paged from disk as well.
+     * Must be called on the Event Dispatch Thread.
+     */
+    public PayrollGenerateWorker(TableModel ratesModel, PagedCsvTableModel payrollModel, File processedFile) {
+        long allocatedBefore = PayrollMetrics.allocatedBytes();
+        long copyStart = System.nanoTime();
+        this.rateRows = snapshot(ratesModel, PayrollCsv.RATES_HEADERS.length);
+        this.employees = null;
+        this.pagedEmployees = payrollModel.snapshot();
+        this.totalRows = pagedEmployees.getRowCount();
+        this.processedFile = processedFile;
+        this.tracker = null;
+        this.previousResults = null;
+        this.previousRates = null;
+        this.rowsMoved = false;
+        copied(copyStart, allocatedBefore);
+    }
+
+    // Records the copying of the tables as part of the load phase
+    private void copied(long copyStart, long allocatedBefore) {
+        copyNanos = System.nanoTime() - copyStart;
+        copyAllocatedBytes = allocatedSince(allocatedBefore);
+        summary.time(PayrollRunSummary.Phase.LOAD, copyNanos);
+    }
+
+    // Returns the bytes the current thread allocated since the given count, or -1
+    private static long allocatedSince(long allocatedBefore) {
+        long allocated = PayrollMetrics.allocatedBytes();
+        return allocated >= 0 && allocatedBefore >= 0 ? allocated - allocatedBefore : -1;
+    }
+
+    @Override
+    protected List<String[]> doInBackground() throws IOException {
+        long allocatedBefore = PayrollMetrics.allocatedBytes();
+        startNanos = lastUpdateNanos = System.nanoTime();
+        rates = new RateIndex(validator.validateRates(rateRows));
+        PayrollEngine engine = new PayrollEngine(rates);
+        summary.time(PayrollRunSummary.Phase.VALIDATE, System.nanoTime() - startNanos);
+
+        try (CsvWriter writer = new CsvWriter(processedFile);
+                CsvWriter rejectWriter = new CsvWriter(getRejectFile())) {
+            PayrollCsv.writeProcessedHeader(writer);
+            rejectWriter.writeRow(PayrollValidator.REJECT_HEADERS);
+            rejects = rejectWriter;
+            try {
+                if (employees != null) {
+                    payStore(engine, writer);
+                } else {
+                    long payStart = System.nanoTime();
+                    payPagedRows(engine, writer);
+                    summary.time(PayrollRunSummary.Phase.COMPUTE, System.nanoTime() - payStart);
+                    summary.read(pagedEmployees.getFile().length());
+                }
+            } catch (CancellationException e) {
+                return null; // The writer discards the partial file
+            }
+            long commitStart = System.nanoTime();
+            writer.commit();
+            if (validator.getRejectedRows() > 0) {
+                rejectWriter.commit();
+            } else {
+                Files.deleteIfExists(getRejectFile().toPath()); // Left by an earlier run
+            }
+            summary.getDepartmentTotals().write(DepartmentTotals.fileFor(processedFile));
+            summary.time(PayrollRunSummary.Phase.WRITE, System.nanoTime() - commitStart);
+            summary.written(writer.getBytesWritten());
+        }
+        reportProgress(totalRows, System.nanoTime() - startNanos);
+        completed = true;
+
+        long allocated = allocatedSince(allocatedBefore);
+        summary.finish(copyNanos + System.nanoTime() - startNanos,
+                allocated >= 0 && copyAllocatedBytes >= 0 ? allocated + copyAllocatedBytes : -1);
+        PayrollMetrics.get().recordRun(summary);
+        try {
+            PayrollRunReport.append(processedFile, "dashboard", summary);
+        } catch (IOException e) {
+            e.printStackTrace(); // The run itself succeeded
+        }
+        return processedRows;
+    }
+
+    private void payStore(PayrollEngine engine, CsvWriter writer) throws IOException {
+        boolean incremental = previousResults != null && previousResults.size() == employees.size();
+        results = incremental ? previousResults : new PayrollResults(employees.size());
+        boolean[] changedRates = changedRates();
+        BitSet recomputed = new BitSet();
+        boolean layoutChanged = false;
+        long validateStart = System.nanoTime();
+        validator.validateEmployees(employees, rates);
+        long computeStart = System.nanoTime();
+        summary.time(PayrollRunSummary.Phase.VALIDATE, computeStart - validateStart);
+
+        for (int row = 0; row < employees.size(); row++) {
+            byte state = results.state(row);
+            if (!validator.isValid(row)) {
+                results.rejected(row);
+                layoutChanged |= state == PayrollResults.PAID;
+            } else if (results.isDirty(row) || needsRecompute(engine, row, state, changedRates)) {
+                calculate(engine, row);
+                recomputed.set(row);
+                layoutChanged |= (state == PayrollResults.PAID) != (results.state(row) == PayrollResults.PAID);
+            }
+        }
+
+        patch = incremental && !rowsMoved && !layoutChanged;
+        if (!patch) {
+            // Tee the rows to the table as well, so the file is not read back
+            processedRows = new ArrayList<>(employees.size() + 1);
+            processedRows.add(PayrollCsv.PROCESSED_HEADERS.clone());
+        }
+        long writeStart = System.nanoTime();
+        summary.time(PayrollRunSummary.Phase.COMPUTE, writeStart - computeStart);
+        int processedRow = 0;
+        for (int row = 0; row < employees.size(); row++) {
+            rowStarted(row);
+            if (results.state(row) == PayrollResults.PAID) {
+                long regularPay = results.regularPay(row);
+                long overtimePay = results.overtimePay(row);
+                PayrollCsv.writeProcessedRow(writer, employees, row, regularPay, overtimePay);
+                summary.processed(employees.getDepartmentCode(row), employees.getHoursWorked(row), regularPay,
+                        overtimePay);
+                if (processedRows != null) {
+                    processedRows.add(PayrollCsv.processedCells(employees, row, regularPay, overtimePay));
+                } else if (recomputed.get(row)) {
+                    patchedRows.put(processedRow, PayrollCsv.processedCells(employees, row, regularPay, overtimePay));
+                }
+                processedRow++;
+            } else {
+                reject(row, employees.getCells(row));
+            }
+        }
+        summary.time(PayrollRunSummary.Phase.WRITE, System.nanoTime() - writeStart);
+    }
+
+    /**
+     * Returns whether a valid row computed by the last run has to be
+     * recomputed because the rates of its department changed, or because it
+     * was rejected by the last run.
+     */
+    private boolean needsRecompute(PayrollEngine engine, int row, byte state, boolean[] changedRates) {
+        int department = engine.departmentIndex(employees.getDepartmentCode(row));
+        return state == PayrollResults.REJECTED || changedRates[department];
+    }
+
+    /**
+     * Returns, for every department of the current rates, whether its rates
+     * differ from the rates of the last run. Without previous rates, the rates
+     * were not edited and no department has changed.
+     */
+    private boolean[] changedRates() {
+        boolean[] changed = new boolean[rates.size()];
+        if (previousRates == null) {
+            return changed;
+        }
+        for (int i = 0; i < changed.length; i++) {
+            int previous = previousRates.indexOf(rates.department(i).getCode());
+            changed[i] = previous == -1
+                    || previousRates.regularRate(previous) != rates.regularRate(i)
+                    || previousRates.overtimeRate(previous) != rates.overtimeRate(i);
+        }
+        return changed;
+    }
+
+    private void calculate(PayrollEngine engine, int row) {
+        int department = engine.departmentIndex(employees.getDepartmentCode(row));
+        long hoursWorked = employees.getHoursWorked(row);
+        results.paid(row, engine.regularPay(department, hoursWorked), engine.overtimePay(department, hoursWorked));
+    }
+
+    private void payPagedRows(PayrollEngine engine, CsvWriter writer) throws IOException {
+        int[] row = { 0 };
+        pagedEmployees.forEachRow(cells -> {
+            rowStarted(row[0]);
+            Employee employee = validator.validateEmployee(cells, row[0], rates);
+            if (employee != null) {
+                ProcessedEmployee processed = engine.calculate(employee);
+                PayrollCsv.writeProcessedRow(writer, processed);
+                summary.processed(employee.getDepartmentCode(), employee.getHoursWorked(),
+                        processed.getRegularPay(), processed.getOvertimePay());
+            } else {
+                reject(row[0], cells);
+            }
+            row[0]++;
+        });
+    }
+
+    /**
+     * Checks for cancellation and reports progress at most every 100 ms.
+     *
+     * @throws CancellationException If the worker has been cancelled.
+     */
+    private void rowStarted(int row) {
+        if (isCancelled()) {
+            throw new CancellationException();
+        }
+        long now = System.nanoTime();
+        if (now - lastUpdateNanos > PROGRESS_INTERVAL_NANOS) {
+            lastUpdateNanos = now;
+            reportProgress(row, now - startNanos);
+        }
+    }
+
+    private void reportProgress(int rowsDone, long elapsedNanos) {
+        rowsPerSecond = elapsedNanos > 0 ? rowsDone * 1e9 / elapsedNanos : 0;
+        setProgress(totalRows == 0 ? 100 : (int) (rowsDone * 100L / totalRows));
+        firePropertyChange(ROWS_PROPERTY, null, rowsDone);
+    }
+
+    /**
+     * Writes a rejected employee row to the reject file, with its row number
+     * and problem, and counts it.
+     */
+    private void reject(int row, String[] cells) throws IOException {
+        PayrollValidator.writeReject(rejects, cells, validator.getIssue(row), summary);
+    }
+
+    /**
+     * Copies the first {@code columns} cells of every row as strings.
+     */
+    private static String[][] snapshot(TableModel model, int columns) {
+        String[][] rows = new String[model.getRowCount()][columns];
+        int available = Math.min(columns, model.getColumnCount());
+        for (int row = 0; row < rows.length; row++) {
+            for (int col = 0; col < available; col++) {
+                Object value = model.getValueAt(row, col);
+                rows[row][col] = value != null ? value.toString() : null;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Hands the results of the run to the tracker, or tells it the run did not
+     * complete.
+     */
+    @Override
+    protected void done() {
+        if (tracker == null) {
+            return;
+        }
+        if (completed && !isCancelled()) {
+            tracker.finishRun(results, rates);
+        } else {
+            tracker.abortRun();
+        }
+    }
+
+    /**
+     * Returns whether the processed table only needs the rows returned by
+     * {@link #getPatchedRows()} replaced. Only valid once the worker is done.
+     */
+    public boolean isPatch() {
+        return patch;
+    }
+
+    /**
+     * Returns the recomputed rows of a patch run, keyed by their row number in
+     * the processed table (not counting the header line). Only valid once the
+     * worker is done.
+     */
+    public Map<Integer, String[]> getPatchedRows() {
+        return patchedRows;
+    }
+
+    public int getTotalRows() {
+        return totalRows;
+    }
+
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    /**
+     * Returns the problems found in the input, those of the rates first. Only
+     * valid once the worker is done.
+     */
+    public List<ValidationIssue> getIssues() {
+        return validator.getIssues();
+    }
+
+    /**
+     * Returns the number of problems of one kind. Only valid once the worker
+     * is done.
+     */
+    public int getIssueCount(ValidationIssue.Kind kind) {
+        return validator.count(kind);
+    }
+
+    /**
+     * Returns the file the rejected employee rows are written to. It only
+     * exists after a run that rejected rows.
+     */
+    public File getRejectFile() {
+        return PayrollValidator.rejectFileFor(processedFile);
+    }
+
+    /**
+     * Returns the run counters. Only valid once the worker is done.
+     */
+    public PayrollRunSummary getSummary() {
+        return summary;
+    }
+
+    public File getProcessedFile() {
+        return processedFile;
+    }
+}
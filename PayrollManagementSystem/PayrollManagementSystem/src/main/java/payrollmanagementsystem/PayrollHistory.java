@@ -0,0 +1,732 @@
+package payrollmanagementsystem;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * History of the pay periods recorded from a processed payroll file, with
+ * year-to-date totals per employee and per department.
+ *
+ * Every recorded period is appended to "&lt;name&gt;_History.bin" as a
+ * compressed block of columns (ID, department, hours, regular and overtime
+ * pay) with a CRC32. The totals of each calendar year are kept in an index,
+ * "&lt;name&gt;_History.idx", which is updated with every period, so a query
+ * reads a few hundred bytes (one department section, or a binary search over
+ * the employees sorted by ID) no matter how many periods have been recorded.
+ *
+ * The index records the length of the history it was built from; an index
+ * that does not match, e.g. after a crash while a period was appended, is
+ * rebuilt from the history, whose torn tail is cut off first.
+ *
+ * Employees are identified by ID; an employee who changed departments counts
+ * towards each department for the periods spent there. A period holds one row
+ * per ID, and a pay date can be recorded only once, so that re-recording a
+ * file or a repeated ID does not count an employee twice.
+ */
+public final class PayrollHistory {
+
+    private static final int HISTORY_MAGIC = 0x50415948; // "PAYH"
+    private static final int INDEX_MAGIC = 0x50415949; // "PAYI"
+    private static final int VERSION = 1;
+    // Version 2 lists the recorded pay dates; an older index is rebuilt
+    private static final int INDEX_VERSION = 2;
+
+    private static final int HISTORY_HEADER_SIZE = 8;
+    // Magic, version, history length, period count, year count
+    private static final int INDEX_HEADER_SIZE = 24;
+    // Year, periods, department offset and count, employee offset and count
+    private static final int YEAR_ENTRY_SIZE = 32;
+    // Code, count, hours, overtime hours, regular pay, overtime pay
+    private static final int DEPARTMENT_ENTRY_SIZE = 40;
+    // ID, department, count, hours, overtime hours, regular pay, overtime pay
+    private static final int EMPLOYEE_ENTRY_SIZE = 44;
+
+    private final File processedFile;
+    private final File historyFile;
+    private final File indexFile;
+
+    public PayrollHistory(File processedFile) {
+        this.processedFile = processedFile;
+        this.historyFile = fileFor(processedFile);
+        String path = historyFile.getPath();
+        this.indexFile = new File(path.substring(0, path.length() - ".bin".length()) + ".idx");
+    }
+
+    /**
+     * Returns the history file of a processed payroll file.
+     */
+    public static File fileFor(File processedFile) {
+        String path = processedFile.getPath();
+        if (path.toLowerCase().endsWith(".csv")) {
+            path = path.substring(0, path.length() - ".csv".length());
+        }
+        return new File(path + "_History.bin");
+    }
+
+    /**
+     * Records the current content of the processed payroll file as the next
+     * pay period. Rows that cannot be parsed, and rows repeating the ID of
+     * an earlier row, are reported on standard error and left out.
+     *
+     * @param payDate The pay date, which decides the year the period counts towards.
+     * @return The number of the period, starting at 1.
+     * @throws IOException If a period with the same pay date is already recorded.
+     */
+    public synchronized int recordPeriod(LocalDate payDate) throws IOException {
+        Index index = loadIndex();
+        if (index.payDates.contains(payDate)) {
+            throw new IOException("A pay period paid on " + payDate + " is already recorded in " + historyFile);
+        }
+        Period period = readProcessedFile();
+        period.number = index.lastPeriod + 1;
+        period.payDate = payDate;
+
+        byte[] body = period.encode();
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        ByteBuffer block = ByteBuffer.allocate(HISTORY_HEADER_SIZE + 8 + body.length);
+        if (historyFile.length() == 0) {
+            block.putInt(HISTORY_MAGIC).putInt(VERSION);
+        }
+        block.putInt(body.length).putInt((int) crc.getValue()).put(body).flip();
+        try (FileChannel channel = FileChannel.open(historyFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (block.hasRemaining()) {
+                channel.write(block);
+            }
+            channel.force(false);
+        }
+
+        index.add(period);
+        index.historyLength = historyFile.length();
+        index.write(indexFile);
+        return period.number;
+    }
+
+    /**
+     * Returns the number of recorded periods.
+     */
+    public synchronized int getPeriodCount() throws IOException {
+        try (FileChannel channel = openIndex()) {
+            return readHeader(channel).getInt(16);
+        }
+    }
+
+    /**
+     * Returns the years with recorded periods, in ascending order.
+     */
+    public synchronized List<Integer> getYears() throws IOException {
+        try (FileChannel channel = openIndex()) {
+            ByteBuffer directory = readDirectory(channel);
+            List<Integer> years = new ArrayList<>();
+            for (int i = 0; i < directory.limit(); i += YEAR_ENTRY_SIZE) {
+                years.add(directory.getInt(i));
+            }
+            return years;
+        }
+    }
+
+    /**
+     * Returns the totals of every department for the periods paid in a year,
+     * ordered by department code. Empty if the year has no periods.
+     */
+    public synchronized List<Totals> departmentTotals(int year) throws IOException {
+        try (FileChannel channel = openIndex()) {
+            ByteBuffer directory = readDirectory(channel);
+            int entry = findYear(directory, year);
+            List<Totals> totals = new ArrayList<>();
+            if (entry >= 0) {
+                ByteBuffer section = read(channel, directory.getLong(entry + 8),
+                        directory.getInt(entry + 16) * DEPARTMENT_ENTRY_SIZE);
+                while (section.hasRemaining()) {
+                    totals.add(Totals.readDepartment(section));
+                }
+            }
+            return totals;
+        }
+    }
+
+    /**
+     * Returns the totals of every employee for the periods paid in a year,
+     * ordered by ID. Empty if the year has no periods.
+     */
+    public synchronized List<Totals> employeeTotals(int year) throws IOException {
+        try (FileChannel channel = openIndex()) {
+            ByteBuffer directory = readDirectory(channel);
+            int entry = findYear(directory, year);
+            List<Totals> totals = new ArrayList<>();
+            if (entry >= 0) {
+                ByteBuffer section = read(channel, directory.getLong(entry + 20),
+                        directory.getInt(entry + 28) * EMPLOYEE_ENTRY_SIZE);
+                while (section.hasRemaining()) {
+                    totals.add(Totals.readEmployee(section));
+                }
+            }
+            return totals;
+        }
+    }
+
+    /**
+     * Returns the totals of an employee for the periods paid in a year, found
+     * by a binary search of the index.
+     *
+     * @return The totals, or null if the employee was not paid that year.
+     */
+    public synchronized Totals employeeTotals(int year, int id) throws IOException {
+        try (FileChannel channel = openIndex()) {
+            ByteBuffer directory = readDirectory(channel);
+            int entry = findYear(directory, year);
+            if (entry < 0) {
+                return null;
+            }
+            long offset = directory.getLong(entry + 20);
+            int low = 0;
+            int high = directory.getInt(entry + 28) - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                ByteBuffer employee = read(channel, offset + (long) middle * EMPLOYEE_ENTRY_SIZE, EMPLOYEE_ENTRY_SIZE);
+                int middleId = employee.getInt(0);
+                if (middleId < id) {
+                    low = middle + 1;
+                } else if (middleId > id) {
+                    high = middle - 1;
+                } else {
+                    return Totals.readEmployee(employee);
+                }
+            }
+            return null;
+        }
+    }
+
+    // Reads the ID, department, hours and pay of every row of the processed file
+    private Period readProcessedFile() throws IOException {
+        Period period = new Period();
+        IntRowIndex rowsById = new IntRowIndex(1024);
+        try (CsvReader reader = CsvReader.open(processedFile)) {
+            String[] header = reader.readRow();
+            if (header == null || !Arrays.equals(header, PayrollCsv.PROCESSED_HEADERS)) {
+                throw new IOException(processedFile + " is not a processed payroll file");
+            }
+            String[] cells;
+            while ((cells = reader.readRow()) != null) {
+                if (PayrollCsv.isBlank(cells)) {
+                    continue;
+                }
+                try {
+                    int id = Integer.parseInt(cells[0].trim());
+                    int departmentCode = Integer.parseInt(cells[3].trim());
+                    long hours = FixedPoint.parse(cells[5]);
+                    long regular = FixedPoint.parse(cells[6]);
+                    long overtime = FixedPoint.parse(cells[7]);
+                    int firstRow = rowsById.putIfAbsent(id, (int) reader.getRowNumber());
+                    if (firstRow >= 0) {
+                        System.err.println("Skipping processed row " + reader.getRowNumber() + ": ID " + id
+                                + " was already recorded from row " + firstRow);
+                        continue;
+                    }
+                    period.add(id, departmentCode, hours, regular, overtime);
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                    System.err.println("Skipping malformed processed row " + reader.getRowNumber() + ": "
+                            + String.join(",", cells));
+                }
+            }
+        }
+        return period;
+    }
+
+    // Returns the index, rebuilt from the history if it does not match it
+    private Index loadIndex() throws IOException {
+        Index index = Index.read(indexFile);
+        if (index == null || index.historyLength != historyFile.length()) {
+            index = rebuild();
+            index.write(indexFile);
+        }
+        return index;
+    }
+
+    // Opens the index for reading, rebuilding it first if it does not match the history
+    private FileChannel openIndex() throws IOException {
+        boolean current = false;
+        if (indexFile.exists()) {
+            try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+                ByteBuffer header = readHeader(channel);
+                current = header.getInt(0) == INDEX_MAGIC && header.getInt(4) == INDEX_VERSION
+                        && header.getLong(8) == historyFile.length();
+            } catch (EOFException e) {
+                current = false;
+            }
+        }
+        if (!current) {
+            rebuild().write(indexFile);
+        }
+        return FileChannel.open(indexFile.toPath(), StandardOpenOption.READ);
+    }
+
+    /**
+     * Builds the index by reading every period of the history. A torn or
+     * corrupt tail, left by a crash while a period was appended, is cut off.
+     */
+    private Index rebuild() throws IOException {
+        Index index = new Index();
+        long fileSize = historyFile.length();
+        if (fileSize == 0) {
+            return index;
+        }
+        long end = HISTORY_HEADER_SIZE;
+        try (InputStream file = Files.newInputStream(historyFile.toPath());
+                DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+            if (fileSize < HISTORY_HEADER_SIZE || in.readInt() != HISTORY_MAGIC || in.readInt() != VERSION) {
+                throw new IOException(historyFile + " is not a payroll history");
+            }
+            while (end < fileSize) {
+                if (fileSize - end < 8) {
+                    break;
+                }
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if (length < 0 || length > fileSize - end - 8) {
+                    break;
+                }
+                byte[] body = new byte[length];
+                in.readFully(body);
+                CRC32 crc = new CRC32();
+                crc.update(body);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                index.add(Period.decode(body));
+                end += 8 + length;
+            }
+        }
+        if (end < fileSize) {
+            System.err.println("Truncating " + historyFile + " after period " + index.lastPeriod
+                    + ": the next period is incomplete");
+            try (FileChannel channel = FileChannel.open(historyFile.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(end);
+                channel.force(false);
+            }
+        }
+        index.historyLength = end;
+        return index;
+    }
+
+    private static ByteBuffer readHeader(FileChannel channel) throws IOException {
+        return read(channel, 0, INDEX_HEADER_SIZE);
+    }
+
+    private static ByteBuffer readDirectory(FileChannel channel) throws IOException {
+        return read(channel, INDEX_HEADER_SIZE, readHeader(channel).getInt(20) * YEAR_ENTRY_SIZE);
+    }
+
+    // Returns the position of the year's entry in the directory, or -1
+    private static int findYear(ByteBuffer directory, int year) {
+        for (int i = 0; i < directory.limit(); i += YEAR_ENTRY_SIZE) {
+            if (directory.getInt(i) == year) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Payroll history index is truncated");
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Totals of an employee or a department over the periods of a year.
+     */
+    public static final class Totals {
+
+        private final int id;
+        private int departmentCode;
+        private int count;
+        private long hoursWorked;
+        private long overtimeHours;
+        private long regularPay;
+        private long overtimePay;
+
+        private Totals(int id) {
+            this.id = id;
+        }
+
+        private void add(int departmentCode, long hoursWorked, long regularPay, long overtimePay) {
+            this.departmentCode = departmentCode;
+            count++;
+            this.hoursWorked += hoursWorked;
+            this.overtimeHours += Math.max(hoursWorked - PayrollEngine.OVERTIME_THRESHOLD, 0);
+            this.regularPay += regularPay;
+            this.overtimePay += overtimePay;
+        }
+
+        /**
+         * Returns the employee ID, or the department code of department totals.
+         */
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * Returns the department of the employee in the latest period, or the
+         * department code of department totals.
+         */
+        public int getDepartmentCode() {
+            return departmentCode;
+        }
+
+        /**
+         * Returns the number of periods the employee was paid, or the number
+         * of employee payments of a department.
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the hours worked, in hundredths of an hour.
+         */
+        public long getHoursWorked() {
+            return hoursWorked;
+        }
+
+        /**
+         * Returns the hours worked over the weekly overtime threshold, in
+         * hundredths of an hour.
+         */
+        public long getOvertimeHours() {
+            return overtimeHours;
+        }
+
+        /**
+         * Returns the regular pay, in cents.
+         */
+        public long getRegularPay() {
+            return regularPay;
+        }
+
+        /**
+         * Returns the overtime pay, in cents.
+         */
+        public long getOvertimePay() {
+            return overtimePay;
+        }
+
+        /**
+         * Returns the gross pay, in cents.
+         */
+        public long getGrossPay() {
+            return regularPay + overtimePay;
+        }
+
+        private void writeDepartment(DataOutputStream out) throws IOException {
+            out.writeInt(id);
+            out.writeInt(count);
+            writeAmounts(out);
+        }
+
+        private void writeEmployee(DataOutputStream out) throws IOException {
+            out.writeInt(id);
+            out.writeInt(departmentCode);
+            out.writeInt(count);
+            writeAmounts(out);
+        }
+
+        private void writeAmounts(DataOutputStream out) throws IOException {
+            out.writeLong(hoursWorked);
+            out.writeLong(overtimeHours);
+            out.writeLong(regularPay);
+            out.writeLong(overtimePay);
+        }
+
+        private static Totals readDepartment(ByteBuffer in) {
+            Totals totals = new Totals(in.getInt());
+            totals.departmentCode = totals.id;
+            totals.count = in.getInt();
+            return totals.readAmounts(in);
+        }
+
+        private static Totals readEmployee(ByteBuffer in) {
+            Totals totals = new Totals(in.getInt());
+            totals.departmentCode = in.getInt();
+            totals.count = in.getInt();
+            return totals.readAmounts(in);
+        }
+
+        private Totals readAmounts(ByteBuffer in) {
+            hoursWorked = in.getLong();
+            overtimeHours = in.getLong();
+            regularPay = in.getLong();
+            overtimePay = in.getLong();
+            return this;
+        }
+    }
+
+    /**
+     * The rows of one pay period, as columns.
+     */
+    private static final class Period {
+
+        private int number;
+        private LocalDate payDate;
+        private int size;
+        private int[] ids = new int[1024];
+        private int[] departmentCodes = new int[1024];
+        private long[] hoursWorked = new long[1024];
+        private long[] regularPay = new long[1024];
+        private long[] overtimePay = new long[1024];
+
+        void add(int id, int departmentCode, long hours, long regular, long overtime) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                departmentCodes = Arrays.copyOf(departmentCodes, size * 2);
+                hoursWorked = Arrays.copyOf(hoursWorked, size * 2);
+                regularPay = Arrays.copyOf(regularPay, size * 2);
+                overtimePay = Arrays.copyOf(overtimePay, size * 2);
+            }
+            ids[size] = id;
+            departmentCodes[size] = departmentCode;
+            hoursWorked[size] = hours;
+            regularPay[size] = regular;
+            overtimePay[size] = overtime;
+            size++;
+        }
+
+        byte[] encode() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+                out.writeInt(number);
+                out.writeLong(payDate.toEpochDay());
+                out.writeLong(System.currentTimeMillis());
+                out.writeInt(size);
+                for (int i = 0; i < size; i++) {
+                    out.writeInt(ids[i]);
+                }
+                for (int i = 0; i < size; i++) {
+                    out.writeInt(departmentCodes[i]);
+                }
+                for (int i = 0; i < size; i++) {
+                    out.writeLong(hoursWorked[i]);
+                }
+                for (int i = 0; i < size; i++) {
+                    out.writeLong(regularPay[i]);
+                }
+                for (int i = 0; i < size; i++) {
+                    out.writeLong(overtimePay[i]);
+                }
+            }
+            return bytes.toByteArray();
+        }
+
+        static Period decode(byte[] body) throws IOException {
+            Period period = new Period();
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    new InflaterInputStream(new ByteArrayInputStream(body))))) {
+                period.number = in.readInt();
+                period.payDate = LocalDate.ofEpochDay(in.readLong());
+                in.readLong(); // Time the period was recorded
+                period.size = in.readInt();
+                period.ids = new int[period.size];
+                period.departmentCodes = new int[period.size];
+                period.hoursWorked = new long[period.size];
+                period.regularPay = new long[period.size];
+                period.overtimePay = new long[period.size];
+                for (int i = 0; i < period.size; i++) {
+                    period.ids[i] = in.readInt();
+                }
+                for (int i = 0; i < period.size; i++) {
+                    period.departmentCodes[i] = in.readInt();
+                }
+                for (int i = 0; i < period.size; i++) {
+                    period.hoursWorked[i] = in.readLong();
+                }
+                for (int i = 0; i < period.size; i++) {
+                    period.regularPay[i] = in.readLong();
+                }
+                for (int i = 0; i < period.size; i++) {
+                    period.overtimePay[i] = in.readLong();
+                }
+            }
+            return period;
+        }
+    }
+
+    /**
+     * The totals of every year, as held in the index file.
+     */
+    private static final class Index {
+
+        private long historyLength;
+        private int periodCount;
+        private int lastPeriod;
+        private final Map<Integer, Year> years = new TreeMap<>();
+        private final Set<LocalDate> payDates = new TreeSet<>();
+
+        void add(Period period) {
+            Year year = years.computeIfAbsent(period.payDate.getYear(), y -> new Year());
+            year.periods++;
+            for (int i = 0; i < period.size; i++) {
+                int code = period.departmentCodes[i];
+                year.departments.computeIfAbsent(code, Totals::new)
+                        .add(code, period.hoursWorked[i], period.regularPay[i], period.overtimePay[i]);
+                year.employees.computeIfAbsent(period.ids[i], Totals::new)
+                        .add(code, period.hoursWorked[i], period.regularPay[i], period.overtimePay[i]);
+            }
+            periodCount++;
+            lastPeriod = Math.max(lastPeriod, period.number);
+            payDates.add(period.payDate);
+        }
+
+        /**
+         * Reads a whole index file.
+         *
+         * @return The index, or null if there is no readable index.
+         */
+        static Index read(File file) {
+            if (!file.exists()) {
+                return null;
+            }
+            try (InputStream stream = Files.newInputStream(file.toPath());
+                    DataInputStream in = new DataInputStream(new BufferedInputStream(stream))) {
+                if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION) {
+                    return null;
+                }
+                Index index = new Index();
+                index.historyLength = in.readLong();
+                index.periodCount = in.readInt();
+                int yearCount = in.readInt();
+                int[] yearNumbers = new int[yearCount];
+                int[][] counts = new int[yearCount][];
+                for (int i = 0; i < yearCount; i++) {
+                    yearNumbers[i] = in.readInt();
+                    int periods = in.readInt();
+                    in.readLong();
+                    int departments = in.readInt();
+                    in.readLong();
+                    int employees = in.readInt();
+                    counts[i] = new int[] { periods, departments, employees };
+                }
+                // The sections follow the directory in the same order
+                byte[] entry = new byte[EMPLOYEE_ENTRY_SIZE];
+                for (int i = 0; i < yearCount; i++) {
+                    Year year = new Year();
+                    year.periods = counts[i][0];
+                    for (int j = 0; j < counts[i][1]; j++) {
+                        in.readFully(entry, 0, DEPARTMENT_ENTRY_SIZE);
+                        Totals totals = Totals.readDepartment(ByteBuffer.wrap(entry, 0, DEPARTMENT_ENTRY_SIZE));
+                        year.departments.put(totals.id, totals);
+                    }
+                    for (int j = 0; j < counts[i][2]; j++) {
+                        in.readFully(entry);
+                        Totals totals = Totals.readEmployee(ByteBuffer.wrap(entry));
+                        year.employees.put(totals.id, totals);
+                    }
+                    index.years.put(yearNumbers[i], year);
+                }
+                index.lastPeriod = in.readInt();
+                int payDateCount = in.readInt();
+                for (int i = 0; i < payDateCount; i++) {
+                    index.payDates.add(LocalDate.ofEpochDay(in.readLong()));
+                }
+                return index;
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Writes the index to a temporary file, which then replaces the index
+         * file, so a crash leaves either the old or the new index.
+         */
+        void write(File file) throws IOException {
+            Path target = file.getAbsoluteFile().toPath();
+            Path temporary = CsvWriter.createTemporaryFile(target);
+            try {
+                try (FileOutputStream stream = new FileOutputStream(temporary.toFile());
+                        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+                    out.writeInt(INDEX_MAGIC);
+                    out.writeInt(INDEX_VERSION);
+                    out.writeLong(historyLength);
+                    out.writeInt(periodCount);
+                    out.writeInt(years.size());
+                    long offset = INDEX_HEADER_SIZE + (long) years.size() * YEAR_ENTRY_SIZE;
+                    for (Map.Entry<Integer, Year> entry : years.entrySet()) {
+                        Year year = entry.getValue();
+                        out.writeInt(entry.getKey());
+                        out.writeInt(year.periods);
+                        out.writeLong(offset);
+                        out.writeInt(year.departments.size());
+                        offset += (long) year.departments.size() * DEPARTMENT_ENTRY_SIZE;
+                        out.writeLong(offset);
+                        out.writeInt(year.employees.size());
+                        offset += (long) year.employees.size() * EMPLOYEE_ENTRY_SIZE;
+                    }
+                    for (Year year : years.values()) {
+                        for (Totals totals : year.departments.values()) {
+                            totals.writeDepartment(out);
+                        }
+                        for (Totals totals : year.employees.values()) {
+                            totals.writeEmployee(out);
+                        }
+                    }
+                    out.writeInt(lastPeriod);
+                    out.writeInt(payDates.size());
+                    for (LocalDate payDate : payDates) {
+                        out.writeLong(payDate.toEpochDay());
+                    }
+                    out.flush();
+                    stream.getFD().sync();
+                }
+                try {
+                    Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+
+    /**
+     * The totals of one year, keyed and ordered by department code and by ID.
+     */
+    private static final class Year {
+
+        private int periods;
+        private final Map<Integer, Totals> departments = new TreeMap<>();
+        private final Map<Integer, Totals> employees = new TreeMap<>();
+    }
+}
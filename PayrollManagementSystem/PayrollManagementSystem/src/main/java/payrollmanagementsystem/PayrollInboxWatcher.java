@@ -0,0 +1,386 @@
+package payrollmanagementsystem;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Daemon that pays every employee file dropped into an inbox directory, so
+ * payroll runs without anyone opening the dashboard. The inbox is watched
+ * with a {@link WatchService}; files already in it when the watcher starts,
+ * e.g. left by a crash, are paid too.
+ *
+ * A file is picked up once its size and modification time have not changed
+ * for the quiet period, so a file still being copied in is not read half
+ * written. It is paid with the current rates file, which is read again
+ * whenever it changes, into "&lt;name&gt;_Processed.csv" in the output
+ * directory, and then moved to the "done" folder of the inbox, or to the
+ * "failed" folder if it could not be paid. A name already used in the folder
+ * gets a number appended, so a file dropped every period under the same name
+ * keeps every run.
+ *
+ * Files are paid on a fixed pool of threads behind a queue of bounded
+ * capacity. When the queue is full, the watcher waits for a free place
+ * instead of reading more events, so a burst of drops only ever holds the
+ * names of the waiting files in memory; events lost meanwhile are made up
+ * for by scanning the inbox again.
+ */
+public final class PayrollInboxWatcher implements Closeable {
+
+    public static final long DEFAULT_QUIET_MILLIS = 2000;
+    public static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+    static final String DONE_FOLDER = "done";
+    static final String FAILED_FOLDER = "failed";
+
+    private final Path inbox;
+    private final File ratesFile;
+    private final File outputDirectory;
+    private final long quietNanos;
+
+    private final ThreadPoolExecutor pool;
+    // Places in the pool and its queue; the watcher waits for one before queueing a file
+    private final Semaphore places;
+    // Files queued or being paid, so events and scans do not queue them twice
+    private final Set<Path> queued = ConcurrentHashMap.newKeySet();
+    // Files waiting for their quiet period, with their last seen size and time
+    private final Map<Path, Observation> pending = new HashMap<>();
+
+    private final WatchService watchService;
+    private volatile boolean closed;
+
+    // Engine for the rates file as it was when last read
+    private PayrollEngine engine;
+    private long ratesModified;
+    private long ratesLength;
+    private long ratesLogModified;
+
+    private final AtomicInteger paidCount = new AtomicInteger();
+    private final AtomicInteger failedCount = new AtomicInteger();
+
+    /**
+     * Creates a watcher for an inbox, with the "done" and "failed" folders in
+     * it and the output directory if they do not exist.
+     *
+     * @param threads       Number of files paid at a time.
+     * @param queueCapacity Number of files that may wait for a thread.
+     * @param quietMillis   Time a file must stay unchanged before it is paid.
+     */
+    public PayrollInboxWatcher(File inbox, File ratesFile, File outputDirectory, int threads, int queueCapacity,
+            long quietMillis) throws IOException {
+        if (threads < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("threads and queue capacity must be positive");
+        }
+        this.inbox = inbox.toPath().toAbsolutePath();
+        this.ratesFile = ratesFile;
+        this.outputDirectory = outputDirectory;
+        this.quietNanos = TimeUnit.MILLISECONDS.toNanos(quietMillis);
+        Files.createDirectories(this.inbox.resolve(DONE_FOLDER));
+        Files.createDirectories(this.inbox.resolve(FAILED_FOLDER));
+        Files.createDirectories(outputDirectory.toPath());
+
+        AtomicInteger threadCount = new AtomicInteger();
+        pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "payroll-inbox-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        places = new Semaphore(threads + queueCapacity);
+        watchService = this.inbox.getFileSystem().newWatchService();
+        this.inbox.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    /**
+     * Watches the inbox and pays the files dropped into it until the watcher
+     * is closed.
+     *
+     * @throws IOException If the inbox cannot be read or was deleted.
+     */
+    public void run() throws IOException, InterruptedException {
+        long pollMillis = Math.max(10, TimeUnit.NANOSECONDS.toMillis(quietNanos) / 4);
+        scan();
+        try {
+            while (!closed) {
+                WatchKey key = watchService.poll(pollMillis, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            scan();
+                        } else {
+                            observe(inbox.resolve((Path) event.context()));
+                        }
+                    }
+                    if (!key.reset()) {
+                        throw new IOException("Inbox " + inbox + " is no longer accessible");
+                    }
+                }
+                queueQuietFiles();
+            }
+        } catch (ClosedWatchServiceException e) {
+            // Closed while waiting for events
+        }
+    }
+
+    /**
+     * Stops watching and waits for the files being paid to be done. Queued
+     * files are left in the inbox, to be paid on the next start.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        watchService.close();
+        pool.getQueue().clear();
+        pool.shutdown();
+        try {
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the number of files paid and moved to the done folder.
+     */
+    public int getPaidCount() {
+        return paidCount.get();
+    }
+
+    /**
+     * Returns the number of files moved to the failed folder.
+     */
+    public int getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * Looks at every file in the inbox, at start and when events were lost.
+     */
+    private void scan() throws IOException {
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(inbox)) {
+            for (Path path : paths) {
+                observe(path);
+            }
+        }
+    }
+
+    /**
+     * Starts or restarts the quiet period of a file that was created or
+     * changed.
+     */
+    private void observe(Path path) {
+        if (!isPayrollFile(path) || queued.contains(path)) {
+            return;
+        }
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                return;
+            }
+            Observation last = pending.get(path);
+            if (last == null || last.changed(attributes)) {
+                pending.put(path, new Observation(attributes, System.nanoTime()));
+            }
+        } catch (IOException e) {
+            pending.remove(path); // Moved away or deleted
+        }
+    }
+
+    private boolean isPayrollFile(Path path) {
+        String name = path.getFileName().toString();
+        if (name.startsWith(".") || !name.toLowerCase().endsWith(".csv")
+                || MultiFilePayrollRunner.isOutputFile(name)) {
+            return false;
+        }
+        try {
+            return !Files.exists(ratesFile.toPath()) || !Files.isSameFile(path, ratesFile.toPath());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Queues the files that have stayed unchanged for the quiet period,
+     * waiting for a place in the queue if it is full.
+     */
+    private void queueQuietFiles() throws InterruptedException {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<Path, Observation>> entries = pending.entrySet().iterator();
+        while (entries.hasNext() && !closed) {
+            Map.Entry<Path, Observation> entry = entries.next();
+            Path path = entry.getKey();
+            Observation last = entry.getValue();
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            } catch (IOException e) {
+                entries.remove(); // Moved away or deleted
+                continue;
+            }
+            if (last.changed(attributes)) {
+                entry.setValue(new Observation(attributes, now));
+            } else if (now - last.since >= quietNanos) {
+                entries.remove();
+                places.acquire(); // Backpressure: wait while the queue is full
+                queued.add(path);
+                try {
+                    pool.execute(() -> {
+                        try {
+                            pay(path);
+                        } finally {
+                            queued.remove(path);
+                            places.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    // Closed while waiting; the file stays in the inbox
+                    queued.remove(path);
+                    places.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Pays one file on a pool thread and moves it out of the inbox.
+     */
+    private void pay(Path path) {
+        String name = path.getFileName().toString();
+        Path done;
+        File processedFile;
+        PayrollRunSummary summary = new PayrollRunSummary();
+        try {
+            done = reserveTarget(inbox.resolve(DONE_FOLDER), name);
+        } catch (IOException e) {
+            System.err.println(name + ": cannot reserve a name in " + DONE_FOLDER + ": " + e);
+            failedCount.incrementAndGet();
+            return;
+        }
+        try {
+            processedFile = MultiFilePayrollRunner.processedFileFor(done.toFile(), outputDirectory);
+            long allocatedBefore = PayrollMetrics.allocatedBytes();
+            long start = System.nanoTime();
+            PayrollBatch.pay(getEngine(), path.toFile(), processedFile, 1, summary, start, allocatedBefore);
+            PayrollRunReport.append(processedFile, "watch", summary);
+        } catch (IOException | RuntimeException e) {
+            System.err.println(name + ": " + e);
+            failedCount.incrementAndGet();
+            try {
+                Files.deleteIfExists(done);
+                move(path, reserveTarget(inbox.resolve(FAILED_FOLDER), name));
+            } catch (IOException moveError) {
+                System.err.println(name + ": cannot move to " + FAILED_FOLDER + ": " + moveError);
+            }
+            return;
+        }
+        try {
+            move(path, done);
+            paidCount.incrementAndGet();
+            System.out.println(name + ": " + summary + " in " + summary.getElapsedNanos() / 1_000_000 + " ms, "
+                    + "written to " + processedFile.getPath());
+        } catch (IOException e) {
+            System.err.println(name + ": paid, but cannot move to " + DONE_FOLDER + ": " + e);
+            try {
+                Files.deleteIfExists(done);
+            } catch (IOException deleteError) {
+                // The empty file only holds the name
+            }
+        }
+    }
+
+    /**
+     * Returns the engine for the current rates, reading the rates file again
+     * if it or its journal changed since it was last read.
+     */
+    private synchronized PayrollEngine getEngine() throws IOException {
+        long modified = ratesFile.lastModified();
+        long length = ratesFile.length();
+        long logModified = RecordLog.fileFor(ratesFile).lastModified();
+        if (engine == null || modified != ratesModified || length != ratesLength
+                || logModified != ratesLogModified) {
+            if (!ratesFile.isFile()) {
+                throw new NoSuchFileException(ratesFile.getPath());
+            }
+            engine = new PayrollEngine(PayrollBatch.readRates(ratesFile, new PayrollRunSummary()));
+            ratesModified = modified;
+            ratesLength = length;
+            ratesLogModified = logModified;
+        }
+        return engine;
+    }
+
+    /**
+     * Reserves a path in a folder for a file name, with a number appended to
+     * the name if it is taken, e.g. "Payroll-2.csv". The path is reserved by
+     * creating an empty file, which fails if the path exists, so two workers
+     * finishing at once never get the same path; the file is then moved over
+     * the empty one.
+     */
+    private static Path reserveTarget(Path folder, String name) throws IOException {
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : "";
+        Path target = folder.resolve(name);
+        for (int i = 2;; i++) {
+            try {
+                return Files.createFile(target);
+            } catch (FileAlreadyExistsException e) {
+                target = folder.resolve(base + "-" + i + extension);
+            }
+        }
+    }
+
+    // Moves a file over the empty file reserving its target
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Size and modification time of a file, and since when they were seen.
+     */
+    private static final class Observation {
+
+        final long size;
+        final long modified;
+        final long since;
+
+        Observation(BasicFileAttributes attributes, long since) {
+            this.size = attributes.size();
+            this.modified = attributes.lastModifiedTime().toMillis();
+            this.since = since;
+        }
+
+        boolean changed(BasicFileAttributes attributes) {
+            return attributes.size() != size || attributes.lastModifiedTime().toMillis() != modified;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package payrollmanagementsystem;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Metrics of the payroll runs and table loads of this process, published over
+ * JMX so they can be watched with JConsole or collected by a monitoring agent.
+ * Runs are recorded once they complete; cancelled and failed runs are not.
+ *
+ * The single instance is registered with the platform MBean server the first
+ * time it is used. Thread-safe.
+ */
+public final class PayrollMetrics implements PayrollMetricsMXBean {
+
+    public static final String OBJECT_NAME = "payrollmanagementsystem:type=PayrollMetrics";
+
+    private static final PayrollMetrics INSTANCE = register(new PayrollMetrics());
+
+    private final Map<PayrollRunSummary.Phase, LatencyHistogram> phaseLatencies =
+            new EnumMap<>(PayrollRunSummary.Phase.class);
+    private final LatencyHistogram runLatency = new LatencyHistogram();
+    private final LatencyHistogram loadLatency = new LatencyHistogram();
+
+    private long runs;
+    private long rowsProcessed;
+    private long rowsRejected;
+    private long departmentMisses;
+    private long bytesRead;
+    private long bytesWritten;
+    private long allocatedBytes;
+    private double lastRunRowsPerSecond;
+    private long loads;
+    private long loadedRows;
+    private long loadedBytes;
+
+    private PayrollMetrics() {
+        for (PayrollRunSummary.Phase phase : PayrollRunSummary.Phase.values()) {
+            phaseLatencies.put(phase, new LatencyHistogram());
+        }
+    }
+
+    public static PayrollMetrics get() {
+        return INSTANCE;
+    }
+
+    private static PayrollMetrics register(PayrollMetrics metrics) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName(OBJECT_NAME));
+        } catch (JMException | SecurityException e) {
+            System.err.println("Payroll metrics are not available over JMX: " + e);
+        }
+        return metrics;
+    }
+
+    /**
+     * Returns the bytes allocated so far by the current thread, or -1 if the
+     * JVM cannot tell.
+     */
+    static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+            if (allocation.isThreadAllocatedMemorySupported() && allocation.isThreadAllocatedMemoryEnabled()) {
+                return allocation.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds a completed payroll run.
+     */
+    public synchronized void recordRun(PayrollRunSummary summary) {
+        runs++;
+        rowsProcessed += summary.getRowsProcessed();
+        rowsRejected += summary.getRowsRejected();
+        departmentMisses += summary.getDepartmentMisses();
+        bytesRead += summary.getBytesRead();
+        bytesWritten += summary.getBytesWritten();
+        allocatedBytes += Math.max(summary.getAllocatedBytes(), 0);
+        for (PayrollRunSummary.Phase phase : PayrollRunSummary.Phase.values()) {
+            phaseLatencies.get(phase).record(summary.getPhaseNanos(phase));
+        }
+        runLatency.record(summary.getElapsedNanos());
+        lastRunRowsPerSecond = summary.getElapsedNanos() > 0
+                ? summary.getRowsProcessed() * 1e9 / summary.getElapsedNanos() : 0;
+    }
+
+    /**
+     * Adds a file loaded into a table.
+     */
+    public synchronized void recordLoad(long nanos, long rows, long bytes) {
+        loads++;
+        loadedRows += rows;
+        loadedBytes += bytes;
+        loadLatency.record(nanos);
+    }
+
+    @Override
+    public synchronized long getRuns() {
+        return runs;
+    }
+
+    @Override
+    public synchronized long getRowsProcessed() {
+        return rowsProcessed;
+    }
+
+    @Override
+    public synchronized long getRowsRejected() {
+        return rowsRejected;
+    }
+
+    @Override
+    public synchronized long getDepartmentMisses() {
+        return departmentMisses;
+    }
+
+    @Override
+    public synchronized long getBytesRead() {
+        return bytesRead;
+    }
+
+    @Override
+    public synchronized long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public synchronized long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    @Override
+    public synchronized Map<String, LatencyHistogram.Summary> getPhaseLatencies() {
+        Map<String, LatencyHistogram.Summary> latencies = new LinkedHashMap<>();
+        for (Map.Entry<PayrollRunSummary.Phase, LatencyHistogram> entry : phaseLatencies.entrySet()) {
+            latencies.put(entry.getKey().name(), entry.getValue().summary());
+        }
+        return latencies;
+    }
+
+    @Override
+    public LatencyHistogram.Summary getRunLatency() {
+        return runLatency.summary();
+    }
+
+    @Override
+    public synchronized double getLastRunRowsPerSecond() {
+        return lastRunRowsPerSecond;
+    }
+
+    @Override
+    public synchronized long getLoads() {
+        return loads;
+    }
+
+    @Override
+    public synchronized long getLoadedRows() {
+        return loadedRows;
+    }
+
+    @Override
+    public synchronized long getLoadedBytes() {
+        return loadedBytes;
+    }
+
+    @Override
+    public LatencyHistogram.Summary getLoadLatency() {
+        return loadLatency.summary();
+    }
+
+    @Override
+    public synchronized void reset() {
+        runs = rowsProcessed = rowsRejected = departmentMisses = 0;
+        bytesRead = bytesWritten = allocatedBytes = 0;
+        lastRunRowsPerSecond = 0;
+        loads = loadedRows = loadedBytes = 0;
+        for (LatencyHistogram histogram : phaseLatencies.values()) {
+            histogram.reset();
+        }
+        runLatency.reset();
+        loadLatency.reset();
+    }
+}
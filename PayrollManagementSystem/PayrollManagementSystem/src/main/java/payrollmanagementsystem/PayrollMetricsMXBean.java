@@ -0,0 +1,44 @@
+package payrollmanagementsystem;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link PayrollMetrics}, registered as
+ * {@value PayrollMetrics#OBJECT_NAME}. Counters are totals since the
+ * application started or the metrics were last reset.
+ */
+public interface PayrollMetricsMXBean {
+
+    long getRuns();
+
+    long getRowsProcessed();
+
+    long getRowsRejected();
+
+    long getDepartmentMisses();
+
+    long getBytesRead();
+
+    long getBytesWritten();
+
+    long getAllocatedBytes();
+
+    /**
+     * Returns the duration of completed runs, keyed by phase name.
+     */
+    Map<String, LatencyHistogram.Summary> getPhaseLatencies();
+
+    LatencyHistogram.Summary getRunLatency();
+
+    double getLastRunRowsPerSecond();
+
+    long getLoads();
+
+    long getLoadedRows();
+
+    long getLoadedBytes();
+
+    LatencyHistogram.Summary getLoadLatency();
+
+    void reset();
+}
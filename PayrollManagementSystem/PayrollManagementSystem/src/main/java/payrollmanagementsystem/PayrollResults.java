@@ -0,0 +1,119 @@
+package payrollmanagementsystem;
+
+import java.util.Arrays;
+
+/**
+ * The outcome of the last payroll run for every row of the employee store,
+ * kept so the next run only has to recompute rows that changed. Rows are
+ * aligned with the store and shifted along with it when rows are inserted or
+ * deleted.
+ */
+final class PayrollResults {
+
+    // Row has never been computed
+    static final byte NEW = 0;
+    // Row was paid and written to the processed file
+    static final byte PAID = 1;
+    // Row was rejected by the PayrollValidator, e.g. for a missing value or a
+    // duplicate ID, and written to the reject file
+    static final byte REJECTED = 2;
+
+    private int size;
+    // Outcome of the last computation of each row, and whether the row
+    // changed since
+    private byte[] states;
+    private boolean[] dirty;
+    // Pay of paid rows, in cents
+    private long[] regularPay;
+    private long[] overtimePay;
+
+    PayrollResults(int size) {
+        this.size = size;
+        states = new byte[Math.max(size, 16)];
+        dirty = new boolean[states.length];
+        regularPay = new long[states.length];
+        overtimePay = new long[states.length];
+    }
+
+    private PayrollResults(PayrollResults other) {
+        size = other.size;
+        states = Arrays.copyOf(other.states, size);
+        dirty = Arrays.copyOf(other.dirty, size);
+        regularPay = Arrays.copyOf(other.regularPay, size);
+        overtimePay = Arrays.copyOf(other.overtimePay, size);
+    }
+
+    PayrollResults copy() {
+        return new PayrollResults(this);
+    }
+
+    int size() {
+        return size;
+    }
+
+    byte state(int row) {
+        return states[row];
+    }
+
+    boolean isDirty(int row) {
+        return states[row] == NEW || dirty[row];
+    }
+
+    long regularPay(int row) {
+        return regularPay[row];
+    }
+
+    long overtimePay(int row) {
+        return overtimePay[row];
+    }
+
+    void paid(int row, long regular, long overtime) {
+        states[row] = PAID;
+        dirty[row] = false;
+        regularPay[row] = regular;
+        overtimePay[row] = overtime;
+    }
+
+    void rejected(int row) {
+        states[row] = REJECTED;
+        dirty[row] = false;
+    }
+
+    void markDirty(int first, int last) {
+        Arrays.fill(dirty, first, Math.min(last, size - 1) + 1, true);
+    }
+
+    /**
+     * Inserts rows that have never been computed before {@code first}.
+     */
+    void insert(int first, int count) {
+        if (size + count > states.length) {
+            int capacity = Math.max(size + count, states.length * 2);
+            states = Arrays.copyOf(states, capacity);
+            dirty = Arrays.copyOf(dirty, capacity);
+            regularPay = Arrays.copyOf(regularPay, capacity);
+            overtimePay = Arrays.copyOf(overtimePay, capacity);
+        }
+        int moved = size - first;
+        System.arraycopy(states, first, states, first + count, moved);
+        System.arraycopy(dirty, first, dirty, first + count, moved);
+        System.arraycopy(regularPay, first, regularPay, first + count, moved);
+        System.arraycopy(overtimePay, first, overtimePay, first + count, moved);
+        Arrays.fill(states, first, first + count, NEW);
+        Arrays.fill(dirty, first, first + count, false);
+        size += count;
+    }
+
+    /**
+     * Removes the rows {@code first} to {@code last} inclusive.
+     */
+    void remove(int first, int last) {
+        int count = last - first + 1;
+        int moved = size - last - 1;
+        System.arraycopy(states, last + 1, states, first, moved);
+        System.arraycopy(dirty, last + 1, dirty, first, moved);
+        System.arraycopy(regularPay, last + 1, regularPay, first, moved);
+        System.arraycopy(overtimePay, last + 1, overtimePay, first, moved);
+        size -= count;
+    }
+}
@@ -0,0 +1,65 @@
+package payrollmanagementsystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * Report of the payroll runs that wrote a processed file, kept next to it as
+ * "&lt;name&gt;_Report.csv" with one line per completed run, so the performance
+ * of runs can be followed over time by any tool that reads CSV.
+ *
+ * Durations are in milliseconds with two decimals; allocated bytes are -1 if
+ * the JVM cannot measure them.
+ */
+public final class PayrollRunReport {
+
+    public static final String[] HEADERS = { "Finished", "Source", "Rows Processed", "Rows Rejected",
+            "Department Misses", "Load ms", "Validate ms", "Compute ms", "Write ms", "Total ms", "Bytes Read",
+            "Bytes Written", "Allocated Bytes" };
+
+    private PayrollRunReport() {
+    }
+
+    /**
+     * Returns the report file of a processed payroll file.
+     */
+    public static File fileFor(File processedFile) {
+        String path = processedFile.getPath();
+        if (path.toLowerCase().endsWith(".csv")) {
+            path = path.substring(0, path.length() - ".csv".length());
+        }
+        return new File(path + "_Report.csv");
+    }
+
+    /**
+     * Adds a line for a completed run to the report of the processed file,
+     * with the header first if the report is new. The line is appended in
+     * place, so adding it costs the same however long the report has grown.
+     *
+     * @param source What ran payroll, e.g. "dashboard" or "batch".
+     */
+    public static void append(File processedFile, String source, PayrollRunSummary summary) throws IOException {
+        File reportFile = fileFor(processedFile);
+        boolean newReport = reportFile.length() == 0;
+        try (CsvWriter writer = CsvWriter.appendTo(reportFile)) {
+            if (newReport) {
+                writer.writeRow(HEADERS);
+            }
+            writer.field(Instant.now().toString())
+                    .field(source)
+                    .field(summary.getRowsProcessed())
+                    .field(summary.getRowsRejected())
+                    .field(summary.getDepartmentMisses());
+            for (PayrollRunSummary.Phase phase : PayrollRunSummary.Phase.values()) {
+                writer.money(summary.getPhaseNanos(phase) / 10_000);
+            }
+            writer.money(summary.getElapsedNanos() / 10_000)
+                    .field(summary.getBytesRead())
+                    .field(summary.getBytesWritten())
+                    .field(summary.getAllocatedBytes())
+                    .endRow();
+            writer.commit();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package payrollmanagementsystem;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Counters and timings collected while running payroll, with the
+ * {@link DepartmentTotals} of the paid employees.
+ */
+public final class PayrollRunSummary {
+
+    /**
+     * Timed phases of a run. Work that interleaves phases, e.g. streaming rows
+     * from a file through the engine into the output, is timed as
+     * {@link #COMPUTE}.
+     */
+    public enum Phase {
+        LOAD, VALIDATE, COMPUTE, WRITE
+    }
+
+    private long rowsProcessed;
+    private long rowsRejected;
+    private long departmentMisses;
+    private final Set<Integer> unknownDepartments = new TreeSet<>();
+    private final DepartmentTotals departmentTotals = new DepartmentTotals();
+
+    private final long[] phaseNanos = new long[Phase.values().length];
+    private long elapsedNanos;
+    private long bytesRead;
+    private long bytesWritten;
+    private long allocatedBytes = -1;
+
+    /**
+     * Counts a paid employee and adds its pay to the totals of its department.
+     */
+    void processed(int departmentCode, long hoursWorked, long regularPay, long overtimePay) {
+        rowsProcessed++;
+        departmentTotals.add(departmentCode, hoursWorked, regularPay, overtimePay);
+    }
+
+    void rejected() {
+        rowsRejected++;
+    }
+
+    void unknownDepartment(int departmentCode) {
+        rowsRejected++;
+        departmentMisses++;
+        unknownDepartments.add(departmentCode);
+    }
+
+    /**
+     * Adds time spent in a phase.
+     */
+    void time(Phase phase, long nanos) {
+        phaseNanos[phase.ordinal()] += nanos;
+    }
+
+    void read(long bytes) {
+        bytesRead += bytes;
+    }
+
+    void written(long bytes) {
+        bytesWritten += bytes;
+    }
+
+    /**
+     * Records the wall-clock time of the whole run and the bytes it allocated,
+     * or -1 if the JVM cannot measure allocation.
+     */
+    void finish(long elapsedNanos, long allocatedBytes) {
+        this.elapsedNanos = elapsedNanos;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    /**
+     * Adds the counters of another summary, e.g. of one chunk of a parallel run
+     * or of one file of a multi-file run. Phase times and bytes are added too;
+     * the elapsed time is not, as the runs may overlap.
+     */
+    void add(PayrollRunSummary other) {
+        rowsProcessed += other.rowsProcessed;
+        rowsRejected += other.rowsRejected;
+        departmentMisses += other.departmentMisses;
+        unknownDepartments.addAll(other.unknownDepartments);
+        departmentTotals.add(other.departmentTotals);
+        for (int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i] += other.phaseNanos[i];
+        }
+        bytesRead += other.bytesRead;
+        bytesWritten += other.bytesWritten;
+    }
+
+    public long getRowsProcessed() {
+        return rowsProcessed;
+    }
+
+    public long getRowsRejected() {
+        return rowsRejected;
+    }
+
+    /**
+     * Returns the number of rows rejected because their department has no
+     * rates.
+     */
+    public long getDepartmentMisses() {
+        return departmentMisses;
+    }
+
+    public Set<Integer> getUnknownDepartments() {
+        return unknownDepartments;
+    }
+
+    public DepartmentTotals getDepartmentTotals() {
+        return departmentTotals;
+    }
+
+    public long getPhaseNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Returns the bytes allocated by the run, or -1 if not measured. Only the
+     * thread that ran the run is measured, not the worker threads of a
+     * parallel run.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    @Override
+    public String toString() {
+        String text = rowsProcessed + " rows processed, " + rowsRejected + " rows rejected";
+        if (!unknownDepartments.isEmpty()) {
+            text += " (unknown department codes: " + unknownDepartments + ")";
+        }
+        return text;
+    }
+}
@@ -0,0 +1,365 @@
+package payrollmanagementsystem;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary snapshots of the rates and employee files, written next to the CSV
+ * file as "&lt;name&gt;.bin". Loading a snapshot reads typed columns in bulk
+ * instead of parsing text, which makes cold starts and batch runs on large
+ * files much faster.
+ *
+ * A snapshot records the length and modification time of the CSV file it was
+ * made from, and is only used while the CSV file still matches, so a CSV file
+ * edited outside the application is always parsed again.
+ *
+ * Layout (big-endian): magic, version, kind, CSV length, CSV modification
+ * time, row count, then the columns of the kind. Strings are a byte length
+ * followed by UTF-8 bytes.
+ */
+public final class PayrollSnapshot {
+
+    private static final int MAGIC = 0x50415953; // "PAYS"
+    private static final int VERSION = 1;
+    private static final int RATES = 1;
+    private static final int EMPLOYEES = 2;
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private PayrollSnapshot() {
+    }
+
+    /**
+     * Returns the snapshot file of a CSV file.
+     */
+    public static File fileFor(File csvFile) {
+        return new File(csvFile.getPath() + ".bin");
+    }
+
+    /**
+     * Reads the employees of a CSV file from its snapshot.
+     *
+     * @return The employees, or null if there is no snapshot matching the CSV file.
+     */
+    public static EmployeeStore readEmployees(File csvFile) {
+        try (Input in = open(csvFile, EMPLOYEES)) {
+            return in != null ? EmployeeStore.readSnapshot(in, in.rows) : null;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring unreadable snapshot " + fileFor(csvFile) + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the snapshot of an employee CSV file that has just been read or
+     * written from the store.
+     */
+    public static void writeEmployees(File csvFile, EmployeeStore store) throws IOException {
+        try (Output out = new Output(csvFile, EMPLOYEES, store.size())) {
+            store.writeSnapshot(out);
+            out.commit();
+        }
+    }
+
+    /**
+     * Reads the department rates of a CSV file from its snapshot.
+     *
+     * @return The rates, or null if there is no snapshot matching the CSV file.
+     */
+    public static List<DepartmentRate> readRates(File csvFile) {
+        try (Input in = open(csvFile, RATES)) {
+            if (in == null) {
+                return null;
+            }
+            int[] codes = in.getInts(new int[in.rows], in.rows);
+            long[] regularRates = in.getLongs(new long[in.rows], in.rows);
+            long[] overtimeRates = in.getLongs(new long[in.rows], in.rows);
+            List<DepartmentRate> rates = new ArrayList<>(in.rows);
+            for (int row = 0; row < in.rows; row++) {
+                rates.add(new DepartmentRate(codes[row], in.getString(), regularRates[row], overtimeRates[row]));
+            }
+            return rates;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring unreadable snapshot " + fileFor(csvFile) + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the snapshot of a rates CSV file that has just been read or
+     * written from the rates.
+     */
+    public static void writeRates(File csvFile, List<DepartmentRate> rates) throws IOException {
+        int[] codes = new int[rates.size()];
+        long[] regularRates = new long[rates.size()];
+        long[] overtimeRates = new long[rates.size()];
+        for (int row = 0; row < codes.length; row++) {
+            codes[row] = rates.get(row).getCode();
+            regularRates[row] = rates.get(row).getRegularRate();
+            overtimeRates[row] = rates.get(row).getOvertimeRate();
+        }
+        try (Output out = new Output(csvFile, RATES, rates.size())) {
+            out.putInts(codes, codes.length);
+            out.putLongs(regularRates, regularRates.length);
+            out.putLongs(overtimeRates, overtimeRates.length);
+            for (DepartmentRate rate : rates) {
+                out.putString(rate.getName());
+            }
+            out.commit();
+        }
+    }
+
+    /**
+     * Deletes the snapshot of a CSV file, e.g. when it can no longer be kept
+     * up to date.
+     */
+    public static void delete(File csvFile) {
+        try {
+            Files.deleteIfExists(fileFor(csvFile).toPath());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Opens the snapshot of a CSV file and checks its header.
+     *
+     * @return The input positioned after the header, or null if there is no
+     *         snapshot of the given kind matching the CSV file.
+     */
+    private static Input open(File csvFile, int kind) throws IOException {
+        Input in;
+        try {
+            in = new Input(fileFor(csvFile));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        boolean current = false;
+        try {
+            current = in.getInt() == MAGIC && in.getInt() == VERSION && in.getInt() == kind
+                    && in.getLong() == csvFile.length() && in.getLong() == csvFile.lastModified();
+            if (current) {
+                in.rows = in.getInt();
+                return in;
+            }
+            return null;
+        } finally {
+            if (!current) {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * Writes a snapshot through a buffer to a temporary file, which replaces
+     * the snapshot on {@link #commit()}.
+     */
+    static final class Output implements Closeable {
+
+        private final Path target;
+        private final Path temporary;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private boolean committed;
+
+        private Output(File csvFile, int kind, int rows) throws IOException {
+            target = fileFor(csvFile).getAbsoluteFile().toPath();
+            temporary = CsvWriter.createTemporaryFile(target);
+            channel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            putInt(MAGIC);
+            putInt(VERSION);
+            putInt(kind);
+            putLong(csvFile.length());
+            putLong(csvFile.lastModified());
+            putInt(rows);
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        void putString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            for (int offset = 0; offset < bytes.length;) {
+                ensure(1);
+                int count = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, count);
+                offset += count;
+            }
+        }
+
+        /**
+         * Writes the first {@code count} values of the array.
+         */
+        void putInts(int[] values, int count) throws IOException {
+            for (int offset = 0; offset < count;) {
+                ensure(Integer.BYTES);
+                int chunk = Math.min(buffer.remaining() / Integer.BYTES, count - offset);
+                buffer.asIntBuffer().put(values, offset, chunk);
+                buffer.position(buffer.position() + chunk * Integer.BYTES);
+                offset += chunk;
+            }
+        }
+
+        /**
+         * Writes the first {@code count} values of the array.
+         */
+        void putLongs(long[] values, int count) throws IOException {
+            for (int offset = 0; offset < count;) {
+                ensure(Long.BYTES);
+                int chunk = Math.min(buffer.remaining() / Long.BYTES, count - offset);
+                buffer.asLongBuffer().put(values, offset, chunk);
+                buffer.position(buffer.position() + chunk * Long.BYTES);
+                offset += chunk;
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        void commit() throws IOException {
+            flush();
+            channel.force(false);
+            channel.close();
+            try {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                channel.close();
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+
+    /**
+     * Reads a snapshot through a buffer. The file is read rather than mapped,
+     * so it can be replaced right away, which a mapped file cannot on Windows.
+     */
+    static final class Input implements Closeable {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private int rows;
+
+        private Input(File file) throws IOException {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            buffer.limit(0);
+        }
+
+        int getInt() throws IOException {
+            require(Integer.BYTES);
+            return buffer.getInt();
+        }
+
+        long getLong() throws IOException {
+            require(Long.BYTES);
+            return buffer.getLong();
+        }
+
+        String getString() throws IOException {
+            int length = getInt();
+            if (length < 0) {
+                throw new IOException("Snapshot is corrupt");
+            }
+            byte[] bytes = new byte[length];
+            for (int offset = 0; offset < length;) {
+                require(1);
+                int count = Math.min(buffer.remaining(), length - offset);
+                buffer.get(bytes, offset, count);
+                offset += count;
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Reads {@code count} values into the start of the array.
+         *
+         * @return The array.
+         */
+        int[] getInts(int[] values, int count) throws IOException {
+            for (int offset = 0; offset < count;) {
+                require(Integer.BYTES);
+                int chunk = Math.min(buffer.remaining() / Integer.BYTES, count - offset);
+                buffer.asIntBuffer().get(values, offset, chunk);
+                buffer.position(buffer.position() + chunk * Integer.BYTES);
+                offset += chunk;
+            }
+            return values;
+        }
+
+        /**
+         * Reads {@code count} values into the start of the array.
+         *
+         * @return The array.
+         */
+        long[] getLongs(long[] values, int count) throws IOException {
+            for (int offset = 0; offset < count;) {
+                require(Long.BYTES);
+                int chunk = Math.min(buffer.remaining() / Long.BYTES, count - offset);
+                buffer.asLongBuffer().get(values, offset, chunk);
+                buffer.position(buffer.position() + chunk * Long.BYTES);
+                offset += chunk;
+            }
+            return values;
+        }
+
+        /**
+         * Makes sure at least {@code bytes} bytes are buffered.
+         */
+        private void require(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("Snapshot is truncated");
+                }
+            }
+            buffer.flip();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
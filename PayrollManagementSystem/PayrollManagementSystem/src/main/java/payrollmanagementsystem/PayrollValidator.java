@@ -0,0 +1,371 @@
+package payrollmanagementsystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks the payroll input before pay is computed, in a single pass over each
+ * input: missing values, non-numeric codes, hours and rates, hours and rates
+ * too large to pay (see {@link PayrollEngine#MAX_HOURS}), unknown department
+ * codes and duplicate IDs and department codes. Every problem is
+ * collected as a {@link ValidationIssue}; nothing is shown to the user while
+ * the rows are checked, so a run is never held up by a bad row.
+ *
+ * Employee rows with a problem are left out of the run and written to the
+ * reject file of the processed file, see {@link #rejectFileFor}, together
+ * with their row number and problem. The dashboard and every run of
+ * {@link PayrollBatch} check rows by the same rules, so they pay the same rows.
+ */
+final class PayrollValidator {
+
+    /**
+     * Columns of the reject file: the payroll columns, then the row number of
+     * the rejected row and its problem.
+     */
+    static final String[] REJECT_HEADERS;
+
+    static {
+        REJECT_HEADERS = Arrays.copyOf(PayrollCsv.PAYROLL_HEADERS, PayrollCsv.PAYROLL_HEADERS.length + 2);
+        REJECT_HEADERS[PayrollCsv.PAYROLL_HEADERS.length] = "Row";
+        REJECT_HEADERS[PayrollCsv.PAYROLL_HEADERS.length + 1] = "Problem";
+    }
+
+    private final List<ValidationIssue> rateIssues = new ArrayList<>();
+    private final List<ValidationIssue> employeeIssues = new ArrayList<>();
+    private final int[] counts = new int[ValidationIssue.Kind.values().length];
+
+    // Employee rows with a problem, and the problem of each
+    private final BitSet invalidRows = new BitSet();
+    private final Map<Integer, ValidationIssue> rowIssues = new HashMap<>();
+    // First valid row of every employee ID
+    private IntRowIndex ids;
+
+    /**
+     * Returns the reject file of a processed payroll file.
+     */
+    static File rejectFileFor(File processedFile) {
+        String path = processedFile.getPath();
+        if (path.toLowerCase().endsWith(".csv")) {
+            path = path.substring(0, path.length() - ".csv".length());
+        }
+        return new File(path + "_Rejects.csv");
+    }
+
+    /**
+     * Converts rows of the rates table into department rates, leaving out the
+     * rows with a problem. If a department code appears more than once, the
+     * first row wins and the others are reported.
+     */
+    List<DepartmentRate> validateRates(String[][] rows) {
+        List<DepartmentRate> rates = new ArrayList<>(rows.length);
+        IntRowIndex codes = new IntRowIndex(rows.length);
+        for (int row = 0; row < rows.length; row++) {
+            String[] cells = rows[row];
+            ValidationIssue issue = checkCells(ValidationIssue.Input.RATES, row, cells, PayrollCsv.RATES_HEADERS);
+            if (issue == null) {
+                issue = checkInt(ValidationIssue.Input.RATES, row, cells, 0, PayrollCsv.RATES_HEADERS);
+            }
+            if (issue == null) {
+                issue = checkFixedPoint(ValidationIssue.Input.RATES, row, cells, 2, PayrollCsv.RATES_HEADERS);
+            }
+            if (issue == null) {
+                issue = checkFixedPoint(ValidationIssue.Input.RATES, row, cells, 3, PayrollCsv.RATES_HEADERS);
+            }
+            if (issue == null) {
+                issue = checkRange(ValidationIssue.Input.RATES, row, cells, 2, PayrollCsv.RATES_HEADERS,
+                        PayrollEngine.MAX_RATE);
+            }
+            if (issue == null) {
+                issue = checkRange(ValidationIssue.Input.RATES, row, cells, 3, PayrollCsv.RATES_HEADERS,
+                        PayrollEngine.MAX_RATE);
+            }
+            if (issue == null) {
+                int code = Integer.parseInt(cells[0].trim());
+                int firstRow = codes.putIfAbsent(code, row);
+                if (firstRow != -1) {
+                    issue = new ValidationIssue(ValidationIssue.Input.RATES, row + 1,
+                            ValidationIssue.Kind.DUPLICATE_DEPARTMENT, PayrollCsv.RATES_HEADERS[0],
+                            cells[0].trim(), firstRow + 1);
+                }
+            }
+            if (issue != null) {
+                rateIssues.add(issue);
+                counts[issue.getKind().ordinal()]++;
+            } else {
+                rates.add(PayrollCsv.parseRate(cells));
+            }
+        }
+        return rates;
+    }
+
+    /**
+     * Checks every employee of a store against the rates. Afterwards,
+     * {@link #isValid} tells which rows can be paid.
+     */
+    void validateEmployees(EmployeeStore employees, RateIndex rates) {
+        ids = new IntRowIndex(employees.size());
+        for (int row = 0; row < employees.size(); row++) {
+            // Only rows with a missing or unparsed cell need their text looked at
+            ValidationIssue issue = employees.isComplete(row) ? null : checkStoreCells(employees, row);
+            if (issue == null && !inRange(employees.getHoursWorked(row), PayrollEngine.MAX_HOURS)) {
+                issue = new ValidationIssue(ValidationIssue.Input.EMPLOYEES, row + 1,
+                        ValidationIssue.Kind.OUT_OF_RANGE, PayrollCsv.PAYROLL_HEADERS[EmployeeStore.HOURS_WORKED],
+                        employees.getText(row, EmployeeStore.HOURS_WORKED), 0);
+            }
+            if (issue == null) {
+                issue = checkDepartment(row, employees.getDepartmentCode(row), rates);
+            }
+            if (issue == null) {
+                issue = checkId(row, employees.getId(row));
+            }
+            if (issue != null) {
+                invalid(row, issue);
+            }
+        }
+    }
+
+    /**
+     * Checks the cells of one employee row against the rates, for input that
+     * is streamed rather than held in a store. Rows must be checked in order.
+     *
+     * @return The employee, or null if the row has a problem.
+     */
+    Employee validateEmployee(String[] cells, int row, RateIndex rates) {
+        ValidationIssue issue = checkEmployee(cells, row, rates);
+        Employee employee = null;
+        if (issue == null) {
+            employee = PayrollCsv.parseEmployee(cells);
+            issue = checkId(row, employee.getId());
+        }
+        if (issue != null) {
+            invalid(row, issue);
+            return null;
+        }
+        return employee;
+    }
+
+    /**
+     * Checks the cells of one employee row against the rates, except for a
+     * duplicate ID, which depends on the rows before it. Does not record the
+     * problem, so rows can be checked on several threads and in any order.
+     *
+     * @return The problem of the row, or null if it can be paid unless its ID
+     *         is taken.
+     */
+    static ValidationIssue checkEmployee(String[] cells, int row, RateIndex rates) {
+        String[] headers = PayrollCsv.PAYROLL_HEADERS;
+        cells = Arrays.copyOf(cells, headers.length);
+        ValidationIssue.Input input = ValidationIssue.Input.EMPLOYEES;
+        ValidationIssue issue = checkCells(input, row, cells, headers);
+        if (issue == null) {
+            issue = checkInt(input, row, cells, EmployeeStore.ID, headers);
+        }
+        if (issue == null) {
+            issue = checkInt(input, row, cells, EmployeeStore.DEPARTMENT_CODE, headers);
+        }
+        if (issue == null) {
+            issue = checkFixedPoint(input, row, cells, EmployeeStore.HOURS_WORKED, headers);
+        }
+        if (issue == null) {
+            issue = checkRange(input, row, cells, EmployeeStore.HOURS_WORKED, headers, PayrollEngine.MAX_HOURS);
+        }
+        if (issue == null) {
+            issue = checkDepartment(row, Integer.parseInt(cells[EmployeeStore.DEPARTMENT_CODE].trim()), rates);
+        }
+        return issue;
+    }
+
+    /**
+     * Checks a row parsed from an employee file like
+     * {@link #checkEmployee(String[], int, RateIndex)}, reading the text of
+     * its fields only to report a problem.
+     */
+    static ValidationIssue checkEmployee(MappedCsvParser.Row cells, int row, RateIndex rates) {
+        String[] headers = PayrollCsv.PAYROLL_HEADERS;
+        for (int col = 0; col < headers.length; col++) {
+            if (col >= cells.getFieldCount() || cells.isBlank(col)) {
+                return new ValidationIssue(ValidationIssue.Input.EMPLOYEES, row + 1,
+                        ValidationIssue.Kind.MISSING_VALUE, headers[col], null, 0);
+            }
+        }
+        int col = EmployeeStore.ID;
+        try {
+            cells.getInt(col);
+            col = EmployeeStore.DEPARTMENT_CODE;
+            int departmentCode = cells.getInt(col);
+            col = EmployeeStore.HOURS_WORKED;
+            if (!inRange(cells.getFixedPoint(col), PayrollEngine.MAX_HOURS)) {
+                return new ValidationIssue(ValidationIssue.Input.EMPLOYEES, row + 1,
+                        ValidationIssue.Kind.OUT_OF_RANGE, headers[col], cells.getString(col).trim(), 0);
+            }
+            return checkDepartment(row, departmentCode, rates);
+        } catch (NumberFormatException e) {
+            return new ValidationIssue(ValidationIssue.Input.EMPLOYEES, row + 1, ValidationIssue.Kind.NOT_NUMERIC,
+                    headers[col], cells.getString(col), 0);
+        }
+    }
+
+    /**
+     * Writes a rejected employee row to a reject file, with its row number and
+     * problem, and counts it in the summary of the run.
+     */
+    static void writeReject(CsvWriter rejects, String[] cells, ValidationIssue issue, PayrollRunSummary summary)
+            throws IOException {
+        String[] rejected = Arrays.copyOf(cells, REJECT_HEADERS.length);
+        Arrays.fill(rejected, Math.min(cells.length, PayrollCsv.PAYROLL_HEADERS.length), rejected.length, null);
+        rejected[rejected.length - 2] = Integer.toString(issue.getRow());
+        rejected[rejected.length - 1] = issue.getMessage();
+        rejects.writeRow(rejected);
+        if (issue.getKind() == ValidationIssue.Kind.UNKNOWN_DEPARTMENT) {
+            summary.unknownDepartment(Integer.parseInt(issue.getValue()));
+        } else {
+            summary.rejected();
+        }
+    }
+
+    /**
+     * Returns whether an employee row can be paid.
+     */
+    boolean isValid(int row) {
+        return !invalidRows.get(row);
+    }
+
+    /**
+     * Returns the problem of an employee row, or null if it can be paid.
+     */
+    ValidationIssue getIssue(int row) {
+        return invalidRows.get(row) ? rowIssues.get(row) : null;
+    }
+
+    /**
+     * Returns all problems found, those of the rates first, in row order.
+     */
+    List<ValidationIssue> getIssues() {
+        List<ValidationIssue> issues = new ArrayList<>(rateIssues.size() + employeeIssues.size());
+        issues.addAll(rateIssues);
+        issues.addAll(employeeIssues);
+        return issues;
+    }
+
+    /**
+     * Returns the number of problems of one kind.
+     */
+    int count(ValidationIssue.Kind kind) {
+        return counts[kind.ordinal()];
+    }
+
+    /**
+     * Returns the number of employee rows left out of the run.
+     */
+    int getRejectedRows() {
+        return employeeIssues.size();
+    }
+
+    /**
+     * Records the problem of an employee row, e.g. one found by
+     * {@link #checkEmployee} on another thread. Rows must be recorded in order.
+     */
+    void invalid(int row, ValidationIssue issue) {
+        invalidRows.set(row);
+        rowIssues.put(row, issue);
+        employeeIssues.add(issue);
+        counts[issue.getKind().ordinal()]++;
+    }
+
+    private ValidationIssue checkStoreCells(EmployeeStore employees, int row) {
+        for (int col = 0; col < EmployeeStore.COLUMN_COUNT; col++) {
+            String text = employees.getText(row, col);
+            if (text == null || text.trim().isEmpty()) {
+                return new ValidationIssue(ValidationIssue.Input.EMPLOYEES, row + 1,
+                        ValidationIssue.Kind.MISSING_VALUE, PayrollCsv.PAYROLL_HEADERS[col], null, 0);
+            }
+            if (!employees.isParsed(row, col)) {
+                return new ValidationIssue(ValidationIssue.Input.EMPLOYEES, row + 1,
+                        ValidationIssue.Kind.NOT_NUMERIC, PayrollCsv.PAYROLL_HEADERS[col], text, 0);
+            }
+        }
+        return null;
+    }
+
+    private static ValidationIssue checkCells(ValidationIssue.Input input, int row, String[] cells,
+            String[] headers) {
+        for (int col = 0; col < headers.length; col++) {
+            if (col >= cells.length || cells[col] == null || cells[col].trim().isEmpty()) {
+                return new ValidationIssue(input, row + 1, ValidationIssue.Kind.MISSING_VALUE, headers[col],
+                        null, 0);
+            }
+        }
+        return null;
+    }
+
+    private static ValidationIssue checkInt(ValidationIssue.Input input, int row, String[] cells, int col,
+            String[] headers) {
+        try {
+            Integer.parseInt(cells[col].trim());
+            return null;
+        } catch (NumberFormatException e) {
+            return new ValidationIssue(input, row + 1, ValidationIssue.Kind.NOT_NUMERIC, headers[col], cells[col], 0);
+        }
+    }
+
+    private static ValidationIssue checkFixedPoint(ValidationIssue.Input input, int row, String[] cells, int col,
+            String[] headers) {
+        try {
+            FixedPoint.parse(cells[col]);
+            return null;
+        } catch (NumberFormatException e) {
+            return new ValidationIssue(input, row + 1, ValidationIssue.Kind.NOT_NUMERIC, headers[col], cells[col], 0);
+        }
+    }
+
+    /**
+     * Returns whether a fixed-point value lies between -max and max.
+     */
+    static boolean inRange(long value, long max) {
+        return value >= -max && value <= max;
+    }
+
+    /**
+     * Checks that a fixed-point cell, already known to parse, is not too large
+     * to pay.
+     */
+    private static ValidationIssue checkRange(ValidationIssue.Input input, int row, String[] cells, int col,
+            String[] headers, long max) {
+        if (inRange(FixedPoint.parse(cells[col]), max)) {
+            return null;
+        }
+        return new ValidationIssue(input, row + 1, ValidationIssue.Kind.OUT_OF_RANGE, headers[col], cells[col].trim(),
+                0);
+    }
+
+    private static ValidationIssue checkDepartment(int row, int departmentCode, RateIndex rates) {
+        if (rates.indexOf(departmentCode) != -1) {
+            return null;
+        }
+        return new ValidationIssue(ValidationIssue.Input.EMPLOYEES, row + 1, ValidationIssue.Kind.UNKNOWN_DEPARTMENT,
+                PayrollCsv.PAYROLL_HEADERS[EmployeeStore.DEPARTMENT_CODE], Integer.toString(departmentCode), 0);
+    }
+
+    /**
+     * Reports an ID already used by an earlier valid row, or claims the ID
+     * for the row. Rows with other problems must not be checked, so the first
+     * payable row keeps its ID; rows must be checked in order.
+     */
+    ValidationIssue checkId(int row, int id) {
+        if (ids == null) {
+            ids = new IntRowIndex(1024);
+        }
+        int firstRow = ids.putIfAbsent(id, row);
+        if (firstRow == -1) {
+            return null;
+        }
+        return new ValidationIssue(ValidationIssue.Input.EMPLOYEES, row + 1, ValidationIssue.Kind.DUPLICATE_ID,
+                PayrollCsv.PAYROLL_HEADERS[EmployeeStore.ID], Integer.toString(id), firstRow + 1);
+    }
+}
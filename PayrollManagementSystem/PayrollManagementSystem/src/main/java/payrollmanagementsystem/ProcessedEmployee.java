@@ -0,0 +1,36 @@
+package payrollmanagementsystem;
+
+/**
+ * An employee together with the pay computed for them by the {@link PayrollEngine},
+ * in cents.
+ */
+public final class ProcessedEmployee {
+
+    private final Employee employee;
+    private final long regularPay;
+    private final long overtimePay;
+    private final long grossPay;
+
+    public ProcessedEmployee(Employee employee, long regularPay, long overtimePay, long grossPay) {
+        this.employee = employee;
+        this.regularPay = regularPay;
+        this.overtimePay = overtimePay;
+        this.grossPay = grossPay;
+    }
+
+    public Employee getEmployee() {
+        return employee;
+    }
+
+    public long getRegularPay() {
+        return regularPay;
+    }
+
+    public long getOvertimePay() {
+        return overtimePay;
+    }
+
+    public long getGrossPay() {
+        return grossPay;
+    }
+}
@@ -0,0 +1,97 @@
+package payrollmanagementsystem;
+
+import java.util.Collection;
+
+/**
+ * Open-addressing hash index from department code to department rates.
+ * Keys and rates are held in primitive arrays, so a lookup neither boxes the
+ * code nor parses any cell. The index is built once per payroll run.
+ */
+public final class RateIndex {
+
+    private final int[] keys;
+    // Position + 1 of the department in the rate arrays; 0 marks an empty slot
+    private final int[] positions;
+    private final int mask;
+
+    private final DepartmentRate[] departments;
+    // Rates in cents
+    private final long[] regularRates;
+    private final long[] overtimeRates;
+    private final int size;
+
+    /**
+     * Builds the index. If a department code appears more than once, the first
+     * entry wins, as it did in the old table scan.
+     */
+    public RateIndex(Collection<DepartmentRate> rates) {
+        int capacity = Integer.highestOneBit(Math.max(2, rates.size()) * 2 - 1) << 1;
+        keys = new int[capacity];
+        positions = new int[capacity];
+        mask = capacity - 1;
+
+        departments = new DepartmentRate[rates.size()];
+        regularRates = new long[rates.size()];
+        overtimeRates = new long[rates.size()];
+
+        int count = 0;
+        for (DepartmentRate rate : rates) {
+            int slot = slot(rate.getCode());
+            if (positions[slot] != 0) {
+                continue; // Duplicate code
+            }
+            keys[slot] = rate.getCode();
+            positions[slot] = count + 1;
+            departments[count] = rate;
+            regularRates[count] = rate.getRegularRate();
+            overtimeRates[count] = rate.getOvertimeRate();
+            count++;
+        }
+        size = count;
+    }
+
+    /**
+     * Finds the position of a department in the index.
+     *
+     * @param departmentCode The department code to find.
+     * @return The position of the department if found, otherwise -1.
+     */
+    public int indexOf(int departmentCode) {
+        return positions[slot(departmentCode)] - 1;
+    }
+
+    public long regularRate(int index) {
+        return regularRates[index];
+    }
+
+    public long overtimeRate(int index) {
+        return overtimeRates[index];
+    }
+
+    public DepartmentRate department(int index) {
+        return departments[index];
+    }
+
+    /**
+     * Returns the number of distinct departments in the index.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the slot holding the code, or the empty slot where it would go.
+     */
+    private int slot(int departmentCode) {
+        int slot = mix(departmentCode) & mask;
+        while (positions[slot] != 0 && keys[slot] != departmentCode) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
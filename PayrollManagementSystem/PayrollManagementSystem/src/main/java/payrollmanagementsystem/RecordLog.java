@@ -0,0 +1,577 @@
+package payrollmanagementsystem;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32;
+import javax.swing.Timer;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import javax.swing.table.TableModel;
+
+/**
+ * Write-ahead journal of the row edits made to a table since its CSV file was
+ * last written, kept next to the CSV file as "&lt;name&gt;.log". Every edit is
+ * appended to the journal as it is made; edits made within a short delay of
+ * each other are written together and forced to disk once (group commit).
+ * Saving the table appends a commit record, so it costs a few bytes instead
+ * of rewriting the whole file. Loading the CSV file replays the journal on
+ * top of it.
+ *
+ * Edits after the last commit record are unsaved edits. They are dropped when
+ * the table is closed or loaded from another file, as unsaved edits always
+ * were; after a crash they are still in the journal and can be restored.
+ *
+ * Once the journal grows past a fraction of the CSV file, the next save writes
+ * the CSV file again and starts an empty journal (checkpoint). The CSV file
+ * stays the import and export format; the journal only holds what it is
+ * missing.
+ *
+ * Rows are addressed by their position in the table rather than by ID. No or
+ * Dept. Code, because the tables allow duplicate and blank IDs.
+ *
+ * Layout (big-endian): magic, version, CSV length, CSV modification time, then
+ * one record per edit: byte length, CRC32 of the body, and the body (type,
+ * row, cells). The journal only applies while the CSV file still matches, and
+ * a torn or corrupt tail is cut off at the last complete record.
+ *
+ * All methods except the static ones must be called on the Event Dispatch
+ * Thread.
+ */
+public final class RecordLog implements TableModelListener {
+
+    private static final int MAGIC = 0x5041594C; // "PAYL"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+
+    // Record types
+    private static final byte APPEND = 1;
+    private static final byte UPDATE = 2;
+    private static final byte DELETE = 3;
+    private static final byte COMMIT = 4;
+
+    // Edits are forced to disk this long after the first unwritten edit
+    private static final int GROUP_COMMIT_DELAY_MS = 200;
+
+    // The journal is checkpointed once it is larger than this share of the CSV file...
+    private static final int COMPACT_DIVISOR = 4;
+    // ...and larger than this
+    private static final long MIN_COMPACT_BYTES = 1 << 20;
+
+    private final TableModel model;
+
+    // CSV file the table was loaded from, or null if edits are not journaled
+    private File csvFile;
+    // Header of the journal of the CSV file as it was loaded or last written
+    private ByteBuffer header;
+    // Length of the journal up to its last commit record, 0 if there is none
+    private long committedSize;
+    // Edits not yet written to the journal
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(pending);
+    private final Timer flushTimer;
+    // Set by edits the journal cannot express, e.g. new columns
+    private boolean rewriteRequired;
+    private boolean replaying;
+
+    public RecordLog(TableModel model) {
+        this.model = model;
+        flushTimer = new Timer(GROUP_COMMIT_DELAY_MS, e -> flush());
+        flushTimer.setRepeats(false);
+        model.addTableModelListener(this);
+    }
+
+    /**
+     * Returns the journal file of a CSV file.
+     */
+    public static File fileFor(File csvFile) {
+        return new File(csvFile.getPath() + ".log");
+    }
+
+    /**
+     * Returns whether a CSV file has a journal with edits that are not yet in
+     * the CSV file.
+     */
+    public static boolean hasEdits(File csvFile) {
+        File logFile = fileFor(csvFile);
+        return logFile.length() > HEADER_SIZE && header(csvFile).equals(readHeader(logFile));
+    }
+
+    /**
+     * Checks the journal of a CSV file after the application was last closed,
+     * possibly by a crash: a journal that does not match the CSV file is
+     * deleted, and a torn or corrupt tail is cut off.
+     *
+     * @return The number of unsaved edits left in the journal.
+     */
+    public static int recover(File csvFile) {
+        File logFile = fileFor(csvFile);
+        if (!logFile.exists()) {
+            return 0;
+        }
+        if (!header(csvFile).equals(readHeader(logFile))) {
+            System.err.println("Discarding " + logFile + ", which does not match " + csvFile);
+            delete(csvFile);
+            return 0;
+        }
+        try {
+            Journal journal = Journal.read(logFile);
+            if (journal.error != null) {
+                System.err.println("Truncating " + logFile + " at record " + (journal.records.size() + 1) + ": "
+                        + journal.error);
+                truncate(logFile, journal.size());
+            }
+            return journal.records.size() - journal.committed;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    /**
+     * Drops the unsaved edits from the journal of a CSV file, e.g. when they
+     * are not to be restored after a crash.
+     */
+    public static void rollback(File csvFile) {
+        File logFile = fileFor(csvFile);
+        try {
+            if (logFile.exists()) {
+                truncate(logFile, Journal.read(logFile).committedSize());
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Applies the saved edits in the journal of a CSV file to a table that has
+     * just been loaded from it, without journaling further edits.
+     *
+     * @param addRow    Appends a row of cells to the table.
+     * @param removeRow Removes a row from the table.
+     */
+    public static void applySavedEdits(File csvFile, TableModel model, Consumer<String[]> addRow,
+            IntConsumer removeRow) throws IOException {
+        if (!hasEdits(csvFile)) {
+            return;
+        }
+        Journal journal = Journal.read(fileFor(csvFile));
+        for (int i = 0; i < journal.committed; i++) {
+            apply(model, journal.records.get(i), addRow, removeRow);
+        }
+    }
+
+    /**
+     * Attaches the journal to the CSV file that has just been loaded into the
+     * table, and replays the edits in the journal, including unsaved edits
+     * left by a crash, which then show as unsaved edits of the table. A
+     * journal that does not match the CSV file, e.g. because the CSV file was
+     * edited elsewhere, is deleted. The unsaved edits of the file the table
+     * showed before are dropped.
+     *
+     * @param addRow    Appends a row of cells to the table.
+     * @param removeRow Removes a row from the table.
+     */
+    public void open(File csvFile, Consumer<String[]> addRow, IntConsumer removeRow) {
+        detach();
+        this.csvFile = csvFile;
+        header = header(csvFile);
+        committedSize = 0;
+        rewriteRequired = false;
+        File logFile = fileFor(csvFile);
+        if (!logFile.exists()) {
+            return;
+        }
+        if (!header.equals(readHeader(logFile))) {
+            System.err.println("Discarding " + logFile + ", which does not match " + csvFile);
+            delete(csvFile);
+            return;
+        }
+
+        replaying = true;
+        try {
+            Journal journal = Journal.read(logFile);
+            int applied = 0;
+            try {
+                for (; applied < journal.records.size(); applied++) {
+                    apply(model, journal.records.get(applied), addRow, removeRow);
+                }
+            } catch (IOException e) {
+                journal.error = e.getMessage();
+            }
+            if (journal.error != null) {
+                // Later edits would be appended after records that cannot be replayed
+                System.err.println("Truncating " + logFile + " at record " + (applied + 1) + ": " + journal.error);
+                journal.keep(applied);
+                truncate(logFile, journal.size());
+            }
+            committedSize = journal.committedSize();
+            if (journal.committed < journal.records.size()) {
+                System.err.println("Restored " + (journal.records.size() - journal.committed)
+                        + " unsaved edits from " + logFile);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            rewriteRequired = true; // Save the table as it is now
+        } finally {
+            replaying = false;
+        }
+    }
+
+    /**
+     * Stops journaling edits, e.g. while the table shows a file that is saved
+     * in another way or when the application closes, and drops the unsaved
+     * edits from the journal.
+     */
+    public void detach() {
+        flushTimer.stop();
+        pending.reset();
+        if (csvFile != null) {
+            File logFile = fileFor(csvFile);
+            try {
+                if (logFile.length() > committedSize) {
+                    truncate(logFile, committedSize);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        csvFile = null;
+    }
+
+    /**
+     * Returns the CSV file whose edits are journaled, or null.
+     */
+    public File getFile() {
+        return csvFile;
+    }
+
+    /**
+     * Returns whether saving the table to the CSV file can append to the
+     * journal, or whether the CSV file has to be written, because the journal
+     * belongs to another file, has grown too large or cannot express an edit.
+     */
+    public boolean canAppend(File file) {
+        if (csvFile == null || rewriteRequired || !csvFile.getAbsoluteFile().equals(file.getAbsoluteFile())) {
+            return false;
+        }
+        // The CSV file must not have been replaced since the table was loaded
+        File logFile = fileFor(csvFile);
+        if (!header.equals(header(csvFile)) || logFile.exists() && !header.equals(readHeader(logFile))) {
+            return false;
+        }
+        long logSize = Math.max(logFile.length(), HEADER_SIZE) + pending.size();
+        return logSize <= Math.max(MIN_COMPACT_BYTES, csvFile.length() / COMPACT_DIVISOR);
+    }
+
+    /**
+     * Returns whether the journal holds saved edits while the table has no
+     * unsaved ones, so writing the table to the CSV file checkpoints the
+     * journal without saving anything the user has not saved.
+     */
+    public boolean isCheckpointDue() {
+        return csvFile != null && !rewriteRequired && pending.size() == 0 && committedSize > HEADER_SIZE
+                && fileFor(csvFile).length() == committedSize && header.equals(header(csvFile));
+    }
+
+    /**
+     * Saves the edits made since the last save by appending a commit record
+     * and forcing the journal to disk. Only valid if {@link #canAppend} is
+     * true.
+     */
+    public void commit() throws IOException {
+        record(COMMIT, 0);
+        committedSize = write();
+    }
+
+    /**
+     * Starts an empty journal after the whole table has been written to the
+     * CSV file (checkpoint). Does nothing if the journal belongs to another
+     * file.
+     */
+    public void reset(File file) {
+        if (csvFile == null || !csvFile.getAbsoluteFile().equals(file.getAbsoluteFile())) {
+            return;
+        }
+        flushTimer.stop();
+        header = header(csvFile);
+        committedSize = 0;
+        pending.reset();
+        rewriteRequired = false;
+        delete(csvFile);
+    }
+
+    /**
+     * Deletes the journal of a CSV file.
+     */
+    public static void delete(File csvFile) {
+        try {
+            Files.deleteIfExists(fileFor(csvFile).toPath());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void tableChanged(TableModelEvent e) {
+        if (replaying || csvFile == null || rewriteRequired) {
+            return;
+        }
+        boolean allRows = e.getFirstRow() == TableModelEvent.HEADER_ROW || e.getLastRow() == Integer.MAX_VALUE;
+        if (allRows) {
+            rewriteRequired = true;
+        } else if (e.getType() == TableModelEvent.INSERT) {
+            if (e.getLastRow() != model.getRowCount() - 1) {
+                rewriteRequired = true; // Only appended rows can be journaled
+                return;
+            }
+            for (int row = e.getFirstRow(); row <= e.getLastRow(); row++) {
+                record(APPEND, row);
+            }
+        } else if (e.getType() == TableModelEvent.DELETE) {
+            for (int row = e.getFirstRow(); row <= e.getLastRow(); row++) {
+                record(DELETE, e.getFirstRow());
+            }
+        } else {
+            for (int row = e.getFirstRow(); row <= e.getLastRow(); row++) {
+                record(UPDATE, row);
+            }
+        }
+        if (pending.size() > 0) {
+            flushTimer.start(); // Edits until it fires share one write
+        }
+    }
+
+    // Writes the pending edits to the journal; run by the group commit timer
+    private void flush() {
+        if (csvFile == null || pending.size() == 0) {
+            return;
+        }
+        try {
+            write();
+        } catch (IOException e) {
+            e.printStackTrace();
+            // The journal may end in a partial record, so the next save writes the CSV file
+            rewriteRequired = true;
+            pending.reset();
+        }
+    }
+
+    /**
+     * Appends the pending edits to the journal and forces them to disk.
+     *
+     * @return The length of the journal.
+     */
+    private long write() throws IOException {
+        flushTimer.stop();
+        try (FileChannel channel = FileChannel.open(fileFor(csvFile).toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            if (channel.size() == 0) {
+                write(channel, header.duplicate());
+            }
+            write(channel, ByteBuffer.wrap(pending.toByteArray()));
+            channel.force(false);
+            pending.reset();
+            return channel.size();
+        }
+    }
+
+    // Adds a record of an edit to the pending edits
+    private void record(byte type, int row) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(body);
+        try {
+            data.writeByte(type);
+            data.writeInt(row);
+            if (type == APPEND || type == UPDATE) {
+                data.writeShort(model.getColumnCount());
+                for (int col = 0; col < model.getColumnCount(); col++) {
+                    Object value = model.getValueAt(row, col);
+                    if (value == null) {
+                        data.writeInt(-1);
+                    } else {
+                        byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+                        data.writeInt(bytes.length);
+                        data.write(bytes);
+                    }
+                }
+            }
+            CRC32 crc = new CRC32();
+            crc.update(body.toByteArray());
+            out.writeInt(body.size());
+            out.writeInt((int) crc.getValue());
+            body.writeTo(out);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // Writing to memory
+        }
+    }
+
+    private static void apply(TableModel model, byte[] body, Consumer<String[]> addRow, IntConsumer removeRow)
+            throws IOException {
+        DataInputStream record = new DataInputStream(new ByteArrayInputStream(body));
+        byte type = record.readByte();
+        int row = record.readInt();
+        if (type == COMMIT) {
+            return;
+        }
+        if (type == DELETE) {
+            if (row >= model.getRowCount()) {
+                throw new IOException("Deleted row " + row + " is not in the table");
+            }
+            removeRow.accept(row);
+            return;
+        }
+        String[] cells = new String[record.readShort()];
+        for (int col = 0; col < cells.length; col++) {
+            int length = record.readInt();
+            if (length >= 0) {
+                byte[] bytes = new byte[length];
+                record.readFully(bytes);
+                cells[col] = new String(bytes, StandardCharsets.UTF_8);
+            }
+        }
+        if (type == APPEND) {
+            addRow.accept(cells);
+        } else if (row < model.getRowCount()) {
+            for (int col = 0; col < cells.length && col < model.getColumnCount(); col++) {
+                model.setValueAt(cells[col], row, col);
+            }
+        } else {
+            throw new IOException("Updated row " + row + " is not in the table");
+        }
+    }
+
+    private static ByteBuffer header(File csvFile) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putLong(csvFile.length()).putLong(csvFile.lastModified());
+        header.flip();
+        return header;
+    }
+
+    // Returns the header of a journal file, or null if it cannot be read
+    private static ByteBuffer readHeader(File logFile) {
+        try (FileChannel channel = FileChannel.open(logFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Read the whole header
+            }
+            return header.hasRemaining() ? null : header.flip();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // Cuts a journal file to the given length, deleting it if no record is left
+    private static void truncate(File logFile, long size) throws IOException {
+        if (size <= HEADER_SIZE) {
+            Files.deleteIfExists(logFile.toPath());
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(logFile.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+            channel.force(false);
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    /**
+     * The complete records of a journal file, read up to the first record that
+     * is torn or corrupt.
+     */
+    private static final class Journal {
+
+        private final List<byte[]> records = new ArrayList<>();
+        // End of each record in the file
+        private final List<Long> ends = new ArrayList<>();
+        // Number of records up to and including the last commit record
+        private int committed;
+        // Why reading stopped before the end of the file, or null
+        private String error;
+
+        static Journal read(File logFile) throws IOException {
+            Journal journal = new Journal();
+            long fileSize = logFile.length();
+            try (InputStream file = Files.newInputStream(logFile.toPath());
+                    DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+                in.readFully(new byte[HEADER_SIZE]);
+                long end = HEADER_SIZE;
+                while (true) {
+                    int length;
+                    try {
+                        length = in.readInt();
+                    } catch (EOFException e) {
+                        if (end < fileSize) {
+                            journal.error = "record is incomplete";
+                        }
+                        return journal;
+                    }
+                    byte[] body;
+                    int checksum;
+                    try {
+                        checksum = in.readInt();
+                        if (length < 5 || length > fileSize - end) {
+                            journal.error = "record is corrupt";
+                            return journal;
+                        }
+                        body = new byte[length];
+                        in.readFully(body);
+                    } catch (EOFException e) {
+                        journal.error = "record is incomplete";
+                        return journal;
+                    }
+                    CRC32 crc = new CRC32();
+                    crc.update(body);
+                    if ((int) crc.getValue() != checksum) {
+                        journal.error = "record is corrupt";
+                        return journal;
+                    }
+                    end += 8 + length;
+                    journal.records.add(body);
+                    journal.ends.add(end);
+                    if (body[0] == COMMIT) {
+                        journal.committed = journal.records.size();
+                    }
+                }
+            } catch (EOFException e) {
+                return journal; // No complete header, so no records
+            }
+        }
+
+        // Drops the records from the given index on
+        void keep(int count) {
+            records.subList(count, records.size()).clear();
+            ends.subList(count, ends.size()).clear();
+            committed = Math.min(committed, count);
+        }
+
+        // Length of the file up to the last complete record
+        long size() {
+            return ends.isEmpty() ? HEADER_SIZE : ends.get(ends.size() - 1);
+        }
+
+        // Length of the file up to the last commit record
+        long committedSize() {
+            return committed == 0 ? 0 : ends.get(committed - 1);
+        }
+    }
+}
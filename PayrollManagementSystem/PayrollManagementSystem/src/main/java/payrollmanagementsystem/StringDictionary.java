@@ -0,0 +1,62 @@
+package payrollmanagementsystem;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Assigns a small int code to each distinct string, so a column of repeated
+ * values (positions, first names) is stored as an int[] plus one copy of every
+ * distinct value.
+ */
+public final class StringDictionary {
+
+    private final Map<String, Integer> codes;
+    private String[] values;
+    private int size;
+
+    public StringDictionary() {
+        codes = new HashMap<>();
+        values = new String[16];
+    }
+
+    private StringDictionary(StringDictionary other) {
+        codes = new HashMap<>(other.codes);
+        values = Arrays.copyOf(other.values, other.values.length);
+        size = other.size;
+    }
+
+    /**
+     * Returns the code of the value, adding it to the dictionary if needed.
+     */
+    public int encode(String value) {
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size] = value;
+        codes.put(value, size);
+        return size++;
+    }
+
+    public String decode(int code) {
+        return values[code];
+    }
+
+    /**
+     * Returns the number of distinct values.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns an independent copy, e.g. for use on a worker thread.
+     */
+    public StringDictionary copy() {
+        return new StringDictionary(this);
+    }
+}
@@ -0,0 +1,777 @@
+package payrollmanagementsystem;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.table.TableModel;
+
+/**
+ * Row sorter and filter for large tables that compares cells by type: numeric
+ * columns as fixed point numbers, so "100" sorts after "20", and text columns
+ * by collation. Unlike TableRowSorter, no cell is converted or compared while
+ * the rows are sorted.
+ *
+ * The sort key of every cell of a column is computed once, when the column is
+ * first sorted or filtered on, and kept: numbers as their fixed point value,
+ * text as the collation rank of its distinct value. A sort then radix sorts
+ * the rows on their keys. Edited, inserted and deleted rows are moved into
+ * place in the cached permutation instead of sorting the table again.
+ *
+ * One column is sorted at a time. Rows with equal keys keep their model
+ * order, and missing or non-numeric cells of a numeric column sort after all
+ * numbers in either direction. All methods must be called on the Event
+ * Dispatch Thread.
+ */
+public final class TypedRowSorter extends RowSorter<TableModel> {
+
+    /**
+     * The numeric value of a missing or non-numeric cell.
+     */
+    public static final long MISSING = Long.MIN_VALUE;
+
+    /**
+     * Implemented by models that know which of their columns are numeric and
+     * can give the value of a numeric cell without formatting it as text.
+     */
+    public interface TypedColumns {
+
+        boolean isNumeric(int column);
+
+        /**
+         * Returns the value of a numeric cell in fixed point (see
+         * {@link FixedPoint}), or {@link #MISSING}.
+         */
+        long getNumericValue(int row, int column);
+    }
+
+    // Rank distance between neighbouring text values, leaving room to rank
+    // values added by edits without ranking the column again
+    private static final long RANK_GAP = 1 << 16;
+
+    // Changes to more rows than this sort the table again, as moving each
+    // row into place copies the view
+    private static final int MAX_INCREMENTAL_ROWS = 64;
+
+    private final TableModel model;
+    private final Set<String> numericColumnNames;
+    private final Collator collator = Collator.getInstance();
+
+    private boolean[] numeric;
+    private ColumnKeys[] columns;
+    private int modelRowCount;
+
+    private int sortColumn = -1;
+    private boolean descending;
+
+    // Filter: column, or -1 for every column, and the text it was made from
+    private int filterColumn = -1;
+    private String filterText;
+    private long filterLow;
+    private long filterHigh;
+    private String filterNeedle;
+
+    // Model row of every view row, or null if the view shows the model as is
+    private int[] viewToModel;
+    // View row of every model row, or -1; built on demand
+    private int[] modelToView;
+
+    /**
+     * Creates a sorter for a model. Columns with the given names are numeric,
+     * unless the model implements {@link TypedColumns}.
+     */
+    public TypedRowSorter(TableModel model, String... numericColumnNames) {
+        this.model = model;
+        this.numericColumnNames = new TreeSet<>(Arrays.asList(numericColumnNames));
+        reset();
+    }
+
+    @Override
+    public TableModel getModel() {
+        return model;
+    }
+
+    /**
+     * Sorts on a column, in ascending order first and then in the opposite
+     * order of the last sort on it.
+     */
+    @Override
+    public void toggleSortOrder(int column) {
+        checkColumn(column);
+        boolean toDescending = column == sortColumn && !descending;
+        setSortKeys(Collections.singletonList(
+                new SortKey(column, toDescending ? SortOrder.DESCENDING : SortOrder.ASCENDING)));
+    }
+
+    /**
+     * Sorts on the first of the keys; the others are ignored. An empty list
+     * or an unsorted key shows the rows in model order.
+     */
+    @Override
+    public void setSortKeys(List<? extends SortKey> keys) {
+        int column = -1;
+        boolean toDescending = false;
+        if (keys != null && !keys.isEmpty() && keys.get(0).getSortOrder() != SortOrder.UNSORTED) {
+            column = keys.get(0).getColumn();
+            checkColumn(column);
+            toDescending = keys.get(0).getSortOrder() == SortOrder.DESCENDING;
+        }
+        if (column == sortColumn && toDescending == descending) {
+            return;
+        }
+        sortColumn = column;
+        descending = toDescending;
+        fireSortOrderChanged();
+        sort();
+    }
+
+    @Override
+    public List<? extends SortKey> getSortKeys() {
+        if (sortColumn == -1) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(
+                new SortKey(sortColumn, descending ? SortOrder.DESCENDING : SortOrder.ASCENDING));
+    }
+
+    /**
+     * Shows only the rows whose cell in a column matches a filter, or every
+     * row for an empty filter. A text column matches cells containing the
+     * filter, ignoring case. A numeric column takes a number, a comparison
+     * such as "&gt;40" or "&lt;=10", or a range such as "10..20". With column
+     * -1 a row matches if any text cell contains the filter or any numeric
+     * cell equals it.
+     *
+     * @throws NumberFormatException If a numeric column is given a filter
+     *                               that is not a number, comparison or range.
+     */
+    public void setFilter(int column, String text) {
+        if (column != -1) {
+            checkColumn(column);
+        }
+        text = text != null ? text.trim() : "";
+        long[] bounds = { 1, 0 }; // Matches no number
+        if (text.isEmpty()) {
+            text = null;
+        } else if (column != -1 && numeric[column]) {
+            bounds = parseNumericFilter(text);
+        } else {
+            try {
+                bounds[0] = bounds[1] = FixedPoint.parse(text);
+            } catch (NumberFormatException e) {
+                // Only text cells can match
+            }
+        }
+        filterLow = bounds[0];
+        filterHigh = bounds[1];
+        filterColumn = column;
+        filterText = text;
+        filterNeedle = text != null ? text.toLowerCase(Locale.ROOT) : null;
+        for (ColumnKeys keys : columns) {
+            if (keys != null) {
+                keys.matches = null;
+            }
+        }
+        sort();
+    }
+
+    /**
+     * Returns the filter text, or null if every row is shown.
+     */
+    public String getFilterText() {
+        return filterText;
+    }
+
+    public int getFilterColumn() {
+        return filterColumn;
+    }
+
+    /**
+     * Returns the lowest and highest value matching a numeric filter.
+     */
+    private static long[] parseNumericFilter(String text) {
+        int range = text.indexOf("..");
+        if (range > 0) {
+            return new long[] { FixedPoint.parse(text.substring(0, range)),
+                    FixedPoint.parse(text.substring(range + 2)) };
+        } else if (text.startsWith(">=")) {
+            return new long[] { FixedPoint.parse(text.substring(2)), Long.MAX_VALUE };
+        } else if (text.startsWith("<=")) {
+            return new long[] { MISSING + 1, FixedPoint.parse(text.substring(2)) };
+        } else if (text.startsWith(">")) {
+            return new long[] { FixedPoint.parse(text.substring(1)) + 1, Long.MAX_VALUE };
+        } else if (text.startsWith("<")) {
+            return new long[] { MISSING + 1, FixedPoint.parse(text.substring(1)) - 1 };
+        }
+        long value = FixedPoint.parse(text.startsWith("=") ? text.substring(1) : text);
+        return new long[] { value, value };
+    }
+
+    @Override
+    public int convertRowIndexToModel(int index) {
+        if (viewToModel == null) {
+            if (index < 0 || index >= modelRowCount) {
+                throw new IndexOutOfBoundsException("Invalid index " + index);
+            }
+            return index;
+        }
+        return viewToModel[index];
+    }
+
+    @Override
+    public int convertRowIndexToView(int index) {
+        if (viewToModel == null) {
+            if (index < 0 || index >= modelRowCount) {
+                throw new IndexOutOfBoundsException("Invalid index " + index);
+            }
+            return index;
+        }
+        if (modelToView == null) {
+            modelToView = new int[modelRowCount];
+            Arrays.fill(modelToView, -1);
+            for (int i = 0; i < viewToModel.length; i++) {
+                modelToView[viewToModel[i]] = i;
+            }
+        }
+        return modelToView[index];
+    }
+
+    @Override
+    public int getViewRowCount() {
+        return viewToModel != null ? viewToModel.length : modelRowCount;
+    }
+
+    @Override
+    public int getModelRowCount() {
+        return modelRowCount;
+    }
+
+    /**
+     * Forgets the sort keys and the cached keys, and shows the rows in model
+     * order. The filter is kept if its column still exists.
+     */
+    @Override
+    public void modelStructureChanged() {
+        boolean wasSorted = sortColumn != -1;
+        sortColumn = -1;
+        descending = false;
+        reset();
+        if (filterColumn >= numeric.length) {
+            filterColumn = -1;
+            filterText = null;
+        }
+        if (wasSorted) {
+            fireSortOrderChanged();
+        }
+        sort();
+    }
+
+    @Override
+    public void allRowsChanged() {
+        reset();
+        sort();
+    }
+
+    @Override
+    public void rowsInserted(int firstRow, int endRow) {
+        int count = endRow - firstRow + 1;
+        if (firstRow > modelRowCount || model.getRowCount() != modelRowCount + count) {
+            allRowsChanged();
+            return;
+        }
+        modelRowCount += count;
+        for (ColumnKeys keys : columns) {
+            if (keys != null) {
+                keys.insert(firstRow, count);
+            }
+        }
+        if (viewToModel == null) {
+            return;
+        }
+        if (count > MAX_INCREMENTAL_ROWS) {
+            sort();
+            return;
+        }
+        int[] previous = viewToModel;
+        int[] view = Arrays.copyOf(previous, previous.length + count);
+        for (int i = 0; i < previous.length; i++) {
+            if (view[i] >= firstRow) {
+                view[i] += count;
+            }
+        }
+        int size = previous.length;
+        for (int row = firstRow; row <= endRow; row++) {
+            size = place(view, size, row);
+        }
+        show(Arrays.copyOf(view, size), previous);
+    }
+
+    @Override
+    public void rowsDeleted(int firstRow, int endRow) {
+        int count = endRow - firstRow + 1;
+        if (endRow >= modelRowCount || model.getRowCount() != modelRowCount - count) {
+            allRowsChanged();
+            return;
+        }
+        modelRowCount -= count;
+        for (ColumnKeys keys : columns) {
+            if (keys != null) {
+                keys.delete(firstRow, count);
+            }
+        }
+        if (viewToModel == null) {
+            return;
+        }
+        int[] previous = viewToModel;
+        int[] view = new int[previous.length];
+        int size = 0;
+        for (int row : previous) {
+            if (row > endRow) {
+                view[size++] = row - count;
+            } else if (row < firstRow) {
+                view[size++] = row;
+            }
+        }
+        show(Arrays.copyOf(view, size), previous);
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow) {
+        rowsUpdated(firstRow, endRow, -1);
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow, int column) {
+        if (endRow >= modelRowCount || model.getRowCount() != modelRowCount) {
+            allRowsChanged();
+            return;
+        }
+        boolean moves = viewToModel != null && (column == -1 || column == sortColumn
+                || (filterText != null && (filterColumn == -1 || column == filterColumn)));
+        if (!moves) {
+            updateKeys(firstRow, endRow, column);
+            return;
+        }
+        if (endRow - firstRow + 1 > MAX_INCREMENTAL_ROWS) {
+            updateKeys(firstRow, endRow, column);
+            sort();
+            return;
+        }
+        int[] previous = viewToModel;
+        int[] view = previous.clone();
+        int size = view.length;
+        for (int row = firstRow; row <= endRow; row++) {
+            // Take the row out where its old key put it, then place it by its new key
+            int index = find(view, size, row);
+            if (index >= 0) {
+                System.arraycopy(view, index + 1, view, index, size - index - 1);
+                size--;
+            }
+            updateKeys(row, row, column);
+            if (size == view.length) {
+                view = Arrays.copyOf(view, size + 1);
+            }
+            size = place(view, size, row);
+        }
+        show(Arrays.copyOf(view, size), previous);
+    }
+
+    private void updateKeys(int firstRow, int endRow, int column) {
+        for (ColumnKeys keys : columns) {
+            if (keys != null && (column == -1 || keys.column == column)) {
+                keys.update(firstRow, endRow);
+            }
+        }
+    }
+
+    /**
+     * Shows the rows that pass the filter, in sorted order, and tells the
+     * listeners.
+     */
+    private void sort() {
+        int[] previous = viewToModel;
+        int[] view = null;
+        if (sortColumn != -1 || filterText != null) {
+            view = new int[modelRowCount];
+            int size = 0;
+            for (int row = 0; row < modelRowCount; row++) {
+                if (include(row)) {
+                    view[size++] = row;
+                }
+            }
+            view = Arrays.copyOf(view, size);
+            if (sortColumn != -1) {
+                sortRows(view);
+            }
+        }
+        show(view, previous);
+    }
+
+    private void show(int[] view, int[] previous) {
+        viewToModel = view;
+        modelToView = null;
+        fireRowSorterChanged(previous);
+    }
+
+    /**
+     * Sorts model rows, given in ascending order, by the key of the sort
+     * column. Each key is turned into its distance from the first key in sort
+     * order, and the rows are radix sorted on the distances, 16 bits per
+     * pass. Radix sorting is stable, so rows with equal keys stay in model
+     * order without their row taking part in the sort.
+     */
+    private void sortRows(int[] rows) {
+        ColumnKeys keys = keys(sortColumn);
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int row : rows) {
+            long key = keys.sortKey(row);
+            if (key != MISSING) {
+                min = Math.min(min, key);
+                max = Math.max(max, key);
+            }
+        }
+        if (min > max) {
+            return; // Every key is missing
+        }
+        long span = max - min;
+        if (span < 0 || span == Long.MAX_VALUE) {
+            // The distances overflow; compare the keys instead
+            Integer[] boxed = new Integer[rows.length];
+            for (int i = 0; i < rows.length; i++) {
+                boxed[i] = rows[i];
+            }
+            Arrays.sort(boxed, this::compare);
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = boxed[i];
+            }
+            return;
+        }
+        long[] distances = new long[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            long key = keys.sortKey(rows[i]);
+            distances[i] = key == MISSING ? span + 1 : descending ? max - key : key - min;
+        }
+        int bits = 64 - Long.numberOfLeadingZeros(span + 1);
+        int[] rowsOut = new int[rows.length];
+        long[] distancesOut = new long[rows.length];
+        int[] counts = new int[1 << 16];
+        int[] sourceRows = rows;
+        long[] sourceDistances = distances;
+        for (int shift = 0; shift < bits; shift += 16) {
+            Arrays.fill(counts, 0);
+            for (long distance : sourceDistances) {
+                counts[(int) (distance >>> shift) & 0xFFFF]++;
+            }
+            int start = 0;
+            for (int digit = 0; digit < counts.length; digit++) {
+                int count = counts[digit];
+                counts[digit] = start;
+                start += count;
+            }
+            for (int i = 0; i < sourceRows.length; i++) {
+                int index = counts[(int) (sourceDistances[i] >>> shift) & 0xFFFF]++;
+                rowsOut[index] = sourceRows[i];
+                distancesOut[index] = sourceDistances[i];
+            }
+            int[] swapRows = sourceRows;
+            sourceRows = rowsOut;
+            rowsOut = swapRows;
+            long[] swapDistances = sourceDistances;
+            sourceDistances = distancesOut;
+            distancesOut = swapDistances;
+        }
+        if (sourceRows != rows) {
+            System.arraycopy(sourceRows, 0, rows, 0, rows.length);
+        }
+    }
+
+    /**
+     * Compares two model rows in view order: by the key of the sort column,
+     * missing keys last, and then by row.
+     */
+    private int compare(int a, int b) {
+        if (sortColumn != -1) {
+            ColumnKeys keys = keys(sortColumn);
+            long keyA = keys.sortKey(a);
+            long keyB = keys.sortKey(b);
+            if (keyA != keyB) {
+                if (keyA == MISSING) {
+                    return 1;
+                }
+                if (keyB == MISSING) {
+                    return -1;
+                }
+                return descending ? Long.compare(keyB, keyA) : Long.compare(keyA, keyB);
+            }
+        }
+        return Integer.compare(a, b);
+    }
+
+    /**
+     * Returns the index of a model row among the first {@code size} rows of a
+     * view, or -(insertion point) - 1 if it is not there.
+     */
+    private int find(int[] view, int size, int row) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int order = compare(view[middle], row);
+            if (order < 0) {
+                low = middle + 1;
+            } else if (order > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Inserts a model row into a view in sorted order, if it passes the
+     * filter. The view must have room for it.
+     *
+     * @return The new number of rows in the view.
+     */
+    private int place(int[] view, int size, int row) {
+        if (!include(row)) {
+            return size;
+        }
+        int index = -(find(view, size, row) + 1);
+        System.arraycopy(view, index, view, index + 1, size - index);
+        view[index] = row;
+        return size + 1;
+    }
+
+    private boolean include(int row) {
+        if (filterText == null) {
+            return true;
+        }
+        if (filterColumn != -1) {
+            return keys(filterColumn).matches(row);
+        }
+        for (int column = 0; column < numeric.length; column++) {
+            if (keys(column).matches(row)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void reset() {
+        int columnCount = model.getColumnCount();
+        numeric = new boolean[columnCount];
+        for (int column = 0; column < columnCount; column++) {
+            numeric[column] = model instanceof TypedColumns ? ((TypedColumns) model).isNumeric(column)
+                    : numericColumnNames.contains(model.getColumnName(column));
+        }
+        columns = new ColumnKeys[columnCount];
+        modelRowCount = model.getRowCount();
+        if (sortColumn >= columnCount) {
+            sortColumn = -1;
+        }
+    }
+
+    private ColumnKeys keys(int column) {
+        if (columns[column] == null) {
+            columns[column] = new ColumnKeys(column);
+        }
+        return columns[column];
+    }
+
+    private void checkColumn(int column) {
+        if (column < 0 || column >= numeric.length) {
+            throw new IndexOutOfBoundsException("Invalid column " + column);
+        }
+    }
+
+    /**
+     * Sort keys of the cells of one column.
+     */
+    private final class ColumnKeys {
+
+        final int column;
+        final boolean isNumeric;
+        // Numeric columns: the value of every row; text columns: the id of its value
+        long[] keys;
+        int size;
+
+        // Text columns only: the distinct values, their collation keys and
+        // ranks by id, and their ids in rank order
+        final List<String> values = new ArrayList<>();
+        final Map<String, Integer> ids = new HashMap<>();
+        CollationKey[] collationKeys;
+        long[] ranks;
+        int[] byRank;
+
+        // Whether each distinct text value passes the filter: 0 unknown, 1 yes, 2 no
+        byte[] matches;
+
+        ColumnKeys(int column) {
+            this.column = column;
+            this.isNumeric = numeric[column];
+            size = modelRowCount;
+            keys = new long[Math.max(16, size)];
+            for (int row = 0; row < size; row++) {
+                keys[row] = isNumeric ? numericValue(row) : textId(row, false);
+            }
+            if (!isNumeric) {
+                rank();
+            }
+        }
+
+        long sortKey(int row) {
+            return isNumeric ? keys[row] : ranks[(int) keys[row]];
+        }
+
+        boolean matches(int row) {
+            if (isNumeric) {
+                return keys[row] != MISSING && keys[row] >= filterLow && keys[row] <= filterHigh;
+            }
+            int id = (int) keys[row];
+            if (matches == null || matches.length < values.size()) {
+                matches = matches == null ? new byte[values.size()] : Arrays.copyOf(matches, values.size());
+            }
+            if (matches[id] == 0) {
+                matches[id] = values.get(id).toLowerCase(Locale.ROOT).contains(filterNeedle) ? (byte) 1 : 2;
+            }
+            return matches[id] == 1;
+        }
+
+        void insert(int firstRow, int count) {
+            if (size + count > keys.length) {
+                keys = Arrays.copyOf(keys, Math.max(size + count, keys.length * 2));
+            }
+            System.arraycopy(keys, firstRow, keys, firstRow + count, size - firstRow);
+            size += count;
+            update(firstRow, firstRow + count - 1);
+        }
+
+        void delete(int firstRow, int count) {
+            System.arraycopy(keys, firstRow + count, keys, firstRow, size - firstRow - count);
+            size -= count;
+        }
+
+        void update(int firstRow, int endRow) {
+            for (int row = firstRow; row <= endRow; row++) {
+                keys[row] = isNumeric ? numericValue(row) : textId(row, true);
+            }
+        }
+
+        private long numericValue(int row) {
+            if (model instanceof TypedColumns) {
+                return ((TypedColumns) model).getNumericValue(row, column);
+            }
+            Object value = model.getValueAt(row, column);
+            if (value == null || value.toString().trim().isEmpty()) {
+                return MISSING;
+            }
+            try {
+                return FixedPoint.parse(value.toString());
+            } catch (NumberFormatException e) {
+                return MISSING;
+            }
+        }
+
+        /**
+         * Returns the id of the text of a cell, adding the text to the
+         * distinct values if it is new. Values added after the column was
+         * ranked are ranked as they are added.
+         */
+        private long textId(int row, boolean ranked) {
+            Object value = model.getValueAt(row, column);
+            String text = value != null ? value.toString() : "";
+            Integer id = ids.get(text);
+            if (id == null) {
+                id = values.size();
+                values.add(text);
+                ids.put(text, id);
+                if (ranked) {
+                    rankNewValue(id);
+                }
+            }
+            return id;
+        }
+
+        /**
+         * Ranks all distinct values by collation, leaving gaps between ranks.
+         */
+        private void rank() {
+            int count = values.size();
+            collationKeys = new CollationKey[Math.max(16, count)];
+            for (int id = 0; id < count; id++) {
+                collationKeys[id] = collator.getCollationKey(values.get(id));
+            }
+            CollationKey[] sorted = Arrays.copyOf(collationKeys, count);
+            Arrays.parallelSort(sorted);
+            byRank = new int[collationKeys.length];
+            ranks = new long[collationKeys.length];
+            for (int i = 0; i < count; i++) {
+                byRank[i] = ids.get(sorted[i].getSourceString());
+            }
+            assignRanks(count);
+        }
+
+        private void assignRanks(int count) {
+            long rank = 0;
+            for (int i = 0; i < count; i++) {
+                // Values that collate equally share a rank
+                if (i > 0 && collationKeys[byRank[i]].compareTo(collationKeys[byRank[i - 1]]) != 0) {
+                    rank += RANK_GAP;
+                }
+                ranks[byRank[i]] = rank;
+            }
+        }
+
+        /**
+         * Ranks a value added by an edit between its neighbours in collation
+         * order, ranking all values again if there is no gap left.
+         */
+        private void rankNewValue(int id) {
+            if (id == collationKeys.length) {
+                int capacity = collationKeys.length * 2;
+                collationKeys = Arrays.copyOf(collationKeys, capacity);
+                ranks = Arrays.copyOf(ranks, capacity);
+                byRank = Arrays.copyOf(byRank, capacity);
+            }
+            CollationKey key = collator.getCollationKey(values.get(id));
+            collationKeys[id] = key;
+            int low = 0;
+            int high = id - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (collationKeys[byRank[middle]].compareTo(key) <= 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            System.arraycopy(byRank, low, byRank, low + 1, id - low);
+            byRank[low] = id;
+
+            if (low > 0 && collationKeys[byRank[low - 1]].compareTo(key) == 0) {
+                ranks[id] = ranks[byRank[low - 1]];
+                return;
+            }
+            boolean hasNext = low < id;
+            long before = low > 0 ? ranks[byRank[low - 1]] : hasNext ? ranks[byRank[low + 1]] - 2 * RANK_GAP : 0;
+            long after = hasNext ? ranks[byRank[low + 1]] : before + 2 * RANK_GAP;
+            if (after - before < 2) {
+                assignRanks(id + 1);
+            } else {
+                ranks[id] = before + (after - before) / 2;
+            }
+        }
+    }
+}
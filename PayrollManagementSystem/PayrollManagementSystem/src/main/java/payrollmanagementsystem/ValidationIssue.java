@@ -0,0 +1,118 @@
+package payrollmanagementsystem;
+
+/**
+ * A problem found in a row of the payroll input by the {@link PayrollValidator}.
+ * A row with a problem is left out of the run; only its first problem is
+ * reported.
+ */
+public final class ValidationIssue {
+
+    /**
+     * The input a row belongs to.
+     */
+    public enum Input {
+        RATES("Rates"), EMPLOYEES("Employee");
+
+        private final String label;
+
+        Input(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /**
+     * What is wrong with a row.
+     */
+    public enum Kind {
+        MISSING_VALUE, NOT_NUMERIC, OUT_OF_RANGE, UNKNOWN_DEPARTMENT, DUPLICATE_ID, DUPLICATE_DEPARTMENT
+    }
+
+    private final Input input;
+    private final int row;
+    private final Kind kind;
+    private final String column;
+    private final String value;
+    private final int firstRow;
+
+    ValidationIssue(Input input, int row, Kind kind, String column, String value, int firstRow) {
+        this.input = input;
+        this.row = row;
+        this.kind = kind;
+        this.column = column;
+        this.value = value;
+        this.firstRow = firstRow;
+    }
+
+    /**
+     * Returns the same problem in a row further down, e.g. once the number of
+     * rows before the part of the input the row was checked in is known.
+     */
+    ValidationIssue shift(int rows) {
+        return new ValidationIssue(input, row + rows, kind, column, value, firstRow);
+    }
+
+    public Input getInput() {
+        return input;
+    }
+
+    /**
+     * Returns the row number in the table, starting at 1.
+     */
+    public int getRow() {
+        return row;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the name of the column with the problem.
+     */
+    public String getColumn() {
+        return column;
+    }
+
+    /**
+     * Returns the text of the cell with the problem, or null if it is missing.
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Returns the row number already holding a duplicated value, or 0 for
+     * other problems.
+     */
+    public int getFirstRow() {
+        return firstRow;
+    }
+
+    /**
+     * Returns the problem, without the row.
+     */
+    public String getMessage() {
+        switch (kind) {
+            case MISSING_VALUE:
+                return "missing value for " + column;
+            case NOT_NUMERIC:
+                return "non-numeric " + column + " (" + value + ")";
+            case OUT_OF_RANGE:
+                return column + " out of range (" + value + ")";
+            case UNKNOWN_DEPARTMENT:
+                return "department code " + value + " not found";
+            default:
+                return "duplicate " + column + " " + value + ", first used in row " + firstRow;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return input + " row " + row + ": " + getMessage();
+    }
+}
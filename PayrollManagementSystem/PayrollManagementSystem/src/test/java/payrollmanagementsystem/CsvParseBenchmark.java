@@ -0,0 +1,118 @@
+package payrollmanagementsystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import javax.swing.table.DefaultTableModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures reading an employee payroll file into the different in-memory forms.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CsvParseBenchmark {
+
+    @Param("100000")
+    public int employees;
+
+    @Param("1000")
+    public int departments;
+
+    @Param("0.2")
+    public double overtimeRatio;
+
+    private File directory;
+    private File payrollFile;
+
+    @Setup
+    public void writeInput() throws IOException {
+        directory = Files.createTempDirectory("payroll-bench").toFile();
+        payrollFile = new File(directory, "employees.csv");
+        new SyntheticPayrollData(employees, departments, overtimeRatio, 42).writeEmployees(payrollFile);
+    }
+
+    @TearDown
+    public void deleteInput() throws IOException {
+        SyntheticPayrollData.deleteDirectory(directory);
+    }
+
+    /**
+     * Splits the file into rows of cells only.
+     */
+    @Benchmark
+    public void readRows(Blackhole blackhole) throws IOException {
+        try (CsvReader reader = CsvReader.open(payrollFile)) {
+            String[] cells;
+            while ((cells = reader.readRow()) != null) {
+                blackhole.consume(cells);
+            }
+        }
+    }
+
+    /**
+     * Splits the file into rows on one thread and parses the
+     * hours, without creating any Strings.
+     */
+    @Benchmark
+    public long scanMappedRows() throws IOException {
+        long[] hours = new long[1];
+        MappedCsvParser parser = new MappedCsvParser(payrollFile, 1);
+        parser.parse(Collections.<MappedCsvParser.RowHandler>singletonList(
+                row -> hours[0] += row.getFixedPoint(EmployeeStore.HOURS_WORKED)));
+        return hours[0];
+    }
+
+    /**
+     * Parses the rows into employees, as the chunked parallel run does.
+     */
+    @Benchmark
+    public void parseEmployees(Blackhole blackhole) throws IOException {
+        PayrollCsv.forEachEmployee(payrollFile, blackhole::consume, new PayrollRunSummary());
+    }
+
+    /**
+     * Loads the file into the employee table, as the dashboard does.
+     */
+    @Benchmark
+    public EmployeeTableModel loadEmployeeTable() throws IOException {
+        EmployeeTableModel model = new EmployeeTableModel();
+        model.load(payrollFile);
+        return model;
+    }
+
+    /**
+     * Loads the file into a DefaultTableModel, as the dashboard's
+     * loadCSVFile does for the rates table.
+     */
+    @Benchmark
+    public DefaultTableModel loadDefaultTableModel() throws IOException {
+        DefaultTableModel model = new DefaultTableModel();
+        try (CsvReader reader = CsvReader.open(payrollFile)) {
+            model.setColumnIdentifiers(reader.readRow());
+            String[] cells;
+            while ((cells = reader.readRow()) != null) {
+                model.addRow(cells);
+            }
+        }
+        return model;
+    }
+}
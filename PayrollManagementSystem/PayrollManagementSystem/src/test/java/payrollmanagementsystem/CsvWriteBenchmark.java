@@ -0,0 +1,96 @@
+package payrollmanagementsystem;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures writing the processed payroll file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CsvWriteBenchmark {
+
+    @Param("100000")
+    public int employees;
+
+    @Param("1000")
+    public int departments;
+
+    @Param("0.2")
+    public double overtimeRatio;
+
+    private List<ProcessedEmployee> processed;
+    private File directory;
+    private File processedFile;
+
+    @Setup
+    public void calculatePay() throws IOException {
+        SyntheticPayrollData data = new SyntheticPayrollData(employees, departments, overtimeRatio, 42);
+        processed = new ArrayList<>(employees);
+        new PayrollEngine(data.getRates()).run(data.getEmployees(), processed::add);
+        directory = Files.createTempDirectory("payroll-bench").toFile();
+        processedFile = new File(directory, "processed.csv");
+    }
+
+    @TearDown
+    public void deleteOutput() throws IOException {
+        SyntheticPayrollData.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public long csvWriter() throws IOException {
+        try (CsvWriter writer = new CsvWriter(processedFile)) {
+            PayrollCsv.writeProcessedHeader(writer);
+            for (ProcessedEmployee employee : processed) {
+                PayrollCsv.writeProcessedRow(writer, employee);
+            }
+            writer.commit();
+            return writer.getBytesWritten();
+        }
+    }
+
+    /**
+     * Writes the same rows the way generateCSV did before the CSV writer and
+     * fixed-point money, i.e. pay as String.valueOf(double).
+     */
+    @Benchmark
+    public void fileWriter() throws IOException {
+        try (FileWriter writer = new FileWriter(processedFile)) {
+            writer.append(String.join(",", PayrollCsv.PROCESSED_HEADERS)).append("\n");
+            for (ProcessedEmployee processedEmployee : processed) {
+                Employee employee = processedEmployee.getEmployee();
+                writer.append(String.valueOf(employee.getId()))
+                        .append(",").append(employee.getFirstName())
+                        .append(",").append(employee.getLastName())
+                        .append(",").append(String.valueOf(employee.getDepartmentCode()))
+                        .append(",").append(employee.getPosition())
+                        .append(",").append(EmployeeStore.formatHours(employee.getHoursWorked()))
+                        .append(",").append(String.valueOf(processedEmployee.getRegularPay() / 100.0))
+                        .append(",").append(String.valueOf(processedEmployee.getOvertimePay() / 100.0))
+                        .append(",").append(String.valueOf(processedEmployee.getGrossPay() / 100.0))
+                        .append("\n");
+            }
+        }
+    }
+}
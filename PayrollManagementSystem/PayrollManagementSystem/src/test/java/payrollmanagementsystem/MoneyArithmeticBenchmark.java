@@ -0,0 +1,145 @@
+package payrollmanagementsystem;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares fixed-point pay with the double arithmetic generateCSV used
+ * before, from the text of the cells to the formatted pay. Scores are per
+ * employee.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MoneyArithmeticBenchmark {
+
+    private static final int EMPLOYEES = 10_000;
+
+    @Param({ "0.0", "0.2", "1.0" })
+    public double overtimeRatio;
+
+    // Cells as read from the files
+    private String[] hoursCells;
+    private String[] regularRateCells;
+    private String[] overtimeRateCells;
+
+    // Parsed values
+    private double[] hours;
+    private double[] regularRates;
+    private double[] overtimeRates;
+    private long[] fixedHours;
+    private long[] fixedRegularRates;
+    private long[] fixedOvertimeRates;
+
+    private final byte[] buffer = new byte[FixedPoint.MAX_LENGTH];
+
+    @Setup
+    public void createCells() {
+        SyntheticPayrollData data = new SyntheticPayrollData(EMPLOYEES, 100, overtimeRatio, 42);
+        RateIndex rates = new RateIndex(data.getRates());
+        List<Employee> employees = data.getEmployees();
+        hoursCells = new String[EMPLOYEES];
+        regularRateCells = new String[EMPLOYEES];
+        overtimeRateCells = new String[EMPLOYEES];
+        hours = new double[EMPLOYEES];
+        regularRates = new double[EMPLOYEES];
+        overtimeRates = new double[EMPLOYEES];
+        fixedHours = new long[EMPLOYEES];
+        fixedRegularRates = new long[EMPLOYEES];
+        fixedOvertimeRates = new long[EMPLOYEES];
+        for (int i = 0; i < EMPLOYEES; i++) {
+            int department = rates.indexOf(employees.get(i).getDepartmentCode());
+            hoursCells[i] = FixedPoint.toDecimalString(employees.get(i).getHoursWorked());
+            regularRateCells[i] = FixedPoint.toDecimalString(rates.regularRate(department));
+            overtimeRateCells[i] = FixedPoint.toDecimalString(rates.overtimeRate(department));
+            hours[i] = Double.parseDouble(hoursCells[i]);
+            regularRates[i] = Double.parseDouble(regularRateCells[i]);
+            overtimeRates[i] = Double.parseDouble(overtimeRateCells[i]);
+            fixedHours[i] = FixedPoint.parse(hoursCells[i]);
+            fixedRegularRates[i] = FixedPoint.parse(regularRateCells[i]);
+            fixedOvertimeRates[i] = FixedPoint.parse(overtimeRateCells[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EMPLOYEES)
+    public double doublePay() {
+        double total = 0;
+        for (int i = 0; i < EMPLOYEES; i++) {
+            double regularPay = hours[i] * regularRates[i];
+            double overtimePay = hours[i] > 40 ? (hours[i] - 40) * overtimeRates[i] : 0;
+            total += regularPay + overtimePay;
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EMPLOYEES)
+    public long fixedPointPay() {
+        long total = 0;
+        for (int i = 0; i < EMPLOYEES; i++) {
+            long regularPay = FixedPoint.multiply(fixedHours[i], fixedRegularRates[i]);
+            long overtimePay = fixedHours[i] > PayrollEngine.OVERTIME_THRESHOLD
+                    ? FixedPoint.multiply(fixedHours[i] - PayrollEngine.OVERTIME_THRESHOLD, fixedOvertimeRates[i])
+                    : 0;
+            total += regularPay + overtimePay;
+        }
+        return total;
+    }
+
+    /**
+     * Parses, pays and formats like the old generateCSV, with
+     * Double.parseDouble and String.valueOf(double).
+     */
+    @Benchmark
+    @OperationsPerInvocation(EMPLOYEES)
+    public void doubleParsePayFormat(Blackhole blackhole) {
+        for (int i = 0; i < EMPLOYEES; i++) {
+            double hoursWorked = Double.parseDouble(hoursCells[i]);
+            double regularPay = hoursWorked * Double.parseDouble(regularRateCells[i]);
+            double overtimePay = hoursWorked > 40
+                    ? (hoursWorked - 40) * Double.parseDouble(overtimeRateCells[i])
+                    : 0;
+            blackhole.consume(String.valueOf(regularPay));
+            blackhole.consume(String.valueOf(overtimePay));
+            blackhole.consume(String.valueOf(regularPay + overtimePay));
+        }
+    }
+
+    /**
+     * Parses, pays and formats with fixed point, formatting into a reused
+     * buffer as the CSV writer does.
+     */
+    @Benchmark
+    @OperationsPerInvocation(EMPLOYEES)
+    public void fixedPointParsePayFormat(Blackhole blackhole) {
+        for (int i = 0; i < EMPLOYEES; i++) {
+            long hoursWorked = FixedPoint.parse(hoursCells[i]);
+            long regularPay = FixedPoint.multiply(hoursWorked, FixedPoint.parse(regularRateCells[i]));
+            long overtimePay = hoursWorked > PayrollEngine.OVERTIME_THRESHOLD
+                    ? FixedPoint.multiply(hoursWorked - PayrollEngine.OVERTIME_THRESHOLD,
+                            FixedPoint.parse(overtimeRateCells[i]))
+                    : 0;
+            blackhole.consume(FixedPoint.formatMoney(regularPay, buffer));
+            blackhole.consume(FixedPoint.formatMoney(overtimePay, buffer));
+            blackhole.consume(FixedPoint.formatMoney(regularPay + overtimePay, buffer));
+        }
+        blackhole.consume(buffer);
+    }
+}
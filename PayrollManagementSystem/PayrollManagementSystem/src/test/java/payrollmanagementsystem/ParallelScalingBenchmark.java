@@ -0,0 +1,69 @@
+package payrollmanagementsystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how a complete batch payroll run, from reading the files to
+ * writing the processed file, scales with the number of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class ParallelScalingBenchmark {
+
+    @Param("1000000")
+    public int employees;
+
+    @Param("5000")
+    public int departments;
+
+    @Param("0.2")
+    public double overtimeRatio;
+
+    @Param({ "1", "2", "4" })
+    public int parallelism;
+
+    private File directory;
+    private File ratesFile;
+    private File payrollFile;
+    private File processedFile;
+
+    @Setup
+    public void writeInput() throws IOException {
+        directory = Files.createTempDirectory("payroll-bench").toFile();
+        ratesFile = new File(directory, "rates.csv");
+        payrollFile = new File(directory, "employees.csv");
+        processedFile = new File(directory, "processed.csv");
+        SyntheticPayrollData data = new SyntheticPayrollData(employees, departments, overtimeRatio, 42);
+        data.writeRates(ratesFile);
+        data.writeEmployees(payrollFile);
+    }
+
+    @TearDown
+    public void deleteFiles() throws IOException {
+        SyntheticPayrollData.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public PayrollRunSummary batchRun() throws IOException {
+        return PayrollBatch.run(ratesFile, payrollFile, processedFile, parallelism);
+    }
+}
@@ -0,0 +1,74 @@
+package payrollmanagementsystem;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures pay calculation without any file I/O.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PayCalculationBenchmark {
+
+    @Param("100000")
+    public int employees;
+
+    @Param("1000")
+    public int departments;
+
+    @Param({ "0.0", "0.2", "1.0" })
+    public double overtimeRatio;
+
+    private PayrollEngine engine;
+    private List<Employee> employeeList;
+    private EmployeeStore employeeStore;
+
+    @Setup
+    public void createEmployees() {
+        SyntheticPayrollData data = new SyntheticPayrollData(employees, departments, overtimeRatio, 42);
+        engine = new PayrollEngine(data.getRates());
+        employeeList = data.getEmployees();
+        employeeStore = new EmployeeStore(employees);
+        for (Employee employee : employeeList) {
+            employeeStore.add(employee);
+        }
+    }
+
+    /**
+     * Pays a list of employees through the engine, as the batch run does.
+     */
+    @Benchmark
+    public PayrollRunSummary engineRun(Blackhole blackhole) {
+        return engine.run(employeeList, blackhole::consume);
+    }
+
+    /**
+     * Pays the rows of an employee store, as the dashboard does.
+     */
+    @Benchmark
+    public long employeeStore() {
+        long total = 0;
+        for (int row = 0; row < employeeStore.size(); row++) {
+            int department = engine.departmentIndex(employeeStore.getDepartmentCode(row));
+            long hoursWorked = employeeStore.getHoursWorked(row);
+            total += engine.regularPay(department, hoursWorked) + engine.overtimePay(department, hoursWorked);
+        }
+        return total;
+    }
+}
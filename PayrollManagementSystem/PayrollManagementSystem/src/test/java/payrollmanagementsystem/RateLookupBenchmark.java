@@ -0,0 +1,87 @@
+package payrollmanagementsystem;
+
+import java.util.concurrent.TimeUnit;
+import javax.swing.table.DefaultTableModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the old linear scan of the rates table with the {@link RateIndex}.
+ * Scores are per looked up employee.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RateLookupBenchmark {
+
+    private static final int LOOKUPS = 10_000;
+
+    @Param({ "10", "1000", "5000" })
+    public int departments;
+
+    private DefaultTableModel ratesModel;
+    private RateIndex rateIndex;
+    private String[] codeCells;
+    private int[] codes;
+
+    @Setup
+    public void createRates() {
+        SyntheticPayrollData data = new SyntheticPayrollData(LOOKUPS, departments, 0.2, 42);
+        ratesModel = new DefaultTableModel(PayrollCsv.RATES_HEADERS, 0);
+        for (DepartmentRate rate : data.getRates()) {
+            ratesModel.addRow(new Object[] { String.valueOf(rate.getCode()), rate.getName(),
+                    FixedPoint.toDecimalString(rate.getRegularRate()),
+                    FixedPoint.toDecimalString(rate.getOvertimeRate()) });
+        }
+        rateIndex = new RateIndex(data.getRates());
+        codes = data.getDepartmentCodes();
+        codeCells = new String[codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            codeCells[i] = String.valueOf(codes[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public double linearScan() {
+        double total = 0;
+        for (String code : codeCells) {
+            int row = findDepartmentRowIndex(ratesModel, code);
+            total += Double.parseDouble(ratesModel.getValueAt(row, 2).toString());
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public long rateIndex() {
+        long total = 0;
+        for (int code : codes) {
+            total += rateIndex.regularRate(rateIndex.indexOf(code));
+        }
+        return total;
+    }
+
+    // The lookup generateCSV used before the rate index
+    private static int findDepartmentRowIndex(DefaultTableModel model, String departmentCode) {
+        for (int row = 0; row < model.getRowCount(); row++) {
+            if (departmentCode.equals(model.getValueAt(row, 0).toString())) {
+                return row;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,121 @@
+package payrollmanagementsystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Generates reproducible rates and employees for the benchmarks.
+ *
+ * Department codes are spread out (1000, 1007, 1014, ...) so they do not
+ * collide with row numbers, and a fixed share of employees works overtime.
+ */
+public final class SyntheticPayrollData {
+
+    private final List<DepartmentRate> rates = new ArrayList<>();
+    private final List<Employee> employees = new ArrayList<>();
+
+    /**
+     * @param employeeCount   Number of employees.
+     * @param departmentCount Number of departments.
+     * @param overtimeRatio   Share of employees working more than 40 hours, 0 to 1.
+     * @param seed            Seed of the random generator; the same seed gives the same data.
+     */
+    public SyntheticPayrollData(int employeeCount, int departmentCount, double overtimeRatio, long seed) {
+        Random random = new Random(seed);
+        for (int i = 0; i < departmentCount; i++) {
+            rates.add(new DepartmentRate(1000 + i * 7, "Dept " + i, FixedPoint.of(80 + random.nextInt(80)),
+                    FixedPoint.of(100 + random.nextInt(100)) + 25 * random.nextInt(4)));
+        }
+        for (int i = 0; i < employeeCount; i++) {
+            long hours = FixedPoint.of(random.nextDouble() < overtimeRatio
+                    ? 41 + random.nextInt(30)
+                    : 10 + random.nextInt(30));
+            if (random.nextInt(10) == 0) {
+                hours += FixedPoint.SCALE / 2; // Some half hours
+            }
+            employees.add(new Employee(10_000 + i, "First" + (i % 997), "Last" + (i % 1009),
+                    rates.get(random.nextInt(departmentCount)).getCode(), "Clerk", hours));
+        }
+    }
+
+    /**
+     * Deletes a temporary directory of a benchmark with everything in it,
+     * including the side files that payroll runs write next to their output,
+     * e.g. the departments, rejects and report files.
+     */
+    public static void deleteDirectory(File directory) throws IOException {
+        if (!directory.exists()) {
+            return;
+        }
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(directory.toPath())) {
+            paths = walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        }
+        for (Path path : paths) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    public List<DepartmentRate> getRates() {
+        return rates;
+    }
+
+    public List<Employee> getEmployees() {
+        return employees;
+    }
+
+    /**
+     * Returns the codes of the employees' departments, in employee order.
+     */
+    public int[] getDepartmentCodes() {
+        int[] codes = new int[employees.size()];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = employees.get(i).getDepartmentCode();
+        }
+        return codes;
+    }
+
+    /**
+     * Writes the rates in the format of the rates file.
+     */
+    public void writeRates(File file) throws IOException {
+        try (CsvWriter writer = new CsvWriter(file)) {
+            writer.writeRow(PayrollCsv.RATES_HEADERS);
+            for (DepartmentRate rate : rates) {
+                writer.field(rate.getCode())
+                        .field(rate.getName())
+                        .decimal(rate.getRegularRate())
+                        .decimal(rate.getOvertimeRate())
+                        .endRow();
+            }
+            writer.commit();
+        }
+    }
+
+    /**
+     * Writes the employees in the format of the employee payroll file.
+     */
+    public void writeEmployees(File file) throws IOException {
+        try (CsvWriter writer = new CsvWriter(file)) {
+            writer.writeRow(PayrollCsv.PAYROLL_HEADERS);
+            for (Employee employee : employees) {
+                writer.field(employee.getId())
+                        .field(employee.getFirstName())
+                        .field(employee.getLastName())
+                        .field(employee.getDepartmentCode())
+                        .field(employee.getPosition())
+                        .decimal(employee.getHoursWorked())
+                        .endRow();
+            }
+            writer.commit();
+        }
+    }
+}